@@ -0,0 +1,61 @@
+package li.cil.tis3d.benchmark;
+
+import li.cil.tis3d.headless.HeadlessMachine;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Base class for benchmarks stepping a {@link HeadlessMachine}.
+ * <p>
+ * Each operation is a single step of the whole machine, so throughput is
+ * reported in steps per second. Run with the <tt>gc</tt> profiler to get
+ * the allocations per step, reported as <tt>gc.alloc.rate.norm</tt>.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Thread)
+public abstract class AbstractMachineBenchmark {
+    /**
+     * The number of steps per benchmark invocation, to amortize the cost
+     * of invoking the benchmark.
+     */
+    private static final int STEPS_PER_INVOCATION = 1000;
+
+    protected HeadlessMachine machine;
+
+    // --------------------------------------------------------------------- //
+
+    @Setup
+    public void setup() throws Exception {
+        machine = new HeadlessMachine();
+        build(machine);
+        machine.enable();
+
+        // Get past the start-up phase, e.g. the initial reads and writes.
+        machine.step(STEPS_PER_INVOCATION);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(STEPS_PER_INVOCATION)
+    public void step() {
+        machine.step(STEPS_PER_INVOCATION);
+    }
+
+    // --------------------------------------------------------------------- //
+
+    /**
+     * Add the casings and modules making up the benchmarked machine.
+     *
+     * @param machine the machine to add the casings to.
+     * @throws Exception if the machine could not be built, e.g. due to a compile error.
+     */
+    protected abstract void build(final HeadlessMachine machine) throws Exception;
+}
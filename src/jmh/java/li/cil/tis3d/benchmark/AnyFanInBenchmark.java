@@ -0,0 +1,27 @@
+package li.cil.tis3d.benchmark;
+
+import li.cil.tis3d.api.machine.Face;
+import li.cil.tis3d.common.module.ExecutionModule;
+import li.cil.tis3d.headless.HeadlessMachine;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.Direction;
+
+/**
+ * Four execution modules sending values to a fifth one in their middle,
+ * which reads them using <tt>ANY</tt>.
+ */
+public class AnyFanInBenchmark extends AbstractMachineBenchmark {
+    @Override
+    protected void build(final HeadlessMachine machine) throws Exception {
+        final BlockPos center = BlockPos.ORIGIN;
+        HeadlessMachine.load(machine.addCasing(center).setModule(Face.Y_POS, ExecutionModule::new),
+            "ADD ANY");
+
+        for (final Direction direction : Direction.Type.HORIZONTAL) {
+            final ExecutionModule module = machine.addCasing(center.offset(direction)).setModule(Face.Y_POS, ExecutionModule::new);
+            HeadlessMachine.load(module,
+                "ADD 1",
+                "MOV ACC, " + HeadlessMachine.getPortTowards(Face.Y_POS, direction.getOpposite()).name());
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package li.cil.tis3d.benchmark;
+
+import li.cil.tis3d.common.module.execution.compiler.Lexer;
+import li.cil.tis3d.common.module.execution.compiler.LineTokens;
+import li.cil.tis3d.common.module.execution.compiler.Token;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Splitting the lines of the sample programs from the manual into tokens,
+ * once using the hand-written lexer the compiler uses, once using the
+ * regular expressions it replaced. Measures whole programs per second.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Thread)
+public class LexerBenchmark {
+    private static final String[] DISPLAY = {
+        "#DEFINE COLOR 0XFF",
+        "MOV COLOR ACC",
+        "MOV ACC LEFT # COLOR",
+        "MOV 16 ACC",
+        "MOV ACC LEFT # X",
+        "MOV 0 LEFT # Y",
+        "MOV 1 LEFT # WIDTH",
+        "MOV 28 LEFT # HEIGHT"
+    };
+
+    private static final String[] LOOP = {
+        "MOV 0, ACC # Reset",
+        "START: MOV 8, ACC",
+        "MOV LEFT, RIGHT",
+        "MOV DOWN, NIL",
+        "JEZ START",
+        "JMP START"
+    };
+
+    private static final String[] RAM = {
+        "# Write to address 8, then read it back.",
+        "MOV 8 LEFT",
+        "MOV 0x42 LEFT",
+        "MOV 8 LEFT",
+        "MOV LEFT ACC"
+    };
+
+    @Param({"display", "loop", "ram"})
+    public String program;
+
+    private String[] lines;
+    private final LineTokens tokens = new LineTokens();
+
+    @Setup
+    public void setup() {
+        final String[] source;
+        if ("display".equals(program)) {
+            source = DISPLAY;
+        } else if ("loop".equals(program)) {
+            source = LOOP;
+        } else {
+            source = RAM;
+        }
+
+        // The compiler only ever sees upper-cased code.
+        lines = new String[source.length];
+        for (int i = 0; i < source.length; i++) {
+            lines[i] = source[i].toUpperCase(Locale.US);
+        }
+    }
+
+    @Benchmark
+    public void lexer(final Blackhole blackhole) {
+        for (final String line : lines) {
+            blackhole.consume(Lexer.tokenize(line, tokens));
+            blackhole.consume(tokens.end(Token.ARG2));
+        }
+    }
+
+    @Benchmark
+    public void patterns(final Blackhole blackhole) {
+        for (final String line : lines) {
+            blackhole.consume(Lexer.tokenizeWithPatterns(line, tokens));
+            blackhole.consume(tokens.end(Token.ARG2));
+        }
+    }
+}
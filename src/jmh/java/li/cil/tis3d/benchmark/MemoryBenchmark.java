@@ -0,0 +1,36 @@
+package li.cil.tis3d.benchmark;
+
+import li.cil.tis3d.api.machine.Face;
+import li.cil.tis3d.common.module.ExecutionModule;
+import li.cil.tis3d.common.module.RandomAccessMemoryModule;
+import li.cil.tis3d.headless.HeadlessCasing;
+import li.cil.tis3d.headless.HeadlessMachine;
+import net.minecraft.util.math.BlockPos;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * An execution module writing to and reading from scattered addresses of
+ * a random access memory module on an adjacent face of the same casing.
+ */
+public class MemoryBenchmark extends AbstractMachineBenchmark {
+    private static final int[] ADDRESSES = {3, 141, 58, 222, 97, 12, 180, 255};
+
+    @Override
+    protected void build(final HeadlessMachine machine) throws Exception {
+        final HeadlessCasing casing = machine.addCasing(BlockPos.ORIGIN);
+        casing.setModule(Face.X_POS, RandomAccessMemoryModule::new);
+
+        // Write each address' own value to it, then read it back.
+        final String port = HeadlessMachine.getPortTowards(Face.Y_POS, Face.X_POS).name();
+        final List<String> code = new ArrayList<>();
+        for (final int address : ADDRESSES) {
+            code.add("MOV " + address + ", " + port);
+            code.add("MOV " + address + ", " + port);
+            code.add("MOV " + address + ", " + port);
+            code.add("MOV " + port + ", ACC");
+        }
+        HeadlessMachine.load(casing.setModule(Face.Y_POS, ExecutionModule::new), code.toArray(new String[0]));
+    }
+}
@@ -0,0 +1,40 @@
+package li.cil.tis3d.benchmark;
+
+import li.cil.tis3d.api.machine.Face;
+import li.cil.tis3d.common.module.ExecutionModule;
+import li.cil.tis3d.headless.HeadlessMachine;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.Direction;
+
+/**
+ * A flat mesh of 32 by 16, i.e. 512, casings with an execution module on
+ * each, forming rows that pass values along from their first to their
+ * last module.
+ */
+public class MeshBenchmark extends AbstractMachineBenchmark {
+    private static final int WIDTH = 32;
+    private static final int DEPTH = 16;
+
+    @Override
+    protected void build(final HeadlessMachine machine) throws Exception {
+        final String next = HeadlessMachine.getPortTowards(Face.Y_POS, Direction.EAST).name();
+        final String prev = HeadlessMachine.getPortTowards(Face.Y_POS, Direction.WEST).name();
+
+        for (int z = 0; z < DEPTH; z++) {
+            for (int x = 0; x < WIDTH; x++) {
+                final ExecutionModule module = machine.addCasing(new BlockPos(x, 0, z)).setModule(Face.Y_POS, ExecutionModule::new);
+                if (x == 0) {
+                    HeadlessMachine.load(module,
+                        "ADD 1",
+                        "MOV ACC, " + next);
+                } else if (x == WIDTH - 1) {
+                    HeadlessMachine.load(module,
+                        "MOV " + prev + ", NIL");
+                } else {
+                    HeadlessMachine.load(module,
+                        "MOV " + prev + ", " + next);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package li.cil.tis3d.benchmark;
+
+import li.cil.tis3d.api.machine.Face;
+import li.cil.tis3d.common.module.ExecutionModule;
+import li.cil.tis3d.headless.HeadlessMachine;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.Direction;
+import org.openjdk.jmh.annotations.Param;
+
+/**
+ * A row of execution modules passing a value back and forth: the first
+ * module sends a counter along the row using <tt>MOV</tt>s, the last one
+ * sends it back.
+ */
+public class MovChainBenchmark extends AbstractMachineBenchmark {
+    @Param({"2", "8", "32"})
+    public int length;
+
+    @Override
+    protected void build(final HeadlessMachine machine) throws Exception {
+        final String next = HeadlessMachine.getPortTowards(Face.Y_POS, Direction.EAST).name();
+        final String prev = HeadlessMachine.getPortTowards(Face.Y_POS, Direction.WEST).name();
+
+        for (int i = 0; i < length; i++) {
+            final ExecutionModule module = machine.addCasing(new BlockPos(i, 0, 0)).setModule(Face.Y_POS, ExecutionModule::new);
+            if (i == 0) {
+                HeadlessMachine.load(module,
+                    "ADD 1",
+                    "MOV ACC, " + next,
+                    "MOV " + next + ", ACC");
+            } else if (i == length - 1) {
+                HeadlessMachine.load(module,
+                    "MOV " + prev + ", ACC",
+                    "MOV ACC, " + prev);
+            } else {
+                HeadlessMachine.load(module,
+                    "MOV " + prev + ", " + next,
+                    "MOV " + next + ", " + prev);
+            }
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package li.cil.tis3d.benchmark;
+
+import li.cil.tis3d.api.machine.Face;
+import li.cil.tis3d.common.module.ExecutionModule;
+import li.cil.tis3d.common.module.QueueModule;
+import li.cil.tis3d.common.module.StackModule;
+import li.cil.tis3d.headless.HeadlessCasing;
+import li.cil.tis3d.headless.HeadlessMachine;
+import net.minecraft.util.math.BlockPos;
+import org.openjdk.jmh.annotations.Param;
+
+/**
+ * An execution module pushing values into and popping them from a stack
+ * or queue module on an adjacent face of the same casing.
+ */
+public class StorageBenchmark extends AbstractMachineBenchmark {
+    @Param({"stack", "queue"})
+    public String storage;
+
+    @Override
+    protected void build(final HeadlessMachine machine) throws Exception {
+        final HeadlessCasing casing = machine.addCasing(BlockPos.ORIGIN);
+        if ("stack".equals(storage)) {
+            casing.setModule(Face.X_POS, StackModule::new);
+        } else {
+            casing.setModule(Face.X_POS, QueueModule::new);
+        }
+
+        final String port = HeadlessMachine.getPortTowards(Face.Y_POS, Face.X_POS).name();
+        HeadlessMachine.load(casing.setModule(Face.Y_POS, ExecutionModule::new),
+            "MOV 1, " + port,
+            "MOV 2, " + port,
+            "MOV 3, " + port,
+            "MOV " + port + ", NIL",
+            "MOV " + port + ", NIL",
+            "MOV " + port + ", NIL");
+    }
+}
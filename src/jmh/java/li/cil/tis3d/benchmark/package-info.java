@@ -0,0 +1,4 @@
+@ParametersAreNonnullByDefault
+package li.cil.tis3d.benchmark;
+
+import javax.annotation.ParametersAreNonnullByDefault;
\ No newline at end of file
@@ -0,0 +1,209 @@
+package li.cil.tis3d.headless;
+
+import io.netty.buffer.ByteBuf;
+import li.cil.tis3d.api.machine.Casing;
+import li.cil.tis3d.api.machine.Face;
+import li.cil.tis3d.api.machine.Pipe;
+import li.cil.tis3d.api.machine.Port;
+import li.cil.tis3d.api.module.Module;
+import li.cil.tis3d.common.machine.PipeHost;
+import li.cil.tis3d.common.machine.PipeListener;
+import li.cil.tis3d.common.machine.PipeTable;
+import li.cil.tis3d.common.network.ModuleDataBuffers;
+import net.minecraft.nbt.CompoundTag;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.world.World;
+
+import javax.annotation.Nullable;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+
+/**
+ * A casing that only exists in memory, as part of a {@link HeadlessMachine}.
+ * <p>
+ * Pipes are laid out, connected to those of adjacent casings and stepped by
+ * the same {@link PipeTable} as in casing block entities. There is no real
+ * world, so data sent to clients and other effects on the world are dropped,
+ * and modules may only use the world for side checks, random numbers and the
+ * world time, see {@link HeadlessWorld}.
+ */
+public final class HeadlessCasing implements Casing, PipeHost {
+    /**
+     * The machine this casing belongs to.
+     */
+    private final HeadlessMachine machine;
+
+    /**
+     * The virtual position of this casing, used to find adjacent casings.
+     */
+    private final BlockPos position;
+
+    /**
+     * The {@link Module}s currently installed in this casing.
+     */
+    private final Module[] modules = new Module[Face.VALUES.length];
+
+    /**
+     * The {@link Pipe}s of this casing and where they are routed to.
+     */
+    private final PipeTable pipeTable = new PipeTable(this);
+
+    // --------------------------------------------------------------------- //
+
+    HeadlessCasing(final HeadlessMachine machine, final BlockPos position) {
+        this.machine = machine;
+        this.position = position;
+    }
+
+    /**
+     * Install a new module on the specified face of the casing, replacing
+     * the module currently installed there, if any.
+     * <p>
+     * Modules should be installed before the machine is enabled.
+     *
+     * @param face    the face to install the module on.
+     * @param factory the constructor of the module, e.g. <tt>StackModule::new</tt>.
+     * @param <T>     the type of the module.
+     * @return the installed module.
+     */
+    public <T extends Module> T setModule(final Face face, final BiFunction<Casing, Face, T> factory) {
+        final T module = factory.apply(this, face);
+        modules[face.ordinal()] = module;
+        machine.onModulesChanged();
+        return module;
+    }
+
+    // --------------------------------------------------------------------- //
+
+    void setNeighbor(final Face face, @Nullable final HeadlessCasing neighbor) {
+        pipeTable.setNeighbor(face, neighbor != null ? neighbor.pipeTable : null);
+    }
+
+    PipeTable getPipeTable() {
+        return pipeTable;
+    }
+
+    void rebuildOverrides() {
+        final int changedFaces = pipeTable.rebuildOverrides();
+
+        // Modules may be waiting on pipes that are no longer connected to them.
+        for (final Face face : Face.VALUES) {
+            final Module module = getModule(face);
+            if ((changedFaces & (1 << face.ordinal())) != 0 && module instanceof PipeListener) {
+                ((PipeListener)module).onPipeChanged();
+            }
+        }
+    }
+
+    // --------------------------------------------------------------------- //
+    // Casing
+
+    @Override
+    public World getCasingWorld() {
+        return HeadlessWorld.INSTANCE;
+    }
+
+    @Override
+    public BlockPos getPosition() {
+        return position;
+    }
+
+    @Override
+    public void markDirty() {
+    }
+
+    @Override
+    public void notifyNeighbors() {
+    }
+
+    @Override
+    public void queueEffect(final Runnable effect) {
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return machine.isEnabled();
+    }
+
+    @Override
+    public boolean isLocked() {
+        return false;
+    }
+
+    @Nullable
+    @Override
+    public Module getModule(final Face face) {
+        return modules[face.ordinal()];
+    }
+
+    @Override
+    public Pipe getReceivingPipe(final Face face, final Port port) {
+        return pipeTable.getReceivingPipe(face, port);
+    }
+
+    @Override
+    public Pipe getSendingPipe(final Face face, final Port port) {
+        return pipeTable.getSendingPipe(face, port);
+    }
+
+    @Override
+    public void sendData(final Face face, final CompoundTag data, final byte type) {
+    }
+
+    @Override
+    public void sendData(final Face face, final CompoundTag data) {
+    }
+
+    @Override
+    public void sendData(final Face face, final ByteBuf data, final byte type) {
+        ModuleDataBuffers.release(data);
+    }
+
+    @Override
+    public void sendData(final Face face, final ByteBuf data) {
+        ModuleDataBuffers.release(data);
+    }
+
+    @Override
+    public ByteBuf allocateData() {
+        return ModuleDataBuffers.allocate();
+    }
+
+    @Override
+    public void sendData(final Face face, final Consumer<ByteBuf> writer, final byte type) {
+    }
+
+    // --------------------------------------------------------------------- //
+    // PipeHost
+
+    @Override
+    public World getPipeHostWorld() {
+        return getCasingWorld();
+    }
+
+    @Override
+    public BlockPos getPipeHostPosition() {
+        return position;
+    }
+
+    @Override
+    public void onBeforeWriteComplete(final Face sendingFace, final Port sendingPort) {
+        final Module module = getModule(sendingFace);
+        if (module != null) {
+            module.onBeforeWriteComplete(sendingPort);
+        }
+    }
+
+    @Override
+    public void onWriteComplete(final Face sendingFace, final Port sendingPort) {
+        final Module module = getModule(sendingFace);
+        if (module != null) {
+            module.onWriteComplete(sendingPort);
+        }
+    }
+
+    @Override
+    public void onPipeActiveChanged(final int index, final boolean isActive) {
+        pipeTable.setPipeActive(index, isActive);
+    }
+}
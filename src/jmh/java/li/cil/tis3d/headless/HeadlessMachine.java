@@ -0,0 +1,210 @@
+package li.cil.tis3d.headless;
+
+import li.cil.tis3d.api.machine.Face;
+import li.cil.tis3d.api.machine.Port;
+import li.cil.tis3d.api.module.Module;
+import li.cil.tis3d.common.machine.CompiledMachine;
+import li.cil.tis3d.common.machine.DeferredEffects;
+import li.cil.tis3d.common.machine.MachineStepper;
+import li.cil.tis3d.common.machine.PipeLayout;
+import li.cil.tis3d.common.machine.PipeTable;
+import li.cil.tis3d.common.module.ExecutionModule;
+import li.cil.tis3d.common.module.execution.compiler.Compiler;
+import li.cil.tis3d.common.module.execution.compiler.ParseException;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.Direction;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A multi-block of casings that only exists in memory, for simulating
+ * machines without a world, e.g. for benchmarks.
+ * <p>
+ * Casings are added at virtual positions, and connected to adjacent casings
+ * like casing block entities are. The machine is then stepped via the same
+ * {@link CompiledMachine} controllers use: all modules ordered by casing
+ * position and face, followed by the pipes of all casings.
+ * <p>
+ * While stepping, a {@link DeferredEffects} buffer is bound as concurrent,
+ * so that no data is sent via the network, and discarded after each step.
+ * Only modules that are {@link li.cil.tis3d.common.module.ConcurrentlySteppable}
+ * and use the world at most for side checks, random numbers and the world
+ * time while stepping are supported, see {@link HeadlessWorld}, e.g. execution, stack, queue and
+ * memory modules.
+ */
+public final class HeadlessMachine {
+    private static final PipeTable[] EMPTY_PIPE_TABLES = new PipeTable[0];
+
+    private final Map<BlockPos, HeadlessCasing> casingsByPosition = new HashMap<>();
+    private final List<HeadlessCasing> casings = new ArrayList<>();
+    private final DeferredEffects effects = new DeferredEffects();
+
+    /**
+     * The flattened machine, rebuilt after casings or modules changed.
+     */
+    private CompiledMachine machine = CompiledMachine.EMPTY;
+
+    /**
+     * The pipes of all casings, in the order they are stepped in.
+     */
+    private PipeTable[] pipeTables = EMPTY_PIPE_TABLES;
+
+    private boolean isMachineDirty;
+    private boolean isEnabled;
+
+    // --------------------------------------------------------------------- //
+
+    /**
+     * Add a new casing at the specified position and connect it to the
+     * casings adjacent to it. Casings should be added before the machine
+     * is enabled.
+     *
+     * @param position the virtual position of the casing.
+     * @return the new casing.
+     * @throws IllegalArgumentException if there already is a casing at that position.
+     */
+    public HeadlessCasing addCasing(final BlockPos position) {
+        if (casingsByPosition.containsKey(position)) {
+            throw new IllegalArgumentException("Position is already occupied: " + position);
+        }
+
+        final HeadlessCasing casing = new HeadlessCasing(this, position);
+        casingsByPosition.put(position, casing);
+        casings.add(casing);
+        MachineStepper.sortCasings(casings);
+
+        for (final Face face : Face.VALUES) {
+            final HeadlessCasing neighbor = casingsByPosition.get(position.offset(Face.toDirection(face)));
+            if (neighbor != null) {
+                casing.setNeighbor(face, neighbor);
+                neighbor.setNeighbor(face.getOpposite(), casing);
+            }
+        }
+
+        // Adding a casing may change connections up to two casings away.
+        for (final HeadlessCasing other : casings) {
+            other.rebuildOverrides();
+        }
+
+        pipeTables = new PipeTable[casings.size()];
+        for (int i = 0; i < casings.size(); i++) {
+            pipeTables[i] = casings.get(i).getPipeTable();
+        }
+        isMachineDirty = true;
+
+        return casing;
+    }
+
+    public boolean isEnabled() {
+        return isEnabled;
+    }
+
+    /**
+     * Calls {@link Module#onEnabled()} on all modules, after which the
+     * machine can be stepped.
+     */
+    public void enable() {
+        if (isEnabled) {
+            return;
+        }
+
+        isEnabled = true;
+        effects.bind(true);
+        try {
+            for (final Module module : MachineStepper.collectModules(casings)) {
+                module.onEnabled();
+            }
+        } finally {
+            DeferredEffects.unbind();
+            effects.discard();
+        }
+    }
+
+    /**
+     * Advance the machine by the specified number of steps.
+     *
+     * @param count the number of steps to perform.
+     */
+    public void step(final int count) {
+        if (!isEnabled) {
+            throw new IllegalStateException("Machine is not enabled.");
+        }
+
+        final CompiledMachine machine = getMachine();
+        effects.bind(true);
+        try {
+            for (int i = 0; i < count; i++) {
+                machine.step();
+                effects.discard();
+            }
+        } finally {
+            DeferredEffects.unbind();
+            effects.discard();
+        }
+    }
+
+    // --------------------------------------------------------------------- //
+
+    /**
+     * Compile the specified code into an execution module. Must be called
+     * before the machine is enabled.
+     *
+     * @param module the module to load the code into.
+     * @param code   the lines of code to compile.
+     * @throws ParseException if the code contains errors.
+     */
+    public static void load(final ExecutionModule module, final String... code) throws ParseException {
+        module.getState().clear();
+        Compiler.compile(Arrays.asList(code), module.getState());
+    }
+
+    /**
+     * Get the port via which a module on the specified face of a casing
+     * sends to and receives from the specified side of that casing, assuming
+     * the module has its default facing. If there is an adjacent casing on
+     * that side, this leads to the module on the same face of that casing.
+     *
+     * @param face the face the module is installed on.
+     * @param side the side to get the port towards.
+     * @return the port towards that side.
+     * @throws IllegalArgumentException if the side is not adjacent to the face.
+     */
+    public static Port getPortTowards(final Face face, final Face side) {
+        for (final Port port : Port.VALUES) {
+            if (PipeLayout.mapFace(face, port) == side) {
+                return port;
+            }
+        }
+        throw new IllegalArgumentException(side + " is not adjacent to " + face);
+    }
+
+    /**
+     * Convenience overload of {@link #getPortTowards(Face, Face)} for directions.
+     *
+     * @param face      the face the module is installed on.
+     * @param direction the direction to get the port towards.
+     * @return the port towards that direction.
+     */
+    public static Port getPortTowards(final Face face, final Direction direction) {
+        return getPortTowards(face, Face.fromDirection(direction));
+    }
+
+    // --------------------------------------------------------------------- //
+
+    void onModulesChanged() {
+        isMachineDirty = true;
+    }
+
+    private CompiledMachine getMachine() {
+        if (isMachineDirty) {
+            isMachineDirty = false;
+            machine.release();
+            machine = CompiledMachine.compile(casings, pipeTables);
+        }
+        return machine;
+    }
+}
@@ -0,0 +1,138 @@
+package li.cil.tis3d.headless;
+
+import net.minecraft.Bootstrap;
+import net.minecraft.block.Block;
+import net.minecraft.block.BlockState;
+import net.minecraft.entity.Entity;
+import net.minecraft.entity.player.PlayerEntity;
+import net.minecraft.fluid.Fluid;
+import net.minecraft.item.map.MapState;
+import net.minecraft.recipe.RecipeManager;
+import net.minecraft.scoreboard.Scoreboard;
+import net.minecraft.sound.SoundCategory;
+import net.minecraft.sound.SoundEvent;
+import net.minecraft.tag.RegistryTagManager;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.profiler.DummyProfiler;
+import net.minecraft.world.GameMode;
+import net.minecraft.world.TickScheduler;
+import net.minecraft.world.World;
+import net.minecraft.world.biome.Biome;
+import net.minecraft.world.biome.Biomes;
+import net.minecraft.world.dimension.DimensionType;
+import net.minecraft.world.level.LevelGeneratorType;
+import net.minecraft.world.level.LevelInfo;
+import net.minecraft.world.level.LevelProperties;
+
+import javax.annotation.Nullable;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The world of all {@link HeadlessCasing}s.
+ * <p>
+ * An empty server-side world without chunks, players or entities. Modules
+ * may check the side they are running on, use the world's random source and
+ * read the world time, which stays zero. Sounds and other events are dropped.
+ * Anything accessing blocks or chunks, e.g. looking up neighbors, is not
+ * supported.
+ */
+final class HeadlessWorld extends World {
+    static final World INSTANCE = create();
+
+    private final Scoreboard scoreboard = new Scoreboard();
+    private final RecipeManager recipeManager = new RecipeManager();
+    private final RegistryTagManager tagManager = new RegistryTagManager();
+
+    // --------------------------------------------------------------------- //
+
+    private static World create() {
+        // Dimensions and biomes are looked up in the registries.
+        Bootstrap.initialize();
+        return new HeadlessWorld();
+    }
+
+    private HeadlessWorld() {
+        super(new LevelProperties(new LevelInfo(0, GameMode.SURVIVAL, false, false, LevelGeneratorType.DEFAULT), "headless"),
+            DimensionType.OVERWORLD, (world, dimension) -> null, DummyProfiler.INSTANCE, false);
+    }
+
+    // --------------------------------------------------------------------- //
+    // World
+
+    @Override
+    public void updateListeners(final BlockPos pos, final BlockState oldState, final BlockState newState, final int flags) {
+    }
+
+    @Override
+    public void playSound(@Nullable final PlayerEntity player, final double x, final double y, final double z, final SoundEvent sound, final SoundCategory category, final float volume, final float pitch) {
+    }
+
+    @Override
+    public void playSoundFromEntity(@Nullable final PlayerEntity player, final Entity entity, final SoundEvent sound, final SoundCategory category, final float volume, final float pitch) {
+    }
+
+    @Override
+    public void playLevelEvent(@Nullable final PlayerEntity player, final int eventId, final BlockPos pos, final int data) {
+    }
+
+    @Nullable
+    @Override
+    public Entity getEntityById(final int id) {
+        return null;
+    }
+
+    @Override
+    public List<? extends PlayerEntity> getPlayers() {
+        return Collections.emptyList();
+    }
+
+    @Nullable
+    @Override
+    public MapState getMapState(final String id) {
+        return null;
+    }
+
+    @Override
+    public void putMapState(final MapState mapState) {
+    }
+
+    @Override
+    public int getNextMapId() {
+        return 0;
+    }
+
+    @Override
+    public void setBlockBreakingInfo(final int entityId, final BlockPos pos, final int progress) {
+    }
+
+    @Override
+    public Scoreboard getScoreboard() {
+        return scoreboard;
+    }
+
+    @Override
+    public RecipeManager getRecipeManager() {
+        return recipeManager;
+    }
+
+    @Override
+    public RegistryTagManager getTagManager() {
+        return tagManager;
+    }
+
+    @Override
+    public TickScheduler<Block> getBlockTickScheduler() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public TickScheduler<Fluid> getFluidTickScheduler() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Biome getGeneratorStoredBiome(final int biomeX, final int biomeY, final int biomeZ) {
+        return Biomes.PLAINS;
+    }
+}
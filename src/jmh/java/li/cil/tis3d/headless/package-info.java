@@ -0,0 +1,4 @@
+@ParametersAreNonnullByDefault
+package li.cil.tis3d.headless;
+
+import javax.annotation.ParametersAreNonnullByDefault;
\ No newline at end of file
@@ -1,6 +1,7 @@
 package li.cil.tis3d.api.machine;
 
 import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
 import li.cil.tis3d.api.module.Module;
 import net.minecraft.entity.player.PlayerEntity;
 import net.minecraft.nbt.CompoundTag;
@@ -10,6 +11,7 @@ import net.minecraft.util.math.Vec3d;
 import net.minecraft.world.World;
 
 import javax.annotation.Nullable;
+import java.util.function.Consumer;
 
 /**
  * A casing for TIS-3D modules.
@@ -34,9 +36,51 @@ public interface Casing {
     /**
      * Flag the casing as dirty so it is saved when the chunk containing it
      * saved next.
+     * <p>
+     * When called while the casing's controller is stepping its modules, this
+     * is deferred until the controller has finished stepping for the current
+     * tick, and repeated calls are merged into one.
      */
     void markDirty();
 
+    /**
+     * Notify the blocks around the casing of a change in the casing, e.g. a
+     * change in the redstone signal emitted by one of its modules.
+     * <p>
+     * When called while the casing's controller is stepping its modules, this
+     * is deferred until the controller has finished stepping for the current
+     * tick, and repeated calls are merged into one. Otherwise the neighbors
+     * are notified immediately.
+     * <p>
+     * The default implementation always notifies the neighbors immediately.
+     */
+    default void notifyNeighbors() {
+        final World world = getCasingWorld();
+        final BlockPos position = getPosition();
+        world.updateNeighborsAlways(position, world.getBlockState(position).getBlock());
+    }
+
+    /**
+     * Apply an effect on the world, such as playing a sound or spawning an
+     * entity, from a module.
+     * <p>
+     * When called while the casing's controller is stepping its modules, the
+     * effect is deferred until the controller has finished stepping for the
+     * current tick, and always applied on the server thread. Effects are
+     * applied in the order they were queued in. Otherwise the effect is
+     * applied immediately.
+     * <p>
+     * Modules should use this for all world interaction from {@link Module#step()}
+     * and the pipe callbacks, instead of accessing the world directly.
+     * <p>
+     * The default implementation always applies the effect immediately.
+     *
+     * @param effect the effect to apply.
+     */
+    default void queueEffect(final Runnable effect) {
+        effect.run();
+    }
+
     // --------------------------------------------------------------------- //
 
     /**
@@ -171,7 +215,9 @@ public interface Casing {
      * <p>
      * <em>Important</em>: the passed buffer is <em>not</em> copied, it is
      * stored by reference. If you intend to modify the buffer after passing
-     * it to this method, pass a copy of it instead.
+     * it to this method, pass a copy of it instead. Buffers obtained via
+     * {@link #allocateData()} are owned by the casing after passing them to
+     * this method, and released once sent; do not keep references to them.
      *
      * @param face the face the module is installed in.
      * @param data the data to send to the client.
@@ -189,10 +235,67 @@ public interface Casing {
      * <p>
      * <em>Important</em>: the passed buffer is <em>not</em> copied, it is
      * stored by reference. If you intend to modify the buffer after passing
-     * it to this method, pass a copy of it instead.
+     * it to this method, pass a copy of it instead. Buffers obtained via
+     * {@link #allocateData()} are owned by the casing after passing them to
+     * this method, and released once sent; do not keep references to them.
      *
      * @param face the face the module is installed in.
      * @param data the data to send to the client.
      */
     void sendData(final Face face, final ByteBuf data);
+
+    /**
+     * Get a buffer to write data to send via {@link #sendData(Face, ByteBuf, byte)}
+     * or {@link #sendData(Face, ByteBuf)} into.
+     * <p>
+     * Buffers obtained this way are pooled, so prefer this over allocating
+     * buffers yourself, in particular for data sent frequently. Passing the
+     * buffer to one of the send methods passes ownership to the casing, which
+     * releases it once the data was sent. A buffer that ends up not being
+     * sent must be released by the caller, via {@link ByteBuf#release()}.
+     * <p>
+     * The default implementation returns a new unpooled buffer.
+     *
+     * @return a new, empty buffer.
+     */
+    default ByteBuf allocateData() {
+        return Unpooled.buffer();
+    }
+
+    /**
+     * Call this to send some data from a module to it's other representation,
+     * serializing the data only when it is actually sent.
+     * <p>
+     * This behaves like {@link #sendData(Face, ByteBuf, byte)}, except that
+     * instead of a buffer with the data, a writer producing the data is
+     * queued. The writer is called when the queued data is sent, and
+     * writes the data into a buffer reused for sending. If the writer does
+     * not write anything, nothing is sent.
+     * <p>
+     * This is meant for state that changes very frequently, such as each
+     * step, where only the latest state needs to be sent. Modules would
+     * typically remember whether they already queued a writer, and only
+     * queue another one after it was called. Note that a writer may not be
+     * called if it is replaced by data of the same type queued after it.
+     * <p>
+     * Since such data may be large in total, it is only sent at full rate to
+     * players currently watching the module up close. Other players receive
+     * it at a lower rate, for which the writer may be called again.
+     * <p>
+     * The default implementation calls the writer immediately, and sends the
+     * written data via {@link #sendData(Face, ByteBuf, byte)}.
+     *
+     * @param face   the face the module is installed in.
+     * @param writer the writer serializing the data to send.
+     * @param type   the type of the data being sent.
+     */
+    default void sendData(final Face face, final Consumer<ByteBuf> writer, final byte type) {
+        final ByteBuf data = allocateData();
+        writer.accept(data);
+        if (data.readableBytes() > 0) {
+            sendData(face, data, type);
+        } else {
+            data.release();
+        }
+    }
 }
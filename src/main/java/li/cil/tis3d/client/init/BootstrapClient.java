@@ -9,6 +9,8 @@ import li.cil.tis3d.client.manual.provider.BlockImageProvider;
 import li.cil.tis3d.client.manual.provider.ItemImageProvider;
 import li.cil.tis3d.client.manual.provider.TagImageProvider;
 import li.cil.tis3d.client.manual.provider.TextureImageProvider;
+import li.cil.tis3d.client.network.CasingInterestTracker;
+import li.cil.tis3d.client.network.ClientSettingsReporter;
 import li.cil.tis3d.client.render.block.entity.CasingBlockEntityRenderer;
 import li.cil.tis3d.client.render.block.entity.ControllerBlockEntityRenderer;
 import li.cil.tis3d.client.render.entity.InvisibleEntityRenderer;
@@ -58,6 +60,8 @@ public final class BootstrapClient implements ClientModInitializer {
         // Register event handlers.
         ClientTickCallback.EVENT.register(client -> DisplayModule.LeakDetector.tick());
         ClientTickCallback.EVENT.register(client -> Network.INSTANCE.clientTick());
+        ClientTickCallback.EVENT.register(client -> CasingInterestTracker.clientTick());
+        ClientTickCallback.EVENT.register(client -> ClientSettingsReporter.clientTick());
         ClientSpriteRegistryCallback.event(SpriteAtlasTexture.BLOCK_ATLAS_TEX).register((spriteAtlasTexture, registry) -> Textures.registerSprites(registry));
         ClientPickBlockGatherCallback.EVENT.register(BootstrapClient::handlePickBlock);
 
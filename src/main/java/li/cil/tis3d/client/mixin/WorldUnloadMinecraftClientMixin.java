@@ -2,6 +2,7 @@ package li.cil.tis3d.client.mixin;
 
 import li.cil.tis3d.common.block.entity.CasingBlockEntity;
 import li.cil.tis3d.common.machine.CasingImpl;
+import li.cil.tis3d.common.network.ModuleDataBaselines;
 import net.minecraft.block.entity.BlockEntity;
 import net.minecraft.client.MinecraftClient;
 import net.minecraft.client.gui.screen.Screen;
@@ -20,11 +21,13 @@ public abstract class WorldUnloadMinecraftClientMixin {
     @Inject(method = "joinWorld", at = @At("HEAD"))
     private void onBeforeJoinWorld(final ClientWorld newWorld, final CallbackInfo ci) {
         tis3d_tryDisposeCasingBlockEntities();
+        ModuleDataBaselines.resetClientBaselines();
     }
 
     @Inject(method = "disconnect(Lnet/minecraft/client/gui/screen/Screen;)V", at = @At("HEAD"))
     private void onBeforeDisconnect(final Screen screen, final CallbackInfo ci) {
         tis3d_tryDisposeCasingBlockEntities();
+        ModuleDataBaselines.resetClientBaselines();
     }
 
     private void tis3d_tryDisposeCasingBlockEntities() {
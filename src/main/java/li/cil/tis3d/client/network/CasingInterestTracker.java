@@ -0,0 +1,92 @@
+package li.cil.tis3d.client.network;
+
+import it.unimi.dsi.fastutil.longs.Long2ByteMap;
+import it.unimi.dsi.fastutil.longs.Long2ByteOpenHashMap;
+import li.cil.tis3d.api.machine.Face;
+import li.cil.tis3d.common.network.Network;
+import li.cil.tis3d.common.network.message.CasingInterestMessage;
+import net.fabricmc.api.EnvType;
+import net.fabricmc.api.Environment;
+import net.minecraft.client.MinecraftClient;
+import net.minecraft.util.math.BlockPos;
+
+/**
+ * Collects the casing faces rendered in detail, and reports them to the
+ * server, so that it sends high rate module data for these faces, see
+ * {@link li.cil.tis3d.common.network.CasingInterests}.
+ */
+@Environment(EnvType.CLIENT)
+public final class CasingInterestTracker {
+    /**
+     * Squared distance up to which modules render their state in detail.
+     */
+    public static final int DETAIL_RANGE_SQ = 8 * 8;
+
+    /**
+     * Number of ticks rendered faces are collected for before they are
+     * compared to the ones last reported.
+     */
+    private static final int UPDATE_INTERVAL = 5;
+
+    /**
+     * Number of ticks after which the watched faces are reported again,
+     * even if they did not change.
+     */
+    private static final int REFRESH_INTERVAL = 100;
+
+    private static final Long2ByteMap watched = new Long2ByteOpenHashMap();
+    private static final Long2ByteMap reported = new Long2ByteOpenHashMap();
+    private static int ticksSinceUpdate;
+    private static int ticksSinceReport;
+
+    // --------------------------------------------------------------------- //
+
+    /**
+     * Called when a face of a casing with a module is rendered within
+     * {@link #DETAIL_RANGE_SQ}.
+     *
+     * @param position the position of the casing.
+     * @param face     the rendered face.
+     */
+    public static void onFaceRendered(final BlockPos position, final Face face) {
+        final long key = position.asLong();
+        watched.put(key, (byte)(watched.get(key) | (1 << face.ordinal())));
+    }
+
+    public static void clientTick() {
+        if (++ticksSinceUpdate < UPDATE_INTERVAL) {
+            return;
+        }
+        ticksSinceUpdate = 0;
+        ticksSinceReport += UPDATE_INTERVAL;
+
+        if (!watched.equals(reported) || (!watched.isEmpty() && ticksSinceReport >= REFRESH_INTERVAL)) {
+            if (MinecraftClient.getInstance().getNetworkHandler() != null) {
+                final int count = Math.min(watched.size(), CasingInterestMessage.MAX_CASINGS);
+                final long[] positions = new long[count];
+                final byte[] faceMasks = new byte[count];
+                int index = 0;
+                for (final Long2ByteMap.Entry entry : watched.long2ByteEntrySet()) {
+                    if (index >= count) {
+                        break;
+                    }
+                    positions[index] = entry.getLongKey();
+                    faceMasks[index] = entry.getByteValue();
+                    index++;
+                }
+                Network.INSTANCE.sendToServer(new CasingInterestMessage(positions, faceMasks));
+            }
+
+            ticksSinceReport = 0;
+            reported.clear();
+            reported.putAll(watched);
+        }
+
+        watched.clear();
+    }
+
+    // --------------------------------------------------------------------- //
+
+    private CasingInterestTracker() {
+    }
+}
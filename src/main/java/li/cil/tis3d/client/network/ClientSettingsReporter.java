@@ -0,0 +1,41 @@
+package li.cil.tis3d.client.network;
+
+import li.cil.tis3d.common.Settings;
+import li.cil.tis3d.common.network.Network;
+import li.cil.tis3d.common.network.message.ClientSettingsMessage;
+import net.fabricmc.api.EnvType;
+import net.fabricmc.api.Environment;
+import net.minecraft.client.MinecraftClient;
+import net.minecraft.client.network.ClientPlayNetworkHandler;
+
+import javax.annotation.Nullable;
+
+/**
+ * Reports the client settings the server respects when sending data to this
+ * client, once for each connection.
+ */
+@Environment(EnvType.CLIENT)
+public final class ClientSettingsReporter {
+    /**
+     * The connection the settings were last reported on.
+     */
+    @Nullable
+    private static ClientPlayNetworkHandler reportedHandler;
+
+    // --------------------------------------------------------------------- //
+
+    public static void clientTick() {
+        final ClientPlayNetworkHandler handler = MinecraftClient.getInstance().getNetworkHandler();
+        if (handler != reportedHandler) {
+            reportedHandler = handler;
+            if (handler != null) {
+                Network.INSTANCE.sendToServer(new ClientSettingsMessage(Settings.showPipeParticles));
+            }
+        }
+    }
+
+    // --------------------------------------------------------------------- //
+
+    private ClientSettingsReporter() {
+    }
+}
@@ -0,0 +1,52 @@
+package li.cil.tis3d.client.network.handler;
+
+import li.cil.tis3d.common.block.entity.CasingBlockEntity;
+import li.cil.tis3d.common.network.ModuleDataBaselines;
+import li.cil.tis3d.common.network.handler.AbstractMessageHandlerWithDimension;
+import li.cil.tis3d.common.network.handler.CasingDataMessageHandler;
+import li.cil.tis3d.common.network.message.CasingDataBatchMessage;
+import li.cil.tis3d.util.WorldUtils;
+import net.fabricmc.api.EnvType;
+import net.fabricmc.api.Environment;
+import net.fabricmc.fabric.api.network.PacketContext;
+import net.minecraft.block.entity.BlockEntity;
+import net.minecraft.util.PacketByteBuf;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.world.World;
+
+import javax.annotation.Nullable;
+
+@Environment(EnvType.CLIENT)
+public final class CasingDataBatchMessageHandler extends AbstractMessageHandlerWithDimension<CasingDataBatchMessage> {
+    @Override
+    protected void onMessageSynchronized(final CasingDataBatchMessage message, final PacketContext context) {
+        final World world = getWorld(message, context);
+        if (message.isResettingBaselines()) {
+            ModuleDataBaselines.resetClientBaselines();
+        }
+        final ModuleDataBaselines baselines = ModuleDataBaselines.getClientBaselines();
+        final PacketByteBuf data = new PacketByteBuf(message.getData());
+        while (data.readableBytes() > 0) {
+            final long position = data.readLong();
+            final PacketByteBuf casingData = new PacketByteBuf(data.readSlice(data.readVarInt()));
+            CasingDataMessageHandler.readCasingData(getCasing(world, position), position, casingData, baselines);
+        }
+    }
+
+    // --------------------------------------------------------------------- //
+
+    @Nullable
+    private static CasingBlockEntity getCasing(@Nullable final World world, final long position) {
+        if (world == null) {
+            return null;
+        }
+
+        final BlockPos pos = BlockPos.fromLong(position);
+        if (!WorldUtils.isBlockLoaded(world, pos)) {
+            return null;
+        }
+
+        final BlockEntity blockEntity = world.getBlockEntity(pos);
+        return blockEntity instanceof CasingBlockEntity ? (CasingBlockEntity)blockEntity : null;
+    }
+}
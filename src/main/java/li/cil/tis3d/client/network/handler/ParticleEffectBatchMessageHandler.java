@@ -0,0 +1,37 @@
+package li.cil.tis3d.client.network.handler;
+
+import li.cil.tis3d.common.Settings;
+import li.cil.tis3d.common.network.handler.AbstractMessageHandlerWithDimension;
+import li.cil.tis3d.common.network.message.ParticleEffectBatchMessage;
+import net.fabricmc.api.EnvType;
+import net.fabricmc.api.Environment;
+import net.fabricmc.fabric.api.network.PacketContext;
+import net.minecraft.particle.DustParticleEffect;
+import net.minecraft.util.PacketByteBuf;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.world.World;
+
+@Environment(EnvType.CLIENT)
+public final class ParticleEffectBatchMessageHandler extends AbstractMessageHandlerWithDimension<ParticleEffectBatchMessage> {
+    @Override
+    protected void onMessageSynchronized(final ParticleEffectBatchMessage message, final PacketContext context) {
+        final World world = getWorld(message, context);
+        if (world == null || !Settings.showPipeParticles) {
+            return;
+        }
+
+        final PacketByteBuf data = new PacketByteBuf(message.getData());
+        while (data.readableBytes() > 0) {
+            final BlockPos section = BlockPos.fromLong(data.readLong());
+            final int count = data.readVarInt();
+            for (int i = 0; i < count; i++) {
+                // Offsets are in sixteenths of a block, place the particle
+                // in the middle of that range.
+                final double x = (section.getX() << 4) + (data.readUnsignedByte() + 0.5) / 16.0;
+                final double y = (section.getY() << 4) + (data.readUnsignedByte() + 0.5) / 16.0;
+                final double z = (section.getZ() << 4) + (data.readUnsignedByte() + 0.5) / 16.0;
+                world.addParticle(DustParticleEffect.RED, x, y, z, 0, 0, 0);
+            }
+        }
+    }
+}
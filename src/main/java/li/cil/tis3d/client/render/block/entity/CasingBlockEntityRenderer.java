@@ -6,6 +6,7 @@ import li.cil.tis3d.api.module.Module;
 import li.cil.tis3d.api.util.RenderUtil;
 import li.cil.tis3d.api.util.TransformUtil;
 import li.cil.tis3d.client.init.Textures;
+import li.cil.tis3d.client.network.CasingInterestTracker;
 import li.cil.tis3d.common.TIS3D;
 import li.cil.tis3d.common.block.entity.CasingBlockEntity;
 import li.cil.tis3d.common.init.Items;
@@ -51,12 +52,19 @@ public final class CasingBlockEntityRenderer extends BlockEntityRenderer<CasingB
         matrices.push();
         matrices.translate(0.5, 0.5, 0.5);
 
+        // Let the server know which modules we show in detail, so it sends us their state.
+        final boolean isInDetailRange = isObserverInDetailRange(casing);
+
         // Render all modules, adjust GL state to allow easily rendering an overlay in (0, 0, 0) to (1, 1, 0).
         for (final Face face : Face.VALUES) {
             if (isBackFace(casing.getPos(), face)) {
                 continue;
             }
 
+            if (isInDetailRange && casing.getModule(face) != null) {
+                CasingInterestTracker.onFaceRendered(casing.getPos(), face);
+            }
+
             matrices.push();
             setupMatrix(face, matrices);
 
@@ -225,6 +233,10 @@ public final class CasingBlockEntityRenderer extends BlockEntityRenderer<CasingB
         }
     }
 
+    private boolean isObserverInDetailRange(final CasingBlockEntity casing) {
+        return dispatcher.camera.getBlockPos().getSquaredDistance(casing.getPos()) < CasingInterestTracker.DETAIL_RANGE_SQ;
+    }
+
     private boolean isObserverKindaClose(final CasingBlockEntity casing) {
         return dispatcher.camera.getBlockPos().getSquaredDistance(casing.getPos()) < 16 * 16;
     }
@@ -13,22 +13,61 @@ import java.util.Set;
  */
 public final class Settings {
     /**
-     * The maximum number of packets to allow sending per tick before
+     * The maximum number of packets to allow clients sending per tick before
      * throttling kicks in, killing duplicate data packets.
      */
     public static int maxPacketsPerTick = 10;
 
     /**
-     * The maximum number of particle effects to allow sending per tick
-     * before throttling kicks in, killing duplicate effects.
+     * The number of bytes of module data the server may send to each player
+     * per tick. Data exceeding this is sent in later ticks, by priority.
+     */
+    public static int maxBytesPerPlayerTick = 8192;
+
+    /**
+     * The maximum number of particle effects to send per chunk section per
+     * tick. Further effects in the same section are dropped.
      */
     public static int maxParticlesPerTick = 5;
 
+    /**
+     * Whether to show particle effects of data transfer. Reported to the
+     * server, which stops sending them to clients not showing them.
+     */
+    public static boolean showPipeParticles = true;
+
     /**
      * The maximum number of casings that may be connected to a controller.
      */
     public static int maxCasingsPerController = 8;
 
+    /**
+     * The maximum number of steps a controller may perform per tick when
+     * powered at full strength. Steps beyond the five steps reached at full
+     * power are only performed while within {@link #stepTimeBudget}.
+     */
+    public static int maxStepsPerTick = 5;
+
+    /**
+     * The time in nanoseconds a controller may spend stepping per tick before
+     * additional steps allowed by {@link #maxStepsPerTick} are carried over
+     * to the next tick.
+     */
+    public static int stepTimeBudget = 500000;
+
+    /**
+     * The time in nanoseconds all controllers together may spend stepping
+     * per server tick before further steps are deferred to the next tick.
+     * Zero disables the limit.
+     */
+    public static int controllerTickBudget = 0;
+
+    /**
+     * Whether to step controllers whose modules allow it concurrently on
+     * multiple threads instead of one after the other on the server thread.
+     */
+    public static boolean concurrentControllerStepping = false;
+
     /**
      * The maximum number of lines a program may have.
      */
@@ -61,17 +100,29 @@ public final class Settings {
 
     private static final String NAME_ANIMATE_TYPING = "module.terminal.animate_typing";
     private static final String NAME_MAX_PACKETS_PER_TICK = "network.max_packets_per_tick";
+    private static final String NAME_MAX_BYTES_PER_PLAYER_TICK = "network.max_bytes_per_player_tick";
     private static final String NAME_MAX_PARTICLES_PER_TICK = "network.max_particles_per_tick";
+    private static final String NAME_SHOW_PIPE_PARTICLES = "network.show_pipe_particles";
     private static final String NAME_MAX_CASINGS_PER_CONTROLLER = "controller.max_casings";
+    private static final String NAME_MAX_STEPS_PER_TICK = "controller.max_steps_per_tick";
+    private static final String NAME_STEP_TIME_BUDGET = "controller.step_time_budget";
+    private static final String NAME_CONTROLLER_TICK_BUDGET = "controller.tick_budget";
+    private static final String NAME_CONCURRENT_CONTROLLER_STEPPING = "controller.concurrent_stepping";
     private static final String NAME_MAX_LINES_PER_PROGRAM = "module.execution.max_lines_per_program";
     private static final String NAME_MAX_COLUMNS_PER_LINE = "module.execution.max_columns_per_line";
     private static final String NAME_MAX_QUEUE_LENGTH = "module.infrared.max_queue_length";
     private static final String NAME_MODULE_ENABLED_PATTERN = "module.%s.enabled";
 
     private static final String COMMENT_ANIMATE_TYPING = "Whether to swing the player's arm while typing on a terminal module.";
-    private static final String COMMENT_MAX_PACKETS_PER_TICK = "The maximum number of status packets modules may send per tick. When this is exceeded, throttling kicks in.";
-    private static final String COMMENT_MAX_PARTICLES_PER_TICK = "The maximum number of particle effects data transfer may trigger per tick. When this is exceeded, throttling kicks in.";
+    private static final String COMMENT_MAX_PACKETS_PER_TICK = "The maximum number of status packets modules on a client may send per tick. When this is exceeded, throttling kicks in.";
+    private static final String COMMENT_MAX_BYTES_PER_PLAYER_TICK = "The number of bytes of module data the server may send to each player per tick. When this is exceeded, the newest state of remaining modules is sent in later ticks, prioritizing modules the player is looking at.";
+    private static final String COMMENT_MAX_PARTICLES_PER_TICK = "The maximum number of particle effects data transfer may trigger per chunk section per tick. When this is exceeded, further effects are dropped.";
+    private static final String COMMENT_SHOW_PIPE_PARTICLES = "Whether to show particle effects when modules transfer data. When disabled, servers stop sending these effects to this client.";
     private static final String COMMENT_MAX_CASINGS_PER_CONTROLLER = "The maximum number of casings a single controller supports.";
+    private static final String COMMENT_MAX_STEPS_PER_TICK = "The maximum number of steps a controller powered at full strength performs per tick. Steps beyond the fifth are only performed while within the step time budget.";
+    private static final String COMMENT_STEP_TIME_BUDGET = "The time in nanoseconds a controller may spend stepping per tick before remaining steps above five are carried over to the next tick.";
+    private static final String COMMENT_CONTROLLER_TICK_BUDGET = "The time in nanoseconds all controllers together may spend stepping per tick. When this is exceeded, remaining controllers defer their steps to later ticks, taking turns. Zero means no limit.";
+    private static final String COMMENT_CONCURRENT_CONTROLLER_STEPPING = "Whether to step controllers on multiple threads. Only applies to controllers with nothing but execution, memory, stack, queue, display, timer, redstone, audio and infrared modules.";
     private static final String COMMENT_MAX_LINES_PER_PROGRAM = "The maximum number of lines an ASM program for an execution node may have.";
     private static final String COMMENT_MAX_COLUMNS_PER_LINE = "The maximum number of columns per line of an ASM program for an execution node may have.";
     private static final String COMMENT_MAX_QUEUE_LENGTH = "The maximum number of infrared packets that can be stored in the receiver's buffer.";
@@ -85,8 +136,14 @@ public final class Settings {
 
 
         maxPacketsPerTick = config.getInt(NAME_MAX_PACKETS_PER_TICK, maxPacketsPerTick, 1, 500, COMMENT_MAX_PACKETS_PER_TICK);
+        maxBytesPerPlayerTick = config.getInt(NAME_MAX_BYTES_PER_PLAYER_TICK, maxBytesPerPlayerTick, 256, 1048576, COMMENT_MAX_BYTES_PER_PLAYER_TICK);
         maxParticlesPerTick = config.getInt(NAME_MAX_PARTICLES_PER_TICK, maxParticlesPerTick, 1, 500, COMMENT_MAX_PARTICLES_PER_TICK);
+        showPipeParticles = config.getBoolean(NAME_SHOW_PIPE_PARTICLES, showPipeParticles, COMMENT_SHOW_PIPE_PARTICLES);
         maxCasingsPerController = config.getInt(NAME_MAX_CASINGS_PER_CONTROLLER, maxCasingsPerController, 1, 512, COMMENT_MAX_CASINGS_PER_CONTROLLER);
+        maxStepsPerTick = config.getInt(NAME_MAX_STEPS_PER_TICK, maxStepsPerTick, 5, 10000, COMMENT_MAX_STEPS_PER_TICK);
+        stepTimeBudget = config.getInt(NAME_STEP_TIME_BUDGET, stepTimeBudget, 10000, 50000000, COMMENT_STEP_TIME_BUDGET);
+        controllerTickBudget = config.getInt(NAME_CONTROLLER_TICK_BUDGET, controllerTickBudget, 0, 50000000, COMMENT_CONTROLLER_TICK_BUDGET);
+        concurrentControllerStepping = config.getBoolean(NAME_CONCURRENT_CONTROLLER_STEPPING, concurrentControllerStepping, COMMENT_CONCURRENT_CONTROLLER_STEPPING);
         maxLinesPerProgram = config.getInt(NAME_MAX_LINES_PER_PROGRAM, maxLinesPerProgram, 1, 200, COMMENT_MAX_LINES_PER_PROGRAM);
         maxColumnsPerLine = config.getInt(NAME_MAX_COLUMNS_PER_LINE, maxColumnsPerLine, 1, 80, COMMENT_MAX_COLUMNS_PER_LINE);
         maxInfraredQueueLength = config.getInt(NAME_MAX_QUEUE_LENGTH, maxInfraredQueueLength, 1, 64, COMMENT_MAX_QUEUE_LENGTH);
@@ -5,6 +5,7 @@ import li.cil.tis3d.api.machine.Pipe;
 import li.cil.tis3d.api.machine.Port;
 import li.cil.tis3d.common.machine.PipeHost;
 import li.cil.tis3d.common.machine.PipeImpl;
+import li.cil.tis3d.common.machine.PipeTable;
 import li.cil.tis3d.util.NBTIds;
 import li.cil.tis3d.util.WorldUtils;
 import net.fabricmc.fabric.api.block.entity.BlockEntityClientSerializable;
@@ -24,57 +25,23 @@ public abstract class AbstractComputerBlockEntity extends BlockEntity implements
     // Persisted data.
 
     /**
-     * The flat list of all {@link Pipe}s on this casing.
-     * <p>
-     * Indexed by face and port using {@link #pack(Face, Port)}.
+     * The {@link Pipe}s of this part and where they are routed to.
      */
-    private final PipeImpl[] pipes = new PipeImpl[Face.VALUES.length * Port.VALUES.length];
+    private final PipeTable pipeTable = new PipeTable(this);
 
     // --------------------------------------------------------------------- //
     // Computed data.
 
-    // Mapping for faces and ports around edges, i.e. to get the other side
-    // of an edge specified by a face and port.
-    private static final Face[][] FACE_MAPPING;
-    private static final Port[][] PORT_MAPPING;
-
-    static {
-        FACE_MAPPING = new Face[][]{
-            {Face.X_POS, Face.X_NEG, Face.Z_NEG, Face.Z_POS}, // Y_NEG
-            {Face.X_POS, Face.X_NEG, Face.Z_POS, Face.Z_NEG}, // Y_POS
-            {Face.X_POS, Face.X_NEG, Face.Y_POS, Face.Y_NEG}, // Z_NEG
-            {Face.X_NEG, Face.X_POS, Face.Y_POS, Face.Y_NEG}, // Z_POS
-            {Face.Z_NEG, Face.Z_POS, Face.Y_POS, Face.Y_NEG}, // X_NEG
-            {Face.Z_POS, Face.Z_NEG, Face.Y_POS, Face.Y_NEG}  // X_POS
-            //    LEFT        RIGHT       UP          DOWN
-        };
-        PORT_MAPPING = new Port[][]{
-            {Port.DOWN, Port.DOWN, Port.DOWN, Port.DOWN},     // Y_NEG
-            {Port.UP, Port.UP, Port.UP, Port.UP},             // Y_POS
-            {Port.RIGHT, Port.LEFT, Port.DOWN, Port.UP},      // Z_NEG
-            {Port.RIGHT, Port.LEFT, Port.UP, Port.DOWN},      // Z_POS
-            {Port.RIGHT, Port.LEFT, Port.RIGHT, Port.RIGHT},  // X_NEG
-            {Port.RIGHT, Port.LEFT, Port.LEFT, Port.LEFT}     // X_POS
-            //    LEFT        RIGHT       UP          DOWN
-        };
-    }
-
     // NBT tag names.
     private static final String TAG_PIPES = "pipes";
+    private static final String TAG_PIPE_STATES = "pipeStates";
 
     private final AbstractComputerBlockEntity[] neighbors = new AbstractComputerBlockEntity[Face.VALUES.length];
-    private final PipeImpl[] pipeOverride = new PipeImpl[pipes.length];
 
     // --------------------------------------------------------------------- //
 
     AbstractComputerBlockEntity(final BlockEntityType type) {
         super(type);
-        for (final Face face : Face.VALUES) {
-            for (final Port port : Port.VALUES) {
-                final int pipeIndex = pack(face, port);
-                pipeOverride[pipeIndex] = pipes[pipeIndex] = new PipeImpl(this, face, mapFace(face, port), mapPort(face, port));
-            }
-        }
     }
 
     /**
@@ -85,15 +52,13 @@ public abstract class AbstractComputerBlockEntity extends BlockEntity implements
     }
 
     /**
-     * Advances the logic of all pipes by calling {@link PipeImpl#step()} on them.
-     * <p>
-     * This will advance pipes with both an active read and write operation to
-     * transferring mode, if they're not already in transferring mode.
+     * Get the pipes of this computer part and their routing, for stepping
+     * and rebuilding the routes.
+     *
+     * @return the pipe table of this part.
      */
-    void stepPipes() {
-        for (final PipeImpl pipe : pipes) {
-            pipe.step();
-        }
+    PipeTable getPipeTable() {
+        return pipeTable;
     }
 
     /**
@@ -102,7 +67,7 @@ public abstract class AbstractComputerBlockEntity extends BlockEntity implements
      * @return the list of pipes.
      */
     public Pipe[] getPipes() {
-        return pipes;
+        return pipeTable.getPipes();
     }
 
     /**
@@ -114,7 +79,7 @@ public abstract class AbstractComputerBlockEntity extends BlockEntity implements
      * @see li.cil.tis3d.api.machine.Casing#getReceivingPipe(Face, Port)
      */
     public Pipe getReceivingPipe(final Face face, final Port port) {
-        return pipeOverride[pack(face, port)];
+        return pipeTable.getReceivingPipe(face, port);
     }
 
     /**
@@ -126,7 +91,7 @@ public abstract class AbstractComputerBlockEntity extends BlockEntity implements
      * @see li.cil.tis3d.api.machine.Casing#getSendingPipe(Face, Port)
      */
     public Pipe getSendingPipe(final Face face, final Port port) {
-        return pipeOverride[packMapped(face, port)];
+        return pipeTable.getSendingPipe(face, port);
     }
 
     // --------------------------------------------------------------------- //
@@ -142,6 +107,11 @@ public abstract class AbstractComputerBlockEntity extends BlockEntity implements
         return Objects.requireNonNull(getPos());
     }
 
+    @Override
+    public void onPipeActiveChanged(final int index, final boolean isActive) {
+        pipeTable.setPipeActive(index, isActive);
+    }
+
     // --------------------------------------------------------------------- //
     // BlockEntity
 
@@ -194,35 +164,47 @@ public abstract class AbstractComputerBlockEntity extends BlockEntity implements
         }
     }
 
-    protected abstract void scheduleScan();
+    /**
+     * Called when the neighbor on one of the faces of this part changed, so
+     * that the multi-block this part belongs to can be updated.
+     *
+     * @param oldNeighbor the previous neighbor on the face, if any.
+     * @param neighbor    the new neighbor on the face, if any.
+     */
+    protected abstract void onNeighborChanged(@Nullable final AbstractComputerBlockEntity oldNeighbor, @Nullable final AbstractComputerBlockEntity neighbor);
 
     protected void setNeighbor(final Face face, @Nullable final AbstractComputerBlockEntity neighbor) {
-        // If a neighbor changed, do a rescan in the controller.
+        // If a neighbor changed, update the multi-block in the controller.
         final AbstractComputerBlockEntity oldNeighbor = neighbors[face.ordinal()];
         if (neighbor != oldNeighbor) {
             neighbors[face.ordinal()] = neighbor;
-            scheduleScan();
+            pipeTable.setNeighbor(face, neighbor != null ? neighbor.pipeTable : null);
+            onNeighborChanged(oldNeighbor, neighbor);
         }
     }
 
     protected void readFromNBTForServer(final CompoundTag nbt) {
-        final ListTag pipesNbt = nbt.getList(TAG_PIPES, NBTIds.TAG_COMPOUND);
-        final int pipeCount = Math.min(pipesNbt.size(), pipes.length);
-        for (int i = 0; i < pipeCount; i++) {
-            pipes[i].readFromNBT(pipesNbt.getCompound(i));
+        final PipeImpl[] pipes = pipeTable.getPipes();
+        if (nbt.contains(TAG_PIPE_STATES, NBTIds.TAG_INT_ARRAY)) {
+            final int[] pipeStatesNbt = nbt.getIntArray(TAG_PIPE_STATES);
+            final int pipeCount = Math.min(pipeStatesNbt.length, pipes.length);
+            for (int i = 0; i < pipeCount; i++) {
+                pipes[i].setPackedState(pipeStatesNbt[i]);
+            }
+        } else {
+            // Backwards compatibility.
+            final ListTag pipesNbt = nbt.getList(TAG_PIPES, NBTIds.TAG_COMPOUND);
+            final int pipeCount = Math.min(pipesNbt.size(), pipes.length);
+            for (int i = 0; i < pipeCount; i++) {
+                pipes[i].readFromNBT(pipesNbt.getCompound(i));
+            }
         }
 
         readFromNBTCommon(nbt);
     }
 
     protected void writeToNBTForServer(final CompoundTag nbt) {
-        final ListTag pipesNbt = new ListTag();
-        for (final PipeImpl pipe : pipes) {
-            final CompoundTag portNbt = new CompoundTag();
-            pipe.writeToNBT(portNbt);
-            pipesNbt.add(portNbt);
-        }
-        nbt.put(TAG_PIPES, pipesNbt);
+        nbt.putIntArray(TAG_PIPE_STATES, pipeTable.copyStates());
 
         writeToNBTCommon(nbt);
     }
@@ -246,131 +228,19 @@ public abstract class AbstractComputerBlockEntity extends BlockEntity implements
         return neighbors[face.ordinal()] != null;
     }
 
-    void rebuildOverrides() {
-        // Reset to initial state before checking for inter-block connections.
-        System.arraycopy(pipes, 0, pipeOverride, 0, pipes.length);
-
-        // Check each open face's neighbors, if they're in front of another
-        // computer block, start connecting the pipe to where that leads us.
-        for (final Face face : Face.VALUES) {
-            if (neighbors[face.ordinal()] != null) {
-                continue;
-            }
-
-            for (final Port port : Port.VALUES) {
-                final Face otherFace = mapFace(face, port);
-                final Port otherPort = mapPort(face, port);
-
-                final AbstractComputerBlockEntity neighbor = neighbors[otherFace.ordinal()];
-                if (neighbor != null) {
-                    final Face neighborFace = otherFace.getOpposite();
-                    final Port neighborPort = flipSide(otherFace, otherPort);
-                    neighbor.computePipeOverrides(neighborFace, neighborPort, this, face, port);
-                }
-            }
-        }
+    @Nullable
+    AbstractComputerBlockEntity getNeighbor(final Face face) {
+        return neighbors[face.ordinal()];
     }
 
-    // --------------------------------------------------------------------- //
-
     /**
-     * Get the the face on the other side of an edge.
+     * Recompute the routes of the pipes on open faces of this part, then
+     * apply those that differ from the current ones.
      *
-     * @param face the face defining the edge.
-     * @param port the port defining the edge.
-     * @return the face on the other side of the edge.
+     * @return a bit mask of the faces, by ordinal, whose modules read from
+     * or write to a pipe that was rerouted.
      */
-    private static Face mapFace(final Face face, final Port port) {
-        return FACE_MAPPING[face.ordinal()][port.ordinal()];
-    }
-
-    /**
-     * Get the the port on the other side of an edge, relative to the face on
-     * the other side of the edge.
-     *
-     * @param face the face defining the edge.
-     * @param port the port defining the edge.
-     * @return the port on the other side of the edge.
-     */
-    private static Port mapPort(final Face face, final Port port) {
-        return PORT_MAPPING[face.ordinal()][port.ordinal()];
-    }
-
-    /**
-     * Convert a face-port tuple to a unique number.
-     *
-     * @param face the face to pack into the number.
-     * @param port the port to pack into the number.
-     * @return the compressed representation of the face-port tuple.
-     */
-    private static int pack(final Face face, final Port port) {
-        return face.ordinal() * Port.VALUES.length + port.ordinal();
-    }
-
-    /**
-     * Map a face-port tuple to the face-tuple representing its opposite (i.e.
-     * the face-port tuple defining the same edge but from the other side),
-     * then convert it to a unique number.
-     *
-     * @param face the face defining the edge to the face to pack.
-     * @param port the port defining the edge to the port to pack.
-     * @return the compressed representation of the mapped face-port tuple.
-     */
-    private static int packMapped(final Face face, final Port port) {
-        return mapFace(face, port).ordinal() * Port.VALUES.length + mapPort(face, port).ordinal();
-    }
-
-    /**
-     * Get the port opposite to the specified port in a casing opposite to the
-     * the specified facing. Used when connecting across multiple casings.
-     *
-     * @param face the face opposite to which to get the port for.
-     * @param port the port opposite to which to get the port for.
-     * @return the port opposite to the specified port on the specified face.
-     */
-    private static Port flipSide(final Face face, final Port port) {
-        if (face == Face.Y_NEG || face == Face.Y_POS) {
-            return (port == Port.UP || port == Port.DOWN) ? port.getOpposite() : port;
-        } else {
-            return (port == Port.LEFT || port == Port.RIGHT) ? port.getOpposite() : port;
-        }
-    }
-
-    /**
-     * Populates the {@link #pipeOverride} array for the specified computer's
-     * face and port by traversing the computer multi-block until an open face
-     * is found that at face and port connects to. Used to bridge casings so
-     * that we can write values to modules of other casings without latency.
-     *
-     * @param face      the face of <em>this</em> casing to search from.
-     * @param port      the port of <em>this</em> casing to search from.
-     * @param start     the computer we're searching for.
-     * @param startFace the face on the computer we're searching for.
-     * @param startPort the port on the computer we're searching for.
-     */
-    private void computePipeOverrides(final Face face, final Port port, final AbstractComputerBlockEntity start, final Face startFace, final Port startPort) {
-        // Avoid cycles for inner faces of 2x2 structures.
-        if (start == this) {
-            return;
-        }
-
-        final Face otherFace = mapFace(face, port);
-        final Port otherPort = mapPort(face, port);
-
-        final AbstractComputerBlockEntity neighbor = neighbors[otherFace.ordinal()];
-        if (neighbor != null) {
-            // Got a neighbor, continue searching through it. This can continue
-            // only two times before we run into the early exit above.
-            final Face neighborFace = otherFace.getOpposite();
-            final Port neighborPort = flipSide(otherFace, otherPort);
-            neighbor.computePipeOverrides(neighborFace, neighborPort, start, startFace, startPort);
-        } else {
-            // No neighbor, we have an open face. Use as target for the pipe.
-            // override in the original computer. Setting this up in one
-            // direction suffices as this is performed in both directions.
-            final int receivingIndex = pack(startFace, startPort);
-            final int mySendingIndex = packMapped(otherFace, otherPort);
-            start.pipeOverride[receivingIndex] = pipes[mySendingIndex];
-        }
+    int rebuildOverrides() {
+        return pipeTable.rebuildOverrides();
     }
 }
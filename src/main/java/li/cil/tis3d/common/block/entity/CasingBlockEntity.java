@@ -8,20 +8,21 @@ import li.cil.tis3d.api.module.Module;
 import li.cil.tis3d.api.module.traits.BlockChangeAware;
 import li.cil.tis3d.api.module.traits.BundledRedstone;
 import li.cil.tis3d.api.module.traits.Redstone;
-import li.cil.tis3d.common.Settings;
 import li.cil.tis3d.common.integration.redstone.RedstoneIntegration;
 import li.cil.tis3d.common.inventory.CasingInventory;
 import li.cil.tis3d.common.inventory.SidedInventoryProxy;
 import li.cil.tis3d.common.machine.CasingImpl;
 import li.cil.tis3d.common.machine.CasingProxy;
+import li.cil.tis3d.common.machine.DeferredEffects;
+import li.cil.tis3d.common.machine.PipeListener;
 import li.cil.tis3d.common.network.Network;
 import li.cil.tis3d.common.network.message.CasingEnabledStateMessage;
 import li.cil.tis3d.common.network.message.CasingLockedStateMessage;
 import li.cil.tis3d.common.network.message.PipeLockedStateMessage;
 import li.cil.tis3d.util.InventoryUtils;
+import li.cil.tis3d.util.WorldUtils;
 import net.fabricmc.api.EnvType;
 import net.fabricmc.api.Environment;
-import net.minecraft.block.entity.BlockEntity;
 import net.minecraft.block.entity.BlockEntityType;
 import net.minecraft.entity.player.PlayerEntity;
 import net.minecraft.inventory.SidedInventory;
@@ -118,6 +119,9 @@ public final class CasingBlockEntity extends AbstractComputerBlockEntity impleme
             getReceivingPipe(face, port).cancelRead();
             locked[face.ordinal()][port.ordinal()] = value;
             sendReceivingPipeLockedState(face, port);
+
+            // Modules waiting on a locked pipe will not be notified by it.
+            wakeModule(face);
         }
     }
 
@@ -168,11 +172,28 @@ public final class CasingBlockEntity extends AbstractComputerBlockEntity impleme
         } else {
             // If we don't have a controller there either isn't one, or
             // the controller is in an error state. In the latter case we
-            // have ot actively look for a controller and notify it.
-            final ControllerBlockEntity controller = findController();
-            if (controller != null) {
-                controller.scheduleScan();
-            }
+            // have ot actively look for a controller and notify it. This
+            // happens at the end of the tick, together with all other casings
+            // doing so, so that casings of the same multi-block share a search.
+            MultiBlockScan.scheduleFindController(this);
+        }
+    }
+
+    /**
+     * Look for the controller connected to this casing and schedule a scan
+     * in it, unless a controller picked up this casing in the meantime.
+     * Called at the end of the tick for casings that requested a scan while
+     * not having a controller.
+     */
+    void notifyController() {
+        final World world = Objects.requireNonNull(getWorld());
+        if (isRemoved() || getController() != null || !WorldUtils.isBlockLoaded(world, getPos())) {
+            return;
+        }
+
+        final ControllerBlockEntity controller = findController();
+        if (controller != null) {
+            controller.scheduleScan();
         }
     }
 
@@ -244,13 +265,39 @@ public final class CasingBlockEntity extends AbstractComputerBlockEntity impleme
         }
     }
 
-    void stepModules() {
-        casing.stepModules();
-    }
-
     // --------------------------------------------------------------------- //
     // PipeHost
 
+    @Override
+    int rebuildOverrides() {
+        final int changedFaces = super.rebuildOverrides();
+
+        // Modules may be waiting on pipes that are no longer connected to them.
+        for (final Face face : Face.VALUES) {
+            if ((changedFaces & (1 << face.ordinal())) != 0) {
+                wakeModule(face);
+            }
+        }
+
+        return changedFaces;
+    }
+
+    @Override
+    protected void onNeighborChanged(@Nullable final AbstractComputerBlockEntity oldNeighbor, @Nullable final AbstractComputerBlockEntity neighbor) {
+        final World world = Objects.requireNonNull(getWorld());
+        if (world.isClient) {
+            return;
+        }
+
+        // Let our controller update its multi-block in place. Without one,
+        // look for a controller to do a full scan, as in scheduleScan.
+        if (getController() != null) {
+            getController().onNeighborChanged(this, oldNeighbor, neighbor);
+        } else {
+            scheduleScan();
+        }
+    }
+
     @Override
     protected void setNeighbor(final Face face, @Nullable final AbstractComputerBlockEntity neighbor) {
         super.setNeighbor(face, neighbor);
@@ -324,6 +371,18 @@ public final class CasingBlockEntity extends AbstractComputerBlockEntity impleme
     // --------------------------------------------------------------------- //
     // BlockEntity
 
+    @Override
+    public void markDirty() {
+        // Modules mark their casing dirty while being stepped, which may
+        // happen off the server thread, see DeferredEffects.
+        final DeferredEffects effects = DeferredEffects.current();
+        if (effects != null) {
+            effects.markDirty(this);
+        } else {
+            super.markDirty();
+        }
+    }
+
     @Override
     public void markRemoved() {
         super.markRemoved();
@@ -334,6 +393,9 @@ public final class CasingBlockEntity extends AbstractComputerBlockEntity impleme
             onDisabled();
         }
 
+        if (getController() != null) {
+            getController().onCasingRemoved(this);
+        }
         dispose();
     }
 
@@ -349,6 +411,11 @@ public final class CasingBlockEntity extends AbstractComputerBlockEntity impleme
     public void onChunkUnload() {
         super.onChunkUnload();
 
+        // Parts of the multi-block may now be in an unloaded area, which
+        // needs a full scan to detect.
+        if (getController() != null) {
+            getController().scheduleScan();
+        }
         dispose();
     }
 
@@ -466,53 +533,47 @@ public final class CasingBlockEntity extends AbstractComputerBlockEntity impleme
 
     // --------------------------------------------------------------------- //
 
+    /**
+     * Wake the module on the specified face if it is sleeping while waiting
+     * for a pipe to change its state.
+     *
+     * @param face the face of the module to wake.
+     */
+    private void wakeModule(final Face face) {
+        final Module module = getModule(face);
+        if (module instanceof PipeListener) {
+            ((PipeListener)module).onPipeChanged();
+        }
+    }
+
     @Nullable
     private ControllerBlockEntity findController() {
         final World world = Objects.requireNonNull(getWorld());
 
-        // List of processed tile entities to avoid loops.
-        final Set<BlockEntity> processed = new HashSet<>();
-        // List of pending tile entities that still need to be scanned.
-        final Queue<BlockEntity> queue = new ArrayDeque<>();
-
-        // Number of casings we encountered for optional early exit.
-        int casings = 0;
-
-        // Start at our location, keep going until there's nothing left to do.
-        processed.add(this);
-        queue.add(this);
-        while (!queue.isEmpty()) {
-            final BlockEntity blockEntity = queue.remove();
-            if (blockEntity.isRemoved()) {
-                continue;
-            }
-
-            // Check what we have. We only add controllers and casings to this list,
-            // so we can skip the type check in the else branch.
-            if (blockEntity instanceof ControllerBlockEntity) {
-                return (ControllerBlockEntity)blockEntity;
-            } else /* if (blockEntity instanceof CasingBlockEntity) */ {
+        final MultiBlockScan scan = MultiBlockScan.findController(world, this);
+        switch (scan.result) {
+            case CONTROLLER_FOUND:
+                return scan.controller;
+            case COMPLETE:
+                // A controller scan in this tick already reached us.
+                if (scan.controller != null) {
+                    return scan.controller;
+                }
+                // Could not find a controller, disable modules.
+                onDisabled();
+                return null;
+            case TOO_COMPLEX:
                 // We only allow a certain number of casings per multi-block, so
                 // we can early exit if there are too many (because even if we
                 // notified the controller, it'd enter an error state again anyway).
-                if (++casings > Settings.maxCasingsPerController) {
-                    onDisabled();
-                    return null;
-                }
-
-                // Keep looking...
-                if (!ControllerBlockEntity.addNeighbors(world, blockEntity, processed, queue)) {
-                    // Hit end of loaded area, so scheduling would just result in
-                    // error again anyway. Do *not* disable casings, keep last
-                    // known valid state when all parts were loaded.
-                    return null;
-                }
-            }
+                onDisabled();
+                return null;
+            default:
+                // Hit end of loaded area, so scheduling would just result in
+                // error again anyway. Do *not* disable casings, keep last
+                // known valid state when all parts were loaded.
+                return null;
         }
-
-        // Could not find a controller, disable modules.
-        onDisabled();
-        return null;
     }
 
     private void sendState() {
@@ -523,9 +584,6 @@ public final class CasingBlockEntity extends AbstractComputerBlockEntity impleme
     }
 
     private void dispose() {
-        if (getController() != null) {
-            getController().scheduleScan();
-        }
         casing.onDisposed();
     }
 
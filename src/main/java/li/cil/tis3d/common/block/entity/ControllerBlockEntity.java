@@ -1,8 +1,14 @@
 package li.cil.tis3d.common.block.entity;
 
+import it.unimi.dsi.fastutil.objects.ReferenceOpenHashSet;
 import li.cil.tis3d.api.API;
+import li.cil.tis3d.api.machine.Face;
 import li.cil.tis3d.api.machine.HaltAndCatchFireException;
 import li.cil.tis3d.common.Settings;
+import li.cil.tis3d.common.machine.CompiledMachine;
+import li.cil.tis3d.common.machine.DeferredEffects;
+import li.cil.tis3d.common.machine.MachineStepper;
+import li.cil.tis3d.common.machine.PipeTable;
 import li.cil.tis3d.common.network.Network;
 import li.cil.tis3d.common.network.message.HaltAndCatchFireMessage;
 import li.cil.tis3d.util.WorldUtils;
@@ -18,6 +24,7 @@ import net.minecraft.util.math.BlockPos;
 import net.minecraft.util.math.Direction;
 import net.minecraft.world.World;
 
+import javax.annotation.Nullable;
 import java.util.*;
 
 /**
@@ -27,6 +34,11 @@ import java.util.*;
  * itself or by a connected casing. Manages a list of casings and updates
  * the modules in the casing (this is the only ticking part of a multi-block).
  * <p>
+ * Once scanned, changes to the multi-block, i.e. casings being added or
+ * removed, are applied in place, see {@link #updateTopology()}. A full scan
+ * is only done when the structure becomes invalid or may have become
+ * incomplete.
+ * <p>
  * Controllers have no real state. They are active when powered by a redstone
  * signal, and can be reset by right-clicking them.
  */
@@ -41,6 +53,12 @@ public final class ControllerBlockEntity extends AbstractComputerBlockEntity imp
      */
     private static final int COOLDOWN_HCF = 60;
 
+    /**
+     * Number of steps per tick at full redstone power, above which additional
+     * steps are limited by the step time budget.
+     */
+    private static final int MAX_POWER_STEPS = 5;
+
     /**
      * Possible states of a controller.
      */
@@ -107,6 +125,114 @@ public final class ControllerBlockEntity extends AbstractComputerBlockEntity imp
      */
     private final List<CasingBlockEntity> casings = new ArrayList<>(Settings.maxCasingsPerController);
 
+    /**
+     * The pipes of all parts of the multi-block, i.e. of the managed casings
+     * followed by this controller, in the order they are stepped. Rebuilt at
+     * the end of each scan or topology update.
+     */
+    private PipeTable[] pipeTables = EMPTY_PIPE_TABLES;
+
+    /**
+     * The flattened multi-block, holding the registers of all execution
+     * modules and the states of all pipes, stepped in place of the parts.
+     * Rebuilt at the end of each scan or topology update, and lazily after
+     * a module was added to or removed from one of the casings.
+     */
+    private CompiledMachine machine = CompiledMachine.EMPTY;
+
+    /**
+     * Whether {@link #machine} needs to be rebuilt before the next step.
+     */
+    private boolean isMachineDirty = true;
+
+    /**
+     * Number of steps to perform in the current tick, see {@link #stepScheduled(boolean)}.
+     */
+    private int scheduledSteps;
+
+    /**
+     * Number of steps deferred in previous ticks to catch up on in the current
+     * tick while within the step time budget, see {@link #deferredSteps}.
+     */
+    private int scheduledDeferredSteps;
+
+    /**
+     * Number of additional steps to perform in the current tick at full power
+     * while within the step time budget, see {@link Settings#maxStepsPerTick}.
+     */
+    private int scheduledTurboSteps;
+
+    /**
+     * Whether the steps scheduled in the current tick are a forced single
+     * step of a paused controller, see {@link #forceStep()}.
+     */
+    private boolean isForcedStepScheduled;
+
+    /**
+     * Number of steps deferred by the {@link ControllerScheduler} in previous
+     * ticks, performed as additional steps while within the step time budget.
+     */
+    private int deferredSteps;
+
+    /**
+     * Number of turbo steps that did not fit into the step time budget in
+     * previous ticks. Only carried over while running at full power.
+     */
+    private int turboStepDebt;
+
+    /**
+     * Total number of steps deferred by the {@link ControllerScheduler}, for
+     * finding controllers exceeding the tick budget.
+     */
+    private long deferredStepCount;
+
+    /**
+     * Time in nanoseconds the last performed scheduled steps took.
+     */
+    private long lastStepTime;
+
+    /**
+     * The server tick this controller was last stepped in by the {@link ControllerScheduler}.
+     */
+    private long lastSteppedTick;
+
+    /**
+     * Side effects of the modules queued while being stepped, applied once
+     * all steps of a tick have been performed.
+     */
+    private final DeferredEffects deferredEffects = new DeferredEffects();
+
+    /**
+     * Whether a module caught fire while being stepped, handled once all
+     * queued side effects have been applied.
+     */
+    private boolean isHaltAndCatchFirePending;
+
+    /**
+     * Casings found next to parts of the multi-block that are not part of it
+     * yet, added in the next tick.
+     */
+    private final List<CasingBlockEntity> addedCasings = new ArrayList<>();
+
+    /**
+     * Casings of the multi-block that were removed, dropped in the next tick.
+     */
+    private final List<CasingBlockEntity> removedCasings = new ArrayList<>();
+
+    /**
+     * Parts of the multi-block whose neighbors changed. Their pipe overrides
+     * and those of parts near them are rebuilt in the next tick.
+     */
+    private final Set<AbstractComputerBlockEntity> changedParts = new ReferenceOpenHashSet<>();
+
+    /**
+     * Whether the multi-block may have been split into parts no longer
+     * connected to this controller.
+     */
+    private boolean isConnectivityCheckPending;
+
+    private static final PipeTable[] EMPTY_PIPE_TABLES = new PipeTable[0];
+
     /**
      * The current state of the controller.
      */
@@ -155,6 +281,36 @@ public final class ControllerBlockEntity extends AbstractComputerBlockEntity imp
         return state;
     }
 
+    /**
+     * Get the number of steps this controller still has to catch up on,
+     * because they did not fit into the step time budget or were deferred
+     * due to the tick budget.
+     *
+     * @return the current step debt of the controller.
+     */
+    public int getStepDebt() {
+        return deferredSteps + turboStepDebt;
+    }
+
+    /**
+     * Get the total number of steps deferred due to the tick budget since
+     * the controller was loaded.
+     *
+     * @return the number of deferred steps.
+     */
+    public long getDeferredStepCount() {
+        return deferredStepCount;
+    }
+
+    /**
+     * Get the time the controller took for its steps when it was last stepped.
+     *
+     * @return the time in nanoseconds.
+     */
+    public long getLastStepTime() {
+        return lastStepTime;
+    }
+
     /**
      * Schedule a rescan for connected casings.
      * <p>
@@ -164,6 +320,63 @@ public final class ControllerBlockEntity extends AbstractComputerBlockEntity imp
         state = ControllerState.SCANNING;
     }
 
+    /**
+     * Notify the controller that the neighbor of one of the parts of its
+     * multi-block changed, to update the multi-block in the next tick.
+     * <p>
+     * If the multi-block is not in a valid state, this schedules a full scan.
+     *
+     * @param part        the part whose neighbor changed.
+     * @param oldNeighbor the previous neighbor of the part, if any.
+     * @param neighbor    the new neighbor of the part, if any.
+     */
+    void onNeighborChanged(final AbstractComputerBlockEntity part, @Nullable final AbstractComputerBlockEntity oldNeighbor, @Nullable final AbstractComputerBlockEntity neighbor) {
+        if (state != ControllerState.READY && state != ControllerState.RUNNING) {
+            scheduleScan();
+            return;
+        }
+
+        changedParts.add(part);
+
+        if (neighbor instanceof ControllerBlockEntity) {
+            // More than one controller, let the scan put us into error state.
+            if (neighbor != this) {
+                scheduleScan();
+            }
+        } else if (neighbor instanceof CasingBlockEntity && !isPart(neighbor)) {
+            addedCasings.add((CasingBlockEntity)neighbor);
+        }
+
+        // Removed casings are handled when they notify us. Otherwise we lost
+        // a connection between two parts that both still exist.
+        if (oldNeighbor != null && isPart(oldNeighbor) && !oldNeighbor.isRemoved()) {
+            isConnectivityCheckPending = true;
+        }
+    }
+
+    /**
+     * Notify the controller that one of the casings of its multi-block was
+     * removed, to remove it from the multi-block in the next tick.
+     *
+     * @param casing the casing that was removed.
+     */
+    void onCasingRemoved(final CasingBlockEntity casing) {
+        if (state != ControllerState.READY && state != ControllerState.RUNNING) {
+            scheduleScan();
+            return;
+        }
+
+        removedCasings.add(casing);
+    }
+
+    /**
+     * Notify the controller that a module was added to or removed from one
+     * of its casings, so that its machine gets rebuilt.
+     */
+    public void onModulesChanged() {
+        isMachineDirty = true;
+    }
+
     /**
      * If the controller is running, force at least one step in the next tick,
      * even if the controller is currently in the paused state. This will not
@@ -218,6 +431,9 @@ public final class ControllerBlockEntity extends AbstractComputerBlockEntity imp
             casing.setController(null);
         }
         casings.clear();
+        pipeTables = EMPTY_PIPE_TABLES;
+        releaseMachine();
+        clearTopologyChanges();
     }
 
     // --------------------------------------------------------------------- //
@@ -233,6 +449,16 @@ public final class ControllerBlockEntity extends AbstractComputerBlockEntity imp
         }
     }
 
+    @Override
+    protected void onNeighborChanged(@Nullable final AbstractComputerBlockEntity oldNeighbor, @Nullable final AbstractComputerBlockEntity neighbor) {
+        final World world = Objects.requireNonNull(getWorld());
+        if (world.isClient) {
+            return;
+        }
+
+        onNeighborChanged(this, oldNeighbor, neighbor);
+    }
+
     @Override
     protected void readFromNBTForServer(final CompoundTag nbt) {
         super.readFromNBTForServer(nbt);
@@ -310,6 +536,11 @@ public final class ControllerBlockEntity extends AbstractComputerBlockEntity imp
             return;
         }
 
+        // Apply changes to our multi-block structure, if possible in place.
+        if (state != ControllerState.SCANNING && hasTopologyChanges()) {
+            updateTopology();
+        }
+
         // Check if we need to rescan our multi-block structure.
         if (state == ControllerState.SCANNING) {
             scan();
@@ -340,6 +571,12 @@ public final class ControllerBlockEntity extends AbstractComputerBlockEntity imp
             // Ignore forceStep when not paused.
             forceStep = forceStep && power == 1;
 
+            // Turbo steps are only performed at full power, so stop owing them
+            // as soon as power drops.
+            if (power < MAX_POWER_STEPS * 15) {
+                turboStepDebt = 0;
+            }
+
             // Are we powered?
             if (!world.isReceivingRedstonePower(getPos())) {
                 // Nope, fall back to ready state, disable modules.
@@ -349,28 +586,47 @@ public final class ControllerBlockEntity extends AbstractComputerBlockEntity imp
                 // Operating, step all casings redstone input info once.
                 casings.forEach(CasingBlockEntity::stepRedstone);
 
-                try {
-                    // 0 = off, we never have this or we'd be in the READY state.
-                    // 1 = paused, i.e. we don't lose state, but don't step.
-                    // [2-14] = step every 15-n-th step.
-                    // 15 = step every tick.
-                    // [16-75] = step n/15 times a tick.
-                    // 75 = step 5 times a tick.
-                    if (power < 15) {
-                        // Stepping slower than 100%.
-                        final int delay = 15 - power;
-                        if (world.getTime() % delay == 0 || forceStep) {
-                            step();
-                        }
+                // 0 = off, we never have this or we'd be in the READY state.
+                // 1 = paused, i.e. we don't lose state, but don't step.
+                // [2-14] = step every 15-n-th step.
+                // 15 = step every tick.
+                // [16-75] = step n/15 times a tick.
+                // 75 = step 5 times a tick.
+                final int steps;
+                if (power < 15) {
+                    // Stepping slower than 100%.
+                    final int delay = 15 - power;
+                    steps = (world.getTime() % delay == 0 || forceStep) ? 1 : 0;
+                } else {
+                    // Stepping faster than 100%.
+                    steps = power / 15;
+                }
+
+                if (steps > 0) {
+                    scheduledSteps = steps;
+                    isForcedStepScheduled = forceStep;
+                    if (forceStep) {
+                        // Single-stepping a paused controller does exactly one step.
+                        scheduledDeferredSteps = 0;
+                        scheduledTurboSteps = 0;
                     } else {
-                        // Stepping faster than 100%.
-                        final int steps = power / 15;
-                        for (int step = 0; step < steps; step++) {
-                            step();
+                        // Catch up on deferred steps while there's time left in
+                        // the step budget. At full power also keep stepping up to
+                        // the configured maximum number of steps.
+                        scheduledDeferredSteps = deferredSteps;
+                        if (steps >= MAX_POWER_STEPS) {
+                            scheduledTurboSteps = Math.min(turboStepDebt + Math.max(0, Settings.maxStepsPerTick - steps), Settings.maxStepsPerTick);
+                        } else {
+                            scheduledTurboSteps = 0;
                         }
                     }
-                } catch (final HaltAndCatchFireException e) {
-                    haltAndCatchFire();
+
+                    if (ControllerScheduler.shouldSchedule(this)) {
+                        ControllerScheduler.schedule(this);
+                    } else {
+                        stepScheduled(false);
+                        finishScheduledSteps();
+                    }
                 }
             }
 
@@ -381,53 +637,6 @@ public final class ControllerBlockEntity extends AbstractComputerBlockEntity imp
 
     // --------------------------------------------------------------------- //
 
-    /**
-     * Checks all six neighbors of the specified tile entity and adds them to the
-     * queue if they're a controller or casing and haven't been checked yet (or
-     * added to the queue yet).
-     * <p>
-     * This returns a boolean value indicating whether a world border has been
-     * hit. In this case we abort the search and wait, to avoid potentially
-     * partially loaded multi-blocks.
-     * <p>
-     * Note that this is also used in {@link CasingBlockEntity} for the reverse
-     * search when trying to notify a controller.
-     * <p>
-     * <em>Important</em>: we have to pass along a valid world object here
-     * instead of relying on the passed tile entity's world, since we may
-     * have caused tile entity creation in rare cases (e.g. broken saves
-     * where tile entities were not restored during load), which will not have
-     * their world set if this is called from the update loop (where newly
-     * created tile entities are added to a separate list, and will be added
-     * to their chunk and thus get their world set later on).
-     *
-     * @param world       the world we're scanning for tile entities in.
-     * @param blockEntity the tile entity to get the neighbors for.
-     * @param processed   the list of processed tile entities.
-     * @param queue       the list of pending tile entities.
-     * @return <tt>true</tt> if all neighbors could be checked, <tt>false</tt> otherwise.
-     */
-    static boolean addNeighbors(final World world, final BlockEntity blockEntity, final Set<BlockEntity> processed, final Queue<BlockEntity> queue) {
-        for (final Direction facing : Direction.values()) {
-            final BlockPos neighborPos = blockEntity.getPos().offset(facing);
-            if (!WorldUtils.isBlockLoaded(world, neighborPos)) {
-                return false;
-            }
-
-            final BlockEntity neighborBlockEntity = world.getBlockEntity(neighborPos);
-            if (neighborBlockEntity == null) {
-                continue;
-            }
-            if (!processed.add(neighborBlockEntity)) {
-                continue;
-            }
-            if (neighborBlockEntity instanceof ControllerBlockEntity || neighborBlockEntity instanceof CasingBlockEntity) {
-                queue.add(neighborBlockEntity);
-            }
-        }
-        return true;
-    }
-
     /**
      * Do a scan for connected casings starting from this controller.
      * <p>
@@ -437,49 +646,26 @@ public final class ControllerBlockEntity extends AbstractComputerBlockEntity imp
     private void scan() {
         final World world = Objects.requireNonNull(getWorld());
 
-        // List of processed tile entities to avoid loops.
-        final Set<BlockEntity> processed = new HashSet<>();
-        // List of pending tile entities that still need to be scanned.
-        final Queue<BlockEntity> queue = new ArrayDeque<>();
-        // List of new found casings.
-        final List<CasingBlockEntity> newCasings = new ArrayList<>(Settings.maxCasingsPerController);
-
-        // Start at our location, keep going until there's nothing left to do.
-        processed.add(this);
-        queue.add(this);
-        while (!queue.isEmpty()) {
-            final BlockEntity blockEntity = queue.remove();
-
-            // Check what we have. We only add controllers and casings to this list,
-            // so we can skip the type check in the else branch.
-            if (blockEntity instanceof ControllerBlockEntity) {
-                if (blockEntity == this) {
-                    // Special case: first iteration, add the neighbors.
-                    if (!addNeighbors(world, blockEntity, processed, queue)) {
-                        clear(ControllerState.INCOMPLETE);
-                        return;
-                    }
-                } else {
-                    // We require there to be exactly one controller per multi-block.
-                    clear(ControllerState.MULTIPLE_CONTROLLERS);
-                    return;
-                }
-            } else /* if (blockEntity instanceof CasingBlockEntity) */ {
+        final MultiBlockScan scan = MultiBlockScan.scan(world, this);
+        switch (scan.result) {
+            case INCOMPLETE:
+                clear(ControllerState.INCOMPLETE);
+                return;
+            case CONTROLLER_FOUND:
+                // We require there to be exactly one controller per multi-block.
+                clear(ControllerState.MULTIPLE_CONTROLLERS);
+                return;
+            case TOO_COMPLEX:
                 // We only allow a certain number of casings per multi-block.
-                if (newCasings.size() + 1 > Settings.maxCasingsPerController) {
-                    clear(ControllerState.TOO_COMPLEX);
-                    return;
-                }
-
-                // Register as the controller with the casing and add neighbors.
-                final CasingBlockEntity casing = (CasingBlockEntity)blockEntity;
-                newCasings.add(casing);
-                addNeighbors(world, casing, processed, queue);
-            }
+                clear(ControllerState.TOO_COMPLEX);
+                return;
         }
 
+        // List of new found casings.
+        final List<CasingBlockEntity> newCasings = scan.casings;
+
         // Special handling in case we triggered tile entity creation while
-        // scanning (see comment on addNeighbors), re-scan next tick when
+        // scanning (see MultiBlockScan), re-scan next tick when
         // they all have their world object set... but only exit after having
         // touched all of them, to make sure they've been created.
         if (newCasings.stream().anyMatch(c -> !c.hasWorld())) {
@@ -506,13 +692,233 @@ public final class ControllerBlockEntity extends AbstractComputerBlockEntity imp
         casings.forEach(AbstractComputerBlockEntity::rebuildOverrides);
         rebuildOverrides();
 
+        onCasingsChanged();
+
+        // All done. Make sure this comes after the checkNeighbors or we get CMEs!
+        // Changes reported while scanning are covered by the scan.
+        clearTopologyChanges();
+        state = ControllerState.READY;
+    }
+
+    /**
+     * Whether changes to the multi-block were reported since the last scan
+     * or update, see {@link #updateTopology()}.
+     *
+     * @return <tt>true</tt> if there are changes to apply; <tt>false</tt> otherwise.
+     */
+    private boolean hasTopologyChanges() {
+        return !addedCasings.isEmpty() || !removedCasings.isEmpty() || !changedParts.isEmpty() || isConnectivityCheckPending;
+    }
+
+    /**
+     * Apply the changes to the multi-block reported since the last scan or
+     * update without scanning the whole multi-block.
+     * <p>
+     * Added casings are linked individually, only looking at their own
+     * neighbors. Removing a casing connected to more than one other part
+     * may split the multi-block, which is checked by walking the known
+     * neighbors of our parts, without looking up any blocks. Pipe overrides
+     * are only rebuilt for parts close enough to a change to be affected.
+     * <p>
+     * Falls back to a full scan, by setting the state to {@link ControllerState#SCANNING},
+     * when the multi-block becomes invalid or may extend into unloaded areas.
+     */
+    private void updateTopology() {
+        final World world = Objects.requireNonNull(getWorld());
+
+        if (state != ControllerState.READY && state != ControllerState.RUNNING) {
+            clearTopologyChanges();
+            scheduleScan();
+            return;
+        }
+
+        boolean isCasingListDirty = false;
+
+        for (final CasingBlockEntity casing : removedCasings) {
+            if (!casings.remove(casing)) {
+                continue;
+            }
+            isCasingListDirty = true;
+            casing.setController(null);
+
+            // A casing with at most one neighbor in the multi-block cannot have
+            // been holding it together. Refresh the neighbors still pointing
+            // to the casing, in case they have not been notified yet.
+            int connectedParts = 0;
+            for (final Face face : Face.VALUES) {
+                final AbstractComputerBlockEntity neighbor = casing.getNeighbor(face);
+                if (neighbor != null && isPart(neighbor) && !neighbor.isRemoved()) {
+                    connectedParts++;
+                    changedParts.add(neighbor);
+                    neighbor.checkNeighbors();
+                }
+            }
+            if (connectedParts > 1) {
+                isConnectivityCheckPending = true;
+            }
+        }
+
+        // Linking a casing may report further casings connected to it, which
+        // are appended to the list and linked in turn.
+        for (int i = 0; i < addedCasings.size() && state != ControllerState.SCANNING; i++) {
+            final CasingBlockEntity casing = addedCasings.get(i);
+            if (casing.isRemoved() || isPart(casing)) {
+                continue;
+            }
+
+            // Anything that may turn out invalid is left to the full scan:
+            // casings belonging to another controller, casings not set up
+            // yet (see scan), too many casings or unloaded neighbors.
+            if (casing.getController() != null || !casing.hasWorld() ||
+                casings.size() + 1 > Settings.maxCasingsPerController ||
+                !areNeighborsLoaded(world, casing)) {
+                scheduleScan();
+                break;
+            }
+
+            casings.add(casing);
+            isCasingListDirty = true;
+            casing.setController(this);
+            changedParts.add(casing);
+            casing.checkNeighbors();
+
+            if (state == ControllerState.RUNNING) {
+                casing.onEnabled();
+            }
+        }
+
+        if (state == ControllerState.SCANNING) {
+            clearTopologyChanges();
+            return;
+        }
+
+        if (isConnectivityCheckPending) {
+            isCasingListDirty |= removeDisconnectedCasings();
+        }
+
+        rebuildChangedOverrides();
+
+        if (isCasingListDirty) {
+            onCasingsChanged();
+        }
+
+        clearTopologyChanges();
+    }
+
+    /**
+     * Drop all casings that are no longer connected to this controller,
+     * by walking the neighbors of all parts starting at the controller.
+     *
+     * @return <tt>true</tt> if any casings were dropped; <tt>false</tt> otherwise.
+     */
+    private boolean removeDisconnectedCasings() {
+        final Set<AbstractComputerBlockEntity> connected = new ReferenceOpenHashSet<>(casings.size() + 1);
+        final Queue<AbstractComputerBlockEntity> queue = new ArrayDeque<>();
+        connected.add(this);
+        queue.add(this);
+        while (!queue.isEmpty()) {
+            final AbstractComputerBlockEntity part = queue.remove();
+            for (final Face face : Face.VALUES) {
+                final AbstractComputerBlockEntity neighbor = part.getNeighbor(face);
+                if (neighbor != null && isPart(neighbor) && connected.add(neighbor)) {
+                    queue.add(neighbor);
+                }
+            }
+        }
+
+        if (connected.size() == casings.size() + 1) {
+            return false;
+        }
+
+        // Same as handling splits in a scan: release the casings and let
+        // them look for a controller they may still be connected to.
+        final List<CasingBlockEntity> disconnected = new ArrayList<>();
+        for (final CasingBlockEntity casing : casings) {
+            if (!connected.contains(casing)) {
+                disconnected.add(casing);
+            }
+        }
+        casings.removeAll(disconnected);
+        disconnected.forEach(c -> c.setController(null));
+        disconnected.forEach(CasingBlockEntity::scheduleScan);
+        return true;
+    }
+
+    /**
+     * Rebuild the pipe overrides of all parts affected by changed neighbors.
+     * <p>
+     * The overrides of a part are computed by walking at most two parts
+     * away from it, see {@link AbstractComputerBlockEntity#rebuildOverrides()},
+     * so only parts up to two steps away from a changed part are affected.
+     */
+    private void rebuildChangedOverrides() {
+        final Set<AbstractComputerBlockEntity> affected = new ReferenceOpenHashSet<>();
+        for (final AbstractComputerBlockEntity part : changedParts) {
+            if (isPart(part) && !part.isRemoved()) {
+                affected.add(part);
+            }
+        }
+
+        List<AbstractComputerBlockEntity> frontier = new ArrayList<>(affected);
+        for (int distance = 0; distance < 2; distance++) {
+            final List<AbstractComputerBlockEntity> next = new ArrayList<>();
+            for (final AbstractComputerBlockEntity part : frontier) {
+                for (final Face face : Face.VALUES) {
+                    final AbstractComputerBlockEntity neighbor = part.getNeighbor(face);
+                    if (neighbor != null && isPart(neighbor) && affected.add(neighbor)) {
+                        next.add(neighbor);
+                    }
+                }
+            }
+            frontier = next;
+        }
+
+        affected.forEach(AbstractComputerBlockEntity::rebuildOverrides);
+    }
+
+    /**
+     * Sort the casings and rebuild the list of parts to step after casings
+     * were added to or removed from the multi-block.
+     */
+    private void onCasingsChanged() {
         // Sort casings for deterministic order of execution (important when modules
         // write / read from multiple ports but only want to make the data available
         // to the first [e.g. execution module's ANY target]).
-        casings.sort(Comparator.comparing(CasingBlockEntity::getPosition));
+        MachineStepper.sortCasings(casings);
 
-        // All done. Make sure this comes after the checkNeighbors or we get CMEs!
-        state = ControllerState.READY;
+        // Flatten the parts we step, in the order they are stepped in.
+        pipeTables = new PipeTable[casings.size() + 1];
+        for (int i = 0; i < casings.size(); i++) {
+            pipeTables[i] = casings.get(i).getPipeTable();
+        }
+        pipeTables[casings.size()] = getPipeTable();
+        rebuildMachine();
+    }
+
+    private void clearTopologyChanges() {
+        addedCasings.clear();
+        removedCasings.clear();
+        changedParts.clear();
+        isConnectivityCheckPending = false;
+    }
+
+    /**
+     * Whether the specified part is part of the multi-block of this controller.
+     *
+     * @param part the part to check.
+     * @return <tt>true</tt> if the part belongs to this controller; <tt>false</tt> otherwise.
+     */
+    private boolean isPart(final AbstractComputerBlockEntity part) {
+        return part == this || (part instanceof CasingBlockEntity && ((CasingBlockEntity)part).getController() == this);
+    }
+
+    private static boolean areNeighborsLoaded(final World world, final BlockEntity blockEntity) {
+        for (final Direction facing : Direction.values()) {
+            if (!WorldUtils.isBlockLoaded(world, blockEntity.getPos().offset(facing))) {
+                return false;
+            }
+        }
+        return true;
     }
 
     /**
@@ -530,13 +936,141 @@ public final class ControllerBlockEntity extends AbstractComputerBlockEntity imp
         return acc;
     }
 
+    /**
+     * Check whether this controller may be stepped off the server thread.
+     *
+     * @return <tt>true</tt> if all modules may be stepped concurrently; <tt>false</tt> otherwise.
+     */
+    boolean canStepConcurrently() {
+        if (isMachineDirty) {
+            rebuildMachine();
+        }
+
+        return machine.isConcurrentlySteppable();
+    }
+
+    long getLastSteppedTick() {
+        return lastSteppedTick;
+    }
+
+    void setLastSteppedTick(final long tick) {
+        lastSteppedTick = tick;
+    }
+
+    /**
+     * Perform the steps scheduled in this tick, queueing side effects of the
+     * modules to be applied in {@link #finishScheduledSteps()}.
+     *
+     * @param isConcurrent whether this is called on a thread other than the
+     *                     server thread, by the {@link ControllerScheduler}.
+     */
+    void stepScheduled(final boolean isConcurrent) {
+        final int steps = scheduledSteps;
+        final int extraDeferredSteps = scheduledDeferredSteps;
+        final int turboSteps = scheduledTurboSteps;
+        scheduledSteps = 0;
+        scheduledDeferredSteps = 0;
+        scheduledTurboSteps = 0;
+
+        // We may have been removed or our multi-block may have changed after
+        // ticking, e.g. by a casing being removed.
+        if (isRemoved() || state != ControllerState.RUNNING) {
+            deferredSteps = 0;
+            turboStepDebt = 0;
+            lastStepTime = 0;
+            return;
+        }
+
+        final long startTime = System.nanoTime();
+        deferredEffects.bind(isConcurrent);
+        try {
+
+            for (int step = 0; step < steps; step++) {
+                step();
+            }
+
+            // Deferred steps are caught up on first, then turbo steps follow.
+            final int extraSteps = extraDeferredSteps + turboSteps;
+            int extraStep = 0;
+            while (extraStep < extraSteps && System.nanoTime() - startTime < Settings.stepTimeBudget) {
+                step();
+                extraStep++;
+            }
+            deferredSteps -= Math.min(extraStep, extraDeferredSteps);
+            turboStepDebt = turboSteps - Math.max(0, extraStep - extraDeferredSteps);
+        } catch (final HaltAndCatchFireException e) {
+            isHaltAndCatchFirePending = true;
+            deferredSteps = 0;
+            turboStepDebt = 0;
+        } finally {
+            DeferredEffects.unbind();
+            lastStepTime = System.nanoTime() - startTime;
+        }
+    }
+
+    /**
+     * Skip the steps scheduled in this tick, adding them to the deferred steps
+     * of this controller. A skipped forced step is retried in the next tick
+     * instead, so single-stepping never performs more than one step. Called
+     * by the {@link ControllerScheduler} when the tick budget has been used up.
+     */
+    void deferScheduledSteps() {
+        if (isForcedStepScheduled) {
+            forceStep = true;
+        } else {
+            deferredSteps = Math.min(deferredSteps + scheduledSteps, Settings.maxStepsPerTick);
+        }
+        deferredStepCount += scheduledSteps;
+        scheduledSteps = 0;
+        scheduledDeferredSteps = 0;
+        scheduledTurboSteps = 0;
+    }
+
+    /**
+     * Apply the side effects queued while performing the steps scheduled in
+     * this tick. Called on the server thread.
+     */
+    void finishScheduledSteps() {
+        scheduledSteps = 0;
+        scheduledDeferredSteps = 0;
+        scheduledTurboSteps = 0;
+        deferredEffects.flush();
+
+        if (isHaltAndCatchFirePending) {
+            isHaltAndCatchFirePending = false;
+            haltAndCatchFire();
+        }
+    }
+
     /**
      * Advance all computer parts by one step.
      */
     private void step() {
-        casings.forEach(CasingBlockEntity::stepModules);
-        casings.forEach(CasingBlockEntity::stepPipes);
-        stepPipes();
+        if (isMachineDirty) {
+            rebuildMachine();
+        }
+
+        machine.step();
+    }
+
+    /**
+     * Build the machine stepping the managed casings and their modules,
+     * moving their state out of the previous machine.
+     */
+    private void rebuildMachine() {
+        machine.release();
+        machine = CompiledMachine.compile(casings, pipeTables);
+        isMachineDirty = false;
+    }
+
+    /**
+     * Move the state of all parts back out of the machine, e.g. because the
+     * parts no longer belong to this controller.
+     */
+    private void releaseMachine() {
+        machine.release();
+        machine = CompiledMachine.EMPTY;
+        isMachineDirty = true;
     }
 
     /**
@@ -564,6 +1098,9 @@ public final class ControllerBlockEntity extends AbstractComputerBlockEntity imp
             casings.forEach(CasingBlockEntity::onDisabled);
         }
         casings.clear();
+        pipeTables = EMPTY_PIPE_TABLES;
+        releaseMachine();
+        clearTopologyChanges();
 
         state = toState;
     }
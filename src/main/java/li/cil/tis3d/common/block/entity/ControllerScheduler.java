@@ -0,0 +1,191 @@
+package li.cil.tis3d.common.block.entity;
+
+import li.cil.tis3d.common.Settings;
+
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.ForkJoinWorkerThread;
+
+/**
+ * Steps controllers after all block entities of a world have ticked, instead
+ * of while the controllers tick. Used when controllers are stepped
+ * concurrently or when their total step time is limited.
+ * <p>
+ * <em>Concurrent stepping</em>, see {@link Settings#concurrentControllerStepping}:
+ * controllers never share casings, and stepping them only touches their own
+ * modules and pipes, as long as all their modules are
+ * {@link li.cil.tis3d.common.module.ConcurrentlySteppable}. Such controllers
+ * are stepped on a dedicated thread pool, after which the side effects
+ * collected while stepping are applied on the server thread, in the order
+ * the controllers were stepped in.
+ * <p>
+ * <em>Tick budget</em>, see {@link Settings#controllerTickBudget}: the time
+ * spent stepping controllers is accumulated over each server tick. Once it
+ * exceeds the budget, the steps of remaining controllers are deferred, and
+ * added to their debt, which is worked off in later ticks. Controllers that
+ * were stepped least recently go first, so that deferring rotates through
+ * all controllers.
+ */
+public final class ControllerScheduler {
+    /**
+     * Orders controllers so that those stepped least recently go first.
+     */
+    private static final Comparator<ControllerBlockEntity> LEAST_RECENTLY_STEPPED =
+        Comparator.comparingLong(ControllerBlockEntity::getLastSteppedTick);
+
+    /**
+     * Controllers scheduled to be stepped after the current block entity tick.
+     */
+    private static final List<ControllerBlockEntity> scheduledControllers = new ArrayList<>();
+
+    /**
+     * Controllers currently being stepped concurrently, and their tasks,
+     * reused between runs.
+     */
+    private static final List<ControllerBlockEntity> concurrentControllers = new ArrayList<>();
+    private static final List<ForkJoinTask<?>> tasks = new ArrayList<>();
+
+    /**
+     * The pool to step controllers in, created when first needed.
+     */
+    @Nullable
+    private static ForkJoinPool pool;
+
+    /**
+     * Number of the current server tick, used to order controllers by when
+     * they were last stepped.
+     */
+    private static long currentTick;
+
+    /**
+     * Time in nanoseconds spent stepping controllers in the current server tick.
+     */
+    private static long spentTime;
+
+    // --------------------------------------------------------------------- //
+
+    /**
+     * Check whether a controller should be scheduled instead of stepping
+     * right away.
+     *
+     * @param controller the controller to check for.
+     * @return <tt>true</tt> if the controller should be scheduled; <tt>false</tt> otherwise.
+     */
+    static boolean shouldSchedule(final ControllerBlockEntity controller) {
+        return Settings.controllerTickBudget > 0 ||
+               (Settings.concurrentControllerStepping && controller.canStepConcurrently());
+    }
+
+    /**
+     * Schedule a controller to be stepped after the current block entity tick.
+     *
+     * @param controller the controller to step.
+     */
+    static void schedule(final ControllerBlockEntity controller) {
+        scheduledControllers.add(controller);
+    }
+
+    /**
+     * Step all scheduled controllers and apply their side effects. Called
+     * on the server thread after all block entities of a world have ticked.
+     */
+    public static void stepScheduled() {
+        if (scheduledControllers.isEmpty()) {
+            return;
+        }
+
+        final long budget = Settings.controllerTickBudget;
+        if (budget > 0) {
+            // Stable, so controllers stepped in the same tick keep their order.
+            scheduledControllers.sort(LEAST_RECENTLY_STEPPED);
+        }
+
+        // Not worth the overhead of handing a single controller off to the pool.
+        final ForkJoinPool pool = Settings.concurrentControllerStepping && scheduledControllers.size() > 1 ? getPool() : null;
+
+        RuntimeException exception = null;
+        try {
+            // Estimated time of controllers currently being stepped concurrently.
+            long pendingTime = 0;
+            for (final ControllerBlockEntity controller : scheduledControllers) {
+                if (budget > 0 && spentTime + pendingTime >= budget) {
+                    controller.deferScheduledSteps();
+                    continue;
+                }
+
+                controller.setLastSteppedTick(currentTick);
+
+                // Modules may have been added to or removed from the casings
+                // since the controller was scheduled, so check again before
+                // leaving the server thread.
+                if (pool != null && controller.canStepConcurrently()) {
+                    concurrentControllers.add(controller);
+                    tasks.add(pool.submit(() -> controller.stepScheduled(true)));
+                    pendingTime += controller.getLastStepTime();
+                } else {
+                    controller.stepScheduled(false);
+                    spentTime += controller.getLastStepTime();
+                }
+            }
+        } catch (final RuntimeException e) {
+            exception = e;
+        }
+
+        // Wait for all controllers, even if one of them failed, so that no
+        // controller is still being stepped while effects are applied.
+        for (final ForkJoinTask<?> task : tasks) {
+            try {
+                task.join();
+            } catch (final RuntimeException e) {
+                if (exception == null) {
+                    exception = e;
+                }
+            }
+        }
+        tasks.clear();
+
+        for (final ControllerBlockEntity controller : concurrentControllers) {
+            spentTime += controller.getLastStepTime();
+        }
+        concurrentControllers.clear();
+
+        for (final ControllerBlockEntity controller : scheduledControllers) {
+            controller.finishScheduledSteps();
+        }
+        scheduledControllers.clear();
+
+        if (exception != null) {
+            throw exception;
+        }
+    }
+
+    /**
+     * Reset the tick budget. Called at the end of each server tick.
+     */
+    public static void serverTick() {
+        currentTick++;
+        spentTime = 0;
+    }
+
+    // --------------------------------------------------------------------- //
+
+    private static ForkJoinPool getPool() {
+        if (pool == null) {
+            pool = new ForkJoinPool(Runtime.getRuntime().availableProcessors(), p -> {
+                final ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(p);
+                thread.setName("TIS-3D Controller Stepper #" + thread.getPoolIndex());
+                return thread;
+            }, null, false);
+        }
+        return pool;
+    }
+
+    // --------------------------------------------------------------------- //
+
+    private ControllerScheduler() {
+    }
+}
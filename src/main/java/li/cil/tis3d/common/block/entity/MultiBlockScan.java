@@ -0,0 +1,299 @@
+package li.cil.tis3d.common.block.entity;
+
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongArrayFIFOQueue;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import it.unimi.dsi.fastutil.objects.ReferenceLinkedOpenHashSet;
+import li.cil.tis3d.common.Settings;
+import li.cil.tis3d.common.init.Blocks;
+import net.minecraft.block.Block;
+import net.minecraft.block.entity.BlockEntity;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.Direction;
+import net.minecraft.world.World;
+import net.minecraft.world.chunk.ChunkSection;
+import net.minecraft.world.chunk.WorldChunk;
+
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Breadth-first search for the controllers and casings connected to a part
+ * of a multi-block, shared by controller scans and by casings looking for
+ * their controller.
+ * <p>
+ * Visited positions are tracked packed into longs, see {@link BlockPos#asLong()}.
+ * Block entities are only looked up for positions holding a controller or
+ * casing block, checked on the chunk section directly, so that the search
+ * neither creates nor touches block entities of any other blocks.
+ * <p>
+ * Searches are remembered for all parts they visited until the end of the
+ * tick, so that casings of the same multi-block looking for their controller
+ * in the same tick, e.g. after a chunk was loaded, share a single search.
+ * Controller scans are only remembered if they found a controller. A
+ * remembered search may be outdated by changes later in the same tick; this
+ * only affects which controller gets notified, and that controller does a
+ * full scan of its own.
+ * <p>
+ * Casings without a controller requesting a scan do not search right away,
+ * but are collected until the end of the tick, see {@link #scheduleFindController(CasingBlockEntity)}.
+ * When many casings request a scan at once, e.g. while a large multi-block
+ * is being loaded, this resolves all requests in one pass once all block
+ * entities are in place, with one search per multi-block. Only accessed on
+ * the server thread.
+ */
+public final class MultiBlockScan {
+    /**
+     * Possible outcomes of a search.
+     */
+    enum Result {
+        /**
+         * All parts connected to the origin of the search were visited.
+         */
+        COMPLETE,
+
+        /**
+         * A controller other than the origin of the search was found.
+         */
+        CONTROLLER_FOUND,
+
+        /**
+         * More than {@link Settings#maxCasingsPerController} casings were found.
+         */
+        TOO_COMPLEX,
+
+        /**
+         * The border of the loaded area was hit.
+         */
+        INCOMPLETE
+    }
+
+    /**
+     * Searches of the current tick, per world, by the positions of the parts
+     * they visited.
+     */
+    private static final Map<World, Long2ObjectMap<MultiBlockScan>> CACHE = new HashMap<>();
+
+    /**
+     * Casings without a controller that requested a scan in the current
+     * tick, in the order they did so.
+     */
+    private static final ReferenceLinkedOpenHashSet<CasingBlockEntity> PENDING = new ReferenceLinkedOpenHashSet<>();
+
+    // Reused for each search, only accessed on the server thread.
+    private static final LongOpenHashSet visited = new LongOpenHashSet();
+    private static final LongArrayFIFOQueue queue = new LongArrayFIFOQueue();
+    private static final LongArrayList visitedParts = new LongArrayList();
+    private static final BlockPos.Mutable position = new BlockPos.Mutable();
+
+    /**
+     * The outcome of the search.
+     */
+    final Result result;
+
+    /**
+     * The controller found by the search: the other controller if the result
+     * is {@link Result#CONTROLLER_FOUND}, the origin of the search if it is a
+     * controller and the result is {@link Result#COMPLETE}, otherwise none.
+     */
+    @Nullable
+    final ControllerBlockEntity controller;
+
+    /**
+     * The casings visited by the search, in the order they were found. All
+     * connected casings if the result is {@link Result#COMPLETE}.
+     */
+    final List<CasingBlockEntity> casings;
+
+    // --------------------------------------------------------------------- //
+
+    /**
+     * Search the parts connected to the specified controller, for a full
+     * scan of its multi-block.
+     * <p>
+     * Only unloaded neighbors of the controller itself make the search
+     * {@link Result#INCOMPLETE}, casings on the border of the loaded area
+     * are kept.
+     *
+     * @param world      the world to search in.
+     * @param controller the controller to start the search at.
+     * @return the outcome of the search.
+     */
+    static MultiBlockScan scan(final World world, final ControllerBlockEntity controller) {
+        return search(world, controller, false);
+    }
+
+    /**
+     * Find the controller connected to the specified casing, reusing the
+     * outcome of a search in the current tick that visited the casing.
+     *
+     * @param world  the world to search in.
+     * @param casing the casing to start the search at.
+     * @return the outcome of the search.
+     */
+    static MultiBlockScan findController(final World world, final CasingBlockEntity casing) {
+        final Long2ObjectMap<MultiBlockScan> cache = CACHE.get(world);
+        if (cache != null) {
+            final MultiBlockScan cached = cache.get(casing.getPos().asLong());
+            if (cached != null) {
+                return cached;
+            }
+        }
+        return search(world, casing, true);
+    }
+
+    /**
+     * Have the specified casing look for its controller and notify it at
+     * the end of the tick, see {@link CasingBlockEntity#notifyController()}.
+     *
+     * @param casing the casing to look for the controller of.
+     */
+    static void scheduleFindController(final CasingBlockEntity casing) {
+        PENDING.add(casing);
+    }
+
+    /**
+     * Resolve the pending scan requests of casings, then forget all searches
+     * of the current tick. Called at the end of each server tick.
+     */
+    public static void serverTick() {
+        while (!PENDING.isEmpty()) {
+            PENDING.removeFirst().notifyController();
+        }
+        CACHE.clear();
+    }
+
+    // --------------------------------------------------------------------- //
+
+    private static MultiBlockScan search(final World world, final BlockEntity origin, final boolean isLoadRequired) {
+        final List<CasingBlockEntity> casings = new ArrayList<>();
+        try {
+            visited.add(origin.getPos().asLong());
+            queue.enqueue(origin.getPos().asLong());
+            while (!queue.isEmpty()) {
+                final long packed = queue.dequeueLong();
+                final BlockEntity blockEntity = origin.getPos().asLong() == packed ? origin : getComputerBlockEntity(world, BlockPos.fromLong(packed));
+                if (blockEntity == null || blockEntity.isRemoved()) {
+                    continue;
+                }
+                visitedParts.add(packed);
+
+                // Check what we have. We only queue controllers and casings,
+                // so we can skip the type check in the else branch.
+                if (blockEntity instanceof ControllerBlockEntity) {
+                    if (blockEntity != origin) {
+                        // We require there to be exactly one controller per multi-block.
+                        return remember(world, new MultiBlockScan(Result.CONTROLLER_FOUND, (ControllerBlockEntity)blockEntity, casings));
+                    }
+                } else /* if (blockEntity instanceof CasingBlockEntity) */ {
+                    // We only allow a certain number of casings per multi-block.
+                    if (casings.size() + 1 > Settings.maxCasingsPerController) {
+                        final MultiBlockScan scan = new MultiBlockScan(Result.TOO_COMPLEX, null, casings);
+                        return isLoadRequired ? remember(world, scan) : scan;
+                    }
+                    casings.add((CasingBlockEntity)blockEntity);
+                }
+
+                // Hitting the end of the loaded area aborts the search, to avoid
+                // potentially partially loaded multi-blocks.
+                if (!addNeighbors(world, packed) && (isLoadRequired || blockEntity == origin)) {
+                    final MultiBlockScan scan = new MultiBlockScan(Result.INCOMPLETE, null, casings);
+                    return isLoadRequired ? remember(world, scan) : scan;
+                }
+            }
+
+            final ControllerBlockEntity controller = origin instanceof ControllerBlockEntity ? (ControllerBlockEntity)origin : null;
+            final MultiBlockScan scan = new MultiBlockScan(Result.COMPLETE, controller, casings);
+            return isLoadRequired || controller != null ? remember(world, scan) : scan;
+        } finally {
+            visited.clear();
+            queue.clear();
+            visitedParts.clear();
+        }
+    }
+
+    /**
+     * Queue all neighbors of the specified position that are controllers or
+     * casings and have not been visited yet.
+     *
+     * @param world  the world we're searching in.
+     * @param packed the position to queue the neighbors of.
+     * @return <tt>true</tt> if all neighbors were loaded, <tt>false</tt> otherwise.
+     */
+    private static boolean addNeighbors(final World world, final long packed) {
+        boolean isLoaded = true;
+        for (final Direction facing : Direction.values()) {
+            final long neighbor = BlockPos.offset(packed, facing);
+            if (!visited.add(neighbor)) {
+                continue;
+            }
+
+            position.set(BlockPos.unpackLongX(neighbor), BlockPos.unpackLongY(neighbor), BlockPos.unpackLongZ(neighbor));
+            if (!world.isChunkLoaded(position.getX() >> 4, position.getZ() >> 4)) {
+                isLoaded = false;
+                continue;
+            }
+            if (isComputerBlock(world.getChunk(position.getX() >> 4, position.getZ() >> 4), position)) {
+                queue.enqueue(neighbor);
+            }
+        }
+        return isLoaded;
+    }
+
+    /**
+     * Get the controller or casing at the specified position.
+     * <p>
+     * This may cause block entity creation in rare cases (e.g. broken saves
+     * where block entities were not restored during load). These will not
+     * have their world set if this is called from the update loop (where
+     * newly created block entities are added to a separate list, and will be
+     * added to their chunk and thus get their world set later on), which is
+     * why the world to search in is passed along instead of taken from the
+     * block entities.
+     *
+     * @param world the world we're searching in.
+     * @param pos   the position to get the block entity at.
+     * @return the controller or casing at the position, if any.
+     */
+    @Nullable
+    private static BlockEntity getComputerBlockEntity(final World world, final BlockPos pos) {
+        final BlockEntity blockEntity = world.getBlockEntity(pos);
+        return blockEntity instanceof ControllerBlockEntity || blockEntity instanceof CasingBlockEntity ? blockEntity : null;
+    }
+
+    private static boolean isComputerBlock(final WorldChunk chunk, final BlockPos pos) {
+        final ChunkSection[] sections = chunk.getSectionArray();
+        final int index = pos.getY() >> 4;
+        if (index < 0 || index >= sections.length || ChunkSection.isEmpty(sections[index])) {
+            return false;
+        }
+
+        final Block block = sections[index].getBlockState(pos.getX() & 15, pos.getY() & 15, pos.getZ() & 15).getBlock();
+        return block == Blocks.CASING || block == Blocks.CONTROLLER;
+    }
+
+    private static MultiBlockScan remember(final World world, final MultiBlockScan scan) {
+        Long2ObjectMap<MultiBlockScan> cache = CACHE.get(world);
+        if (cache == null) {
+            cache = new Long2ObjectOpenHashMap<>();
+            CACHE.put(world, cache);
+        }
+        for (int i = 0; i < visitedParts.size(); i++) {
+            cache.put(visitedParts.getLong(i), scan);
+        }
+        return scan;
+    }
+
+    // --------------------------------------------------------------------- //
+
+    private MultiBlockScan(final Result result, @Nullable final ControllerBlockEntity controller, final List<CasingBlockEntity> casings) {
+        this.result = result;
+        this.controller = controller;
+        this.casings = casings;
+    }
+}
@@ -0,0 +1,82 @@
+package li.cil.tis3d.common.command;
+
+import com.mojang.brigadier.CommandDispatcher;
+import com.mojang.brigadier.context.CommandContext;
+import li.cil.tis3d.api.API;
+import li.cil.tis3d.common.block.entity.ControllerBlockEntity;
+import net.minecraft.block.entity.BlockEntity;
+import net.minecraft.server.command.CommandManager;
+import net.minecraft.server.command.ServerCommandSource;
+import net.minecraft.server.world.ServerWorld;
+import net.minecraft.text.TranslatableText;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.world.dimension.DimensionType;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Lists the controllers that had to defer steps due to the controller tick
+ * budget, worst offenders first, to help admins find overly expensive
+ * multi-blocks.
+ * <p>
+ * Usage: <tt>/tis3d controllers</tt>
+ */
+public final class ControllerStatsCommand {
+    /**
+     * The maximum number of controllers to list.
+     */
+    private static final int MAX_ENTRIES = 10;
+
+    // --------------------------------------------------------------------- //
+
+    public static void register(final CommandDispatcher<ServerCommandSource> dispatcher) {
+        dispatcher.register(CommandManager.literal(API.MOD_ID)
+            .requires(source -> source.hasPermissionLevel(2))
+            .then(CommandManager.literal("controllers")
+                .executes(ControllerStatsCommand::listControllers)));
+    }
+
+    // --------------------------------------------------------------------- //
+
+    private static int listControllers(final CommandContext<ServerCommandSource> context) {
+        final ServerCommandSource source = context.getSource();
+
+        final List<ControllerBlockEntity> controllers = new ArrayList<>();
+        for (final ServerWorld world : source.getMinecraftServer().getWorlds()) {
+            for (final BlockEntity blockEntity : world.blockEntities) {
+                if (blockEntity instanceof ControllerBlockEntity) {
+                    final ControllerBlockEntity controller = (ControllerBlockEntity)blockEntity;
+                    if (controller.getDeferredStepCount() > 0 || controller.getStepDebt() > 0) {
+                        controllers.add(controller);
+                    }
+                }
+            }
+        }
+
+        if (controllers.isEmpty()) {
+            source.sendFeedback(new TranslatableText(API.MOD_ID + ".command.controllers.none"), false);
+            return 0;
+        }
+
+        controllers.sort(Comparator.comparingLong(ControllerBlockEntity::getDeferredStepCount).reversed());
+
+        source.sendFeedback(new TranslatableText(API.MOD_ID + ".command.controllers.header", controllers.size()), false);
+        for (int i = 0; i < Math.min(controllers.size(), MAX_ENTRIES); i++) {
+            final ControllerBlockEntity controller = controllers.get(i);
+            final BlockPos pos = controller.getPos();
+            final DimensionType dimension = controller.getPipeHostWorld().getDimension().getType();
+            source.sendFeedback(new TranslatableText(API.MOD_ID + ".command.controllers.entry",
+                DimensionType.getId(dimension), pos.getX(), pos.getY(), pos.getZ(),
+                controller.getStepDebt(), controller.getDeferredStepCount(), controller.getLastStepTime() / 1000), false);
+        }
+
+        return controllers.size();
+    }
+
+    // --------------------------------------------------------------------- //
+
+    private ControllerStatsCommand() {
+    }
+}
@@ -0,0 +1,48 @@
+package li.cil.tis3d.common.command;
+
+import com.mojang.brigadier.CommandDispatcher;
+import com.mojang.brigadier.context.CommandContext;
+import li.cil.tis3d.api.API;
+import li.cil.tis3d.common.network.ModuleDataBuffers;
+import net.minecraft.server.command.CommandManager;
+import net.minecraft.server.command.ServerCommandSource;
+import net.minecraft.text.TranslatableText;
+
+import java.util.Locale;
+
+/**
+ * Shows the rate at which buffers for module data are allocated, to check
+ * whether modules use pooled buffers, see {@link ModuleDataBuffers}.
+ * <p>
+ * Usage: <tt>/tis3d network</tt>
+ */
+public final class NetworkStatsCommand {
+    public static void register(final CommandDispatcher<ServerCommandSource> dispatcher) {
+        dispatcher.register(CommandManager.literal(API.MOD_ID)
+            .requires(source -> source.hasPermissionLevel(2))
+            .then(CommandManager.literal("network")
+                .executes(NetworkStatsCommand::showStatistics)));
+    }
+
+    // --------------------------------------------------------------------- //
+
+    private static int showStatistics(final CommandContext<ServerCommandSource> context) {
+        final ServerCommandSource source = context.getSource();
+        final ModuleDataBuffers.Statistics statistics = ModuleDataBuffers.getStatistics();
+        final int ticks = ModuleDataBuffers.STATISTICS_INTERVAL;
+
+        source.sendFeedback(new TranslatableText(API.MOD_ID + ".command.network.header", ticks), false);
+        source.sendFeedback(new TranslatableText(API.MOD_ID + ".command.network.allocations",
+            String.format(Locale.ROOT, "%.1f", statistics.pooledCount / (float)ticks),
+            String.format(Locale.ROOT, "%.1f", statistics.unpooledCount / (float)ticks)), false);
+        source.sendFeedback(new TranslatableText(API.MOD_ID + ".command.network.bytes",
+            statistics.queuedBytes / ticks, statistics.poolMemory / 1024), false);
+
+        return (int)Math.min(Integer.MAX_VALUE, statistics.unpooledCount);
+    }
+
+    // --------------------------------------------------------------------- //
+
+    private NetworkStatsCommand() {
+    }
+}
@@ -7,6 +7,10 @@ import li.cil.tis3d.client.manual.provider.GameRegistryPathProvider;
 import li.cil.tis3d.common.Constants;
 import li.cil.tis3d.common.Settings;
 import li.cil.tis3d.common.api.*;
+import li.cil.tis3d.common.block.entity.ControllerScheduler;
+import li.cil.tis3d.common.block.entity.MultiBlockScan;
+import li.cil.tis3d.common.command.ControllerStatsCommand;
+import li.cil.tis3d.common.command.NetworkStatsCommand;
 import li.cil.tis3d.common.event.TickHandlerInfraredPacket;
 import li.cil.tis3d.common.integration.Integration;
 import li.cil.tis3d.common.module.*;
@@ -15,6 +19,7 @@ import li.cil.tis3d.common.network.Network;
 import net.fabricmc.api.ModInitializer;
 import net.fabricmc.fabric.api.client.itemgroup.FabricItemGroupBuilder;
 import net.fabricmc.fabric.api.event.server.ServerTickCallback;
+import net.fabricmc.fabric.api.registry.CommandRegistry;
 import net.fabricmc.loader.api.FabricLoader;
 
 import java.io.File;
@@ -44,6 +49,12 @@ public final class BootstrapCommon implements ModInitializer {
         // Register event handlers.
         ServerTickCallback.EVENT.register(server -> TickHandlerInfraredPacket.INSTANCE.serverTick());
         ServerTickCallback.EVENT.register(server -> Network.INSTANCE.serverTick());
+        ServerTickCallback.EVENT.register(server -> ControllerScheduler.serverTick());
+        ServerTickCallback.EVENT.register(server -> MultiBlockScan.serverTick());
+
+        // Register commands.
+        CommandRegistry.INSTANCE.register(false, ControllerStatsCommand::register);
+        CommandRegistry.INSTANCE.register(false, NetworkStatsCommand::register);
 
         // Register entities.
         Entities.registerEntities();
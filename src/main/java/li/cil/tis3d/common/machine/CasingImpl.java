@@ -12,6 +12,7 @@ import li.cil.tis3d.api.module.traits.Redstone;
 import li.cil.tis3d.common.block.entity.CasingBlockEntity;
 import li.cil.tis3d.common.block.entity.ControllerBlockEntity;
 import li.cil.tis3d.common.init.Items;
+import li.cil.tis3d.common.network.ModuleDataBuffers;
 import li.cil.tis3d.common.network.Network;
 import li.cil.tis3d.util.NBTIds;
 import net.fabricmc.api.EnvType;
@@ -26,6 +27,7 @@ import javax.annotation.Nullable;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.function.Consumer;
 
 /**
  * Implementation of a {@link Casing}, holding up to six {@link Module}s.
@@ -111,17 +113,6 @@ public final class CasingImpl implements Casing {
         }
     }
 
-    /**
-     * Advance the logic of all modules by calling {@link Module#step()} on them.
-     */
-    public void stepModules() {
-        for (final Module module : modules) {
-            if (module != null) {
-                module.step();
-            }
-        }
-    }
-
     /**
      * Set the module for the specified face of the casing.
      * <p>
@@ -174,6 +165,12 @@ public final class CasingImpl implements Casing {
             module.onEnabled();
         }
 
+        // Let the controller know it has to update its list of modules to step.
+        final ControllerBlockEntity controller = blockEntity.getController();
+        if (controller != null) {
+            controller.onModulesChanged();
+        }
+
         blockEntity.markDirty();
     }
 
@@ -320,6 +317,28 @@ public final class CasingImpl implements Casing {
         blockEntity.markDirty();
     }
 
+    @Override
+    public void notifyNeighbors() {
+        final DeferredEffects effects = DeferredEffects.current();
+        if (effects != null) {
+            effects.notifyNeighbors(this);
+        } else {
+            final World world = getCasingWorld();
+            final BlockPos position = getPosition();
+            world.updateNeighborsAlways(position, world.getBlockState(position).getBlock());
+        }
+    }
+
+    @Override
+    public void queueEffect(final Runnable effect) {
+        final DeferredEffects effects = DeferredEffects.current();
+        if (effects != null) {
+            effects.add(effect);
+        } else {
+            effect.run();
+        }
+    }
+
     @Override
     public boolean isEnabled() {
         return blockEntity.isCasingEnabled();
@@ -348,7 +367,12 @@ public final class CasingImpl implements Casing {
 
     @Override
     public void sendData(final Face face, final CompoundTag data, final byte type) {
-        Network.INSTANCE.sendModuleData(this, face, data, type);
+        final DeferredEffects effects = DeferredEffects.currentConcurrent();
+        if (effects != null) {
+            effects.add(() -> Network.INSTANCE.sendModuleData(this, face, data, type));
+        } else {
+            Network.INSTANCE.sendModuleData(this, face, data, type);
+        }
     }
 
     @Override
@@ -358,7 +382,12 @@ public final class CasingImpl implements Casing {
 
     @Override
     public void sendData(final Face face, final ByteBuf data, final byte type) {
-        Network.INSTANCE.sendModuleData(this, face, data, type);
+        final DeferredEffects effects = DeferredEffects.currentConcurrent();
+        if (effects != null) {
+            effects.add(() -> Network.INSTANCE.sendModuleData(this, face, data, type));
+        } else {
+            Network.INSTANCE.sendModuleData(this, face, data, type);
+        }
     }
 
     @Override
@@ -366,6 +395,21 @@ public final class CasingImpl implements Casing {
         sendData(face, data, (byte)-1);
     }
 
+    @Override
+    public ByteBuf allocateData() {
+        return ModuleDataBuffers.allocate();
+    }
+
+    @Override
+    public void sendData(final Face face, final Consumer<ByteBuf> writer, final byte type) {
+        final DeferredEffects effects = DeferredEffects.currentConcurrent();
+        if (effects != null) {
+            effects.add(() -> Network.INSTANCE.sendModuleData(this, face, writer, type));
+        } else {
+            Network.INSTANCE.sendModuleData(this, face, writer, type);
+        }
+    }
+
     // --------------------------------------------------------------------- //
 
     /**
@@ -11,6 +11,7 @@ import net.minecraft.util.math.BlockPos;
 import net.minecraft.world.World;
 
 import javax.annotation.Nullable;
+import java.util.function.Consumer;
 
 public interface CasingProxy extends Casing {
     Casing getCasing();
@@ -30,6 +31,16 @@ public interface CasingProxy extends Casing {
         getCasing().markDirty();
     }
 
+    @Override
+    default void notifyNeighbors() {
+        getCasing().notifyNeighbors();
+    }
+
+    @Override
+    default void queueEffect(final Runnable effect) {
+        getCasing().queueEffect(effect);
+    }
+
     @Override
     default boolean isEnabled() {
         return getCasing().isEnabled();
@@ -75,4 +86,14 @@ public interface CasingProxy extends Casing {
     default void sendData(final Face face, final ByteBuf data) {
         getCasing().sendData(face, data);
     }
+
+    @Override
+    default ByteBuf allocateData() {
+        return getCasing().allocateData();
+    }
+
+    @Override
+    default void sendData(final Face face, final Consumer<ByteBuf> writer, final byte type) {
+        getCasing().sendData(face, writer, type);
+    }
 }
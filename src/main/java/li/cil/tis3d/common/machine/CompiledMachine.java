@@ -0,0 +1,145 @@
+package li.cil.tis3d.common.machine;
+
+import li.cil.tis3d.api.machine.Casing;
+import li.cil.tis3d.api.module.Module;
+import li.cil.tis3d.common.module.ConcurrentlySteppable;
+import li.cil.tis3d.common.module.ExecutionModule;
+import li.cil.tis3d.common.module.execution.MachineRegisters;
+import li.cil.tis3d.common.module.execution.MachineState;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The flattened form of a multi-block, built whenever its casings or their
+ * modules change, and stepped in place of the individual parts.
+ * <p>
+ * The registers of all execution modules and the states of all pipes of
+ * the multi-block are moved into flat arrays owned by this machine, in the
+ * order they are stepped in. The modules and pipes remain views on these
+ * arrays, e.g. for rendering, networking and persisting, so nothing else
+ * needs to know whether they are part of a machine. Once the multi-block
+ * changes, the machine is {@link #release() released}, which moves the
+ * state back into the parts, and a new one is built.
+ * <p>
+ * Each step, all modules are stepped, ordered by the position of their
+ * casing and then by face, see {@link MachineStepper}, followed by the
+ * pipes of all parts.
+ */
+public final class CompiledMachine {
+    /**
+     * A machine without any modules or pipes.
+     */
+    public static final CompiledMachine EMPTY = new CompiledMachine(new Module[0], new MachineState[0], new PipeTable[0]);
+
+    /**
+     * All modules of the multi-block, in the order they are stepped in.
+     */
+    private final Module[] modules;
+
+    /**
+     * The states of all execution modules, whose registers are stored in {@link #registers}.
+     */
+    private final MachineState[] machineStates;
+
+    /**
+     * The registers of all execution modules, in the order the modules are stepped in.
+     */
+    private final MachineRegisters registers;
+
+    /**
+     * The pipes of all parts of the multi-block, in the order they are stepped in.
+     */
+    private final PipeTable[] pipeTables;
+
+    /**
+     * The packed states of all pipes of {@link #pipeTables}, one block of
+     * {@link PipeLayout#PIPE_COUNT} states per table.
+     */
+    private final int[] pipeStates;
+
+    /**
+     * Whether all modules may be stepped concurrently.
+     */
+    private final boolean isConcurrentlySteppable;
+
+    // --------------------------------------------------------------------- //
+
+    /**
+     * Build the machine for the specified parts of a multi-block. Moves the
+     * state of the parts into the new machine, so any machine previously
+     * built for them must be released first.
+     *
+     * @param casings    the casings of the multi-block, sorted by {@link MachineStepper#sortCasings(List)}.
+     * @param pipeTables the pipes of all parts of the multi-block.
+     * @return the machine.
+     */
+    public static CompiledMachine compile(final List<? extends Casing> casings, final PipeTable[] pipeTables) {
+        final Module[] modules = MachineStepper.collectModules(casings);
+        final List<MachineState> machineStates = new ArrayList<>();
+        for (final Module module : modules) {
+            if (module instanceof ExecutionModule) {
+                machineStates.add(((ExecutionModule)module).getState());
+            }
+        }
+        return new CompiledMachine(modules, machineStates.toArray(new MachineState[0]), pipeTables);
+    }
+
+    private CompiledMachine(final Module[] modules, final MachineState[] machineStates, final PipeTable[] pipeTables) {
+        this.modules = modules;
+        this.machineStates = machineStates;
+        this.pipeTables = pipeTables;
+
+        registers = new MachineRegisters(machineStates.length);
+        for (int i = 0; i < machineStates.length; i++) {
+            machineStates[i].attach(registers, i);
+        }
+
+        pipeStates = new int[pipeTables.length * PipeLayout.PIPE_COUNT];
+        for (int i = 0; i < pipeTables.length; i++) {
+            pipeTables[i].bindStates(pipeStates, i * PipeLayout.PIPE_COUNT);
+        }
+
+        boolean allConcurrentlySteppable = true;
+        for (final Module module : modules) {
+            allConcurrentlySteppable &= module instanceof ConcurrentlySteppable;
+        }
+        isConcurrentlySteppable = allConcurrentlySteppable;
+    }
+
+    /**
+     * Whether all modules of the machine may be stepped concurrently, i.e.
+     * off the server thread.
+     *
+     * @return <tt>true</tt> if all modules may be stepped concurrently; <tt>false</tt> otherwise.
+     */
+    public boolean isConcurrentlySteppable() {
+        return isConcurrentlySteppable;
+    }
+
+    /**
+     * Advance all modules and pipes of the machine by one step.
+     */
+    public void step() {
+        for (final Module module : modules) {
+            module.step();
+        }
+        for (final PipeTable pipeTable : pipeTables) {
+            pipeTable.step();
+        }
+    }
+
+    /**
+     * Move the state of all parts out of this machine and back into the
+     * parts. Parts that were moved into another machine since are left as
+     * they are. The machine must not be stepped afterwards.
+     */
+    public void release() {
+        for (final MachineState machineState : machineStates) {
+            machineState.detach(registers);
+        }
+        for (final PipeTable pipeTable : pipeTables) {
+            pipeTable.unbindStates(pipeStates);
+        }
+    }
+}
@@ -0,0 +1,163 @@
+package li.cil.tis3d.common.machine;
+
+import li.cil.tis3d.api.machine.Casing;
+
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Collects side effects of stepping a machine, to apply them once at the
+ * end of the tick, on the server thread.
+ * <p>
+ * A controller binds its buffer to the thread stepping its modules via
+ * {@link #bind(boolean)}. Casings check for a bound buffer via {@link #current()}
+ * and queue effects touching the world there instead of applying them
+ * directly. Repeated requests to mark the same casing dirty or to notify
+ * the neighbors of the same casing are merged.
+ * <p>
+ * When a machine is stepped on a thread other than the server thread, the
+ * buffer is bound as concurrent, in which case data sent to clients is
+ * queued as well, since the network queues may only be accessed from the
+ * server thread.
+ */
+public final class DeferredEffects {
+    /**
+     * The buffer bound to the current thread, if any.
+     */
+    private static final ThreadLocal<DeferredEffects> CURRENT = new ThreadLocal<>();
+
+    /**
+     * Casings to mark dirty, without duplicates.
+     */
+    private final List<Casing> dirtyCasings = new ArrayList<>();
+
+    /**
+     * Casings whose neighbors to notify, without duplicates.
+     */
+    private final List<Casing> neighborUpdates = new ArrayList<>();
+
+    /**
+     * Other effects to apply, in the order they were queued in.
+     */
+    private final List<Runnable> effects = new ArrayList<>();
+
+    /**
+     * Whether the buffer is currently bound to a thread other than the
+     * server thread.
+     */
+    private boolean isConcurrent;
+
+    // --------------------------------------------------------------------- //
+
+    /**
+     * Get the buffer bound to the current thread.
+     *
+     * @return the buffer to queue effects in, or <tt>null</tt> if effects
+     * may be applied directly.
+     */
+    @Nullable
+    public static DeferredEffects current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Get the buffer bound to the current thread, if the current thread is
+     * not the server thread.
+     *
+     * @return the buffer to queue effects in that may only be applied on the
+     * server thread, or <tt>null</tt> if those may be applied directly.
+     */
+    @Nullable
+    public static DeferredEffects currentConcurrent() {
+        final DeferredEffects effects = CURRENT.get();
+        return effects != null && effects.isConcurrent ? effects : null;
+    }
+
+    /**
+     * Bind this buffer to the current thread, until {@link #unbind()} is called.
+     *
+     * @param isConcurrent whether the current thread is not the server thread.
+     */
+    public void bind(final boolean isConcurrent) {
+        this.isConcurrent = isConcurrent;
+        CURRENT.set(this);
+    }
+
+    /**
+     * Unbind any buffer from the current thread.
+     */
+    public static void unbind() {
+        CURRENT.remove();
+    }
+
+    /**
+     * Queue marking the specified casing dirty.
+     *
+     * @param casing the casing to mark dirty.
+     */
+    public void markDirty(final Casing casing) {
+        addUnique(dirtyCasings, casing);
+    }
+
+    /**
+     * Queue notifying the neighbors of the specified casing of a change.
+     *
+     * @param casing the casing whose neighbors to notify.
+     */
+    public void notifyNeighbors(final Casing casing) {
+        addUnique(neighborUpdates, casing);
+    }
+
+    /**
+     * Queue an arbitrary effect.
+     *
+     * @param effect the effect to apply.
+     */
+    public void add(final Runnable effect) {
+        effects.add(effect);
+    }
+
+    /**
+     * Apply all queued effects and clear the buffer. Must be called on the
+     * server thread, with no buffer bound to it.
+     */
+    public void flush() {
+        for (final Runnable effect : effects) {
+            effect.run();
+        }
+        effects.clear();
+
+        for (final Casing casing : neighborUpdates) {
+            casing.notifyNeighbors();
+        }
+        neighborUpdates.clear();
+
+        for (final Casing casing : dirtyCasings) {
+            casing.markDirty();
+        }
+        dirtyCasings.clear();
+    }
+
+    /**
+     * Clear the buffer without applying any of the queued effects. Used
+     * where there is no world to apply them to, such as in simulations.
+     */
+    public void discard() {
+        effects.clear();
+        neighborUpdates.clear();
+        dirtyCasings.clear();
+    }
+
+    // --------------------------------------------------------------------- //
+
+    private static void addUnique(final List<Casing> list, final Casing casing) {
+        // Few distinct casings per machine, so a linear scan is fine.
+        for (final Casing entry : list) {
+            if (entry == casing) {
+                return;
+            }
+        }
+        list.add(casing);
+    }
+}
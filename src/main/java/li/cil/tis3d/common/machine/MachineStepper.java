@@ -0,0 +1,59 @@
+package li.cil.tis3d.common.machine;
+
+import li.cil.tis3d.api.machine.Casing;
+import li.cil.tis3d.api.machine.Face;
+import li.cil.tis3d.api.module.Module;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Defines the order the parts of a multi-block are stepped in, for
+ * controllers and for simulations of multi-blocks without a world, see
+ * {@link CompiledMachine}.
+ * <p>
+ * Modules are stepped ordered by the position of their casing and then by
+ * face. Stepping in a fixed order is important when modules write to or
+ * read from multiple ports but only want to make data available to the
+ * first, e.g. the execution module's <tt>ANY</tt> target.
+ */
+public final class MachineStepper {
+    private static final Module[] EMPTY_MODULES = new Module[0];
+
+    // --------------------------------------------------------------------- //
+
+    /**
+     * Sort the specified casings into the order their modules are stepped in.
+     *
+     * @param casings the casings to sort.
+     */
+    public static void sortCasings(final List<? extends Casing> casings) {
+        casings.sort(Comparator.comparing(Casing::getPosition));
+    }
+
+    /**
+     * Collect all modules installed in the specified casings into a flat list,
+     * in the order they are stepped in.
+     *
+     * @param casings the casings to collect the modules of, sorted by {@link #sortCasings(List)}.
+     * @return the modules of the casings.
+     */
+    public static Module[] collectModules(final List<? extends Casing> casings) {
+        final List<Module> modules = new ArrayList<>(casings.size() * Face.VALUES.length);
+        for (final Casing casing : casings) {
+            for (final Face face : Face.VALUES) {
+                final Module module = casing.getModule(face);
+                if (module != null) {
+                    modules.add(module);
+                }
+            }
+        }
+        return modules.toArray(EMPTY_MODULES);
+    }
+
+    // --------------------------------------------------------------------- //
+
+    private MachineStepper() {
+    }
+}
@@ -18,4 +18,14 @@ public interface PipeHost {
 
     default void onWriteComplete(final Face sendingFace, final Port sendingPort) {
     }
+
+    /**
+     * Called when a pipe starts or stops taking part in a transfer, i.e. when
+     * it leaves or returns to its idle state. Idle pipes need no stepping.
+     *
+     * @param index    the index of the pipe in its host.
+     * @param isActive whether the pipe is now active.
+     */
+    default void onPipeActiveChanged(final int index, final boolean isActive) {
+    }
 }
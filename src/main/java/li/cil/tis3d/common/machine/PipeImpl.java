@@ -10,6 +10,8 @@ import li.cil.tis3d.util.EnumUtils;
 import net.minecraft.nbt.CompoundTag;
 import net.minecraft.util.math.BlockPos;
 
+import java.util.Arrays;
+
 /**
  * Implementation of {@link Pipe}s for passing data between {@link Module}s.
  */
@@ -18,14 +20,22 @@ public final class PipeImpl implements Pipe {
     // Persisted data
 
     /**
-     * The current state of the pipe.
+     * The packed states of all pipes of the host, or of all pipes of the
+     * multi-block the host belongs to, this pipe's state is the one at
+     * {@link #stateIndex}. Managed by the host's {@link PipeTable}, which
+     * persists it.
+     * <p>
+     * Bits 0-2 hold the read state, bits 3-5 the write state and bits 16-31
+     * the value currently being written over this pipe.
+     *
+     * @see #pack(int, int, short)
      */
-    private State readState = State.IDLE, writeState = State.IDLE;
+    private int[] states;
 
     /**
-     * The value currently being written over this pipe.
+     * The index of the state of this pipe in {@link #states}.
      */
-    private short value = 0;
+    private int stateIndex;
 
     // --------------------------------------------------------------------- //
     // Computed data
@@ -35,6 +45,9 @@ public final class PipeImpl implements Pipe {
      * each read/write combination always takes the same amount of steps
      * regardless of whether reader or writer ran first (when they start in
      * the same step).
+     * <p>
+     * Only used for legacy deserialization and debug output, the packed state
+     * uses the ordinals, see {@link #IDLE} and following.
      */
     private enum State {
         /**
@@ -60,9 +73,27 @@ public final class PipeImpl implements Pipe {
         /**
          * Data was read from the pipe this update.
          */
-        COMPLETE
+        COMPLETE;
+
+        static final State[] VALUES = State.values();
     }
 
+    // Packed read and write states, see State.
+    private static final int IDLE = 0;
+    private static final int BUSY = 1;
+    private static final int READY = 2;
+    private static final int FLUSHING = 3;
+    private static final int COMPLETE = 4;
+
+    // Layout of the packed state.
+    private static final int STATE_MASK = 0x7;
+    private static final int WRITE_STATE_SHIFT = 3;
+    private static final int VALUE_SHIFT = 16;
+
+    // Both read and write state, and their value when ready to transfer.
+    private static final int TRANSFER_MASK = STATE_MASK | (STATE_MASK << WRITE_STATE_SHIFT);
+    private static final int TRANSFER_FLUSHING = FLUSHING | (FLUSHING << WRITE_STATE_SHIFT);
+
     // NBT tag names.
     private static final String TAG_READ_STATE = "readState";
     private static final String TAG_WRITE_STATE = "writeState";
@@ -73,6 +104,11 @@ public final class PipeImpl implements Pipe {
      */
     private final PipeHost host;
 
+    /**
+     * The index of this pipe in its host.
+     */
+    private final int index;
+
     /**
      * The faces this pipe is connected to in the owning {@link Casing}.
      */
@@ -83,10 +119,19 @@ public final class PipeImpl implements Pipe {
      */
     private final Port sendingPort;
 
+    /**
+     * Listeners to notify on the next state change of this pipe.
+     */
+    private PipeListener[] listeners = new PipeListener[2];
+    private int listenerCount;
+
     // --------------------------------------------------------------------- //
 
-    public PipeImpl(final PipeHost host, final Face receivingFace, final Face sendingFace, final Port sendingPort) {
+    public PipeImpl(final PipeHost host, final int[] states, final int index, final Face receivingFace, final Face sendingFace, final Port sendingPort) {
         this.host = host;
+        this.states = states;
+        this.stateIndex = index;
+        this.index = index;
         this.receivingFace = receivingFace;
         this.sendingFace = sendingFace;
         this.sendingPort = sendingPort;
@@ -98,99 +143,212 @@ public final class PipeImpl implements Pipe {
      * state in a synchronized manner.
      */
     public void step() {
-        if (writeState == State.BUSY) {
-            writeState = State.READY;
+        final int state = states[stateIndex];
+        int readState = getReadState(state);
+        int writeState = getWriteState(state);
+
+        if (writeState == BUSY) {
+            writeState = READY;
         }
-        if (readState == State.BUSY) {
-            readState = State.READY;
+        if (readState == BUSY) {
+            readState = READY;
         }
-        if (writeState == State.READY && readState == State.READY) {
-            writeState = State.FLUSHING;
-            readState = State.FLUSHING;
+        if (writeState == READY && readState == READY) {
+            writeState = FLUSHING;
+            readState = FLUSHING;
         }
-        if (writeState == State.COMPLETE && readState == State.COMPLETE) {
+        if (writeState == COMPLETE && readState == COMPLETE) {
             finishTransfer();
+        } else {
+            final int newState = pack(readState, writeState, getValue(state));
+            if (newState != state) {
+                states[stateIndex] = newState;
+                onStateChanged();
+            }
         }
     }
 
-    public void readFromNBT(final CompoundTag nbt) {
-        readState = EnumUtils.readFromNBT(State.class, TAG_READ_STATE, nbt);
-        writeState = EnumUtils.readFromNBT(State.class, TAG_WRITE_STATE, nbt);
-        value = nbt.getShort(TAG_VALUE);
+    /**
+     * Register a listener to be notified on the next state change of this
+     * pipe, be it a read or write beginning, progressing, completing or
+     * being canceled.
+     * <p>
+     * Registering the same listener multiple times has no additional effect.
+     *
+     * @param listener the listener to notify.
+     */
+    public void addListener(final PipeListener listener) {
+        for (int i = 0; i < listenerCount; i++) {
+            if (listeners[i] == listener) {
+                return;
+            }
+        }
+        if (listenerCount == listeners.length) {
+            listeners = Arrays.copyOf(listeners, listeners.length * 2);
+        }
+        listeners[listenerCount++] = listener;
+    }
+
+    /**
+     * Move the state of this pipe to the specified index of the specified
+     * array, keeping its value.
+     *
+     * @param states     the array to store the state in.
+     * @param stateIndex the index of the state in that array.
+     */
+    void bindState(final int[] states, final int stateIndex) {
+        states[stateIndex] = this.states[this.stateIndex];
+        this.states = states;
+        this.stateIndex = stateIndex;
+    }
+
+    /**
+     * Get the state of this pipe in its packed representation, for persisting it.
+     *
+     * @return the packed state.
+     */
+    public int getPackedState() {
+        return states[stateIndex];
+    }
+
+    /**
+     * Restore the state of this pipe from its packed representation, as
+     * stored in the host's state array.
+     * <p>
+     * Invalid states reset the pipe.
+     *
+     * @param state the packed state to restore.
+     */
+    public void setPackedState(final int state) {
+        if (getReadState(state) > COMPLETE || getWriteState(state) > COMPLETE) {
+            states[stateIndex] = 0; // This can only happen if someone messes with the save.
+        } else {
+            states[stateIndex] = state;
+        }
+
+        onStateChanged();
     }
 
-    public void writeToNBT(final CompoundTag nbt) {
-        EnumUtils.writeToNBT(readState, TAG_READ_STATE, nbt);
-        EnumUtils.writeToNBT(writeState, TAG_WRITE_STATE, nbt);
-        nbt.putShort(TAG_VALUE, value);
+    /**
+     * Restore the state of this pipe from the legacy format, where each pipe
+     * was stored in its own tag.
+     *
+     * @param nbt the tag to read the state from.
+     */
+    public void readFromNBT(final CompoundTag nbt) {
+        final State readState = EnumUtils.readFromNBT(State.class, TAG_READ_STATE, nbt);
+        final State writeState = EnumUtils.readFromNBT(State.class, TAG_WRITE_STATE, nbt);
+        states[stateIndex] = pack(readState.ordinal(), writeState.ordinal(), nbt.getShort(TAG_VALUE));
+
+        onStateChanged();
     }
 
     private void finishTransfer() {
-        readState = State.IDLE;
-        writeState = State.IDLE;
-        value = 0;
+        states[stateIndex] = 0;
+
+        onStateChanged();
 
         host.onWriteComplete(sendingFace, sendingPort);
     }
 
+    private void onStateChanged() {
+        host.onPipeActiveChanged(index, (states[stateIndex] & TRANSFER_MASK) != 0);
+
+        final int count = listenerCount;
+        listenerCount = 0;
+        for (int i = 0; i < count; i++) {
+            final PipeListener listener = listeners[i];
+            listeners[i] = null;
+            listener.onPipeChanged();
+        }
+    }
+
+    private static int pack(final int readState, final int writeState, final short value) {
+        return readState | (writeState << WRITE_STATE_SHIFT) | (value << VALUE_SHIFT);
+    }
+
+    private static int getReadState(final int state) {
+        return state & STATE_MASK;
+    }
+
+    private static int getWriteState(final int state) {
+        return (state >>> WRITE_STATE_SHIFT) & STATE_MASK;
+    }
+
+    private static short getValue(final int state) {
+        return (short)(state >> VALUE_SHIFT);
+    }
+
     // --------------------------------------------------------------------- //
     // Pipe
 
     @Override
     public void beginWrite(final short value) {
-        if (writeState != State.IDLE) {
+        final int state = states[stateIndex];
+        if (getWriteState(state) != IDLE) {
             throw new IllegalStateException("Trying to write to a busy pipe. Check isWriting().");
         }
-        writeState = State.BUSY;
-        this.value = value;
+        states[stateIndex] = pack(getReadState(state), BUSY, value);
+
+        onStateChanged();
     }
 
     @Override
     public void cancelWrite() {
-        if (writeState == State.COMPLETE && readState == State.COMPLETE) {
+        final int state = states[stateIndex];
+        final int readState = getReadState(state);
+        final int writeState = getWriteState(state);
+        if (writeState == COMPLETE && readState == COMPLETE) {
             return; // Ignore, wait for next step() to avoid execution order dependent cycle count.
         }
 
-        writeState = State.IDLE;
-        value = 0;
-        if (readState == State.FLUSHING) {
-            readState = State.READY;
+        states[stateIndex] = pack(readState == FLUSHING ? READY : readState, IDLE, (short)0);
+
+        if (writeState != IDLE) {
+            onStateChanged();
         }
     }
 
     @Override
     public boolean isWriting() {
-        return writeState != State.IDLE;
+        return getWriteState(states[stateIndex]) != IDLE;
     }
 
     @Override
     public void beginRead() {
-        if (readState != State.IDLE) {
+        final int state = states[stateIndex];
+        if (getReadState(state) != IDLE) {
             throw new IllegalStateException("Trying to read from a busy pipe. Check isReading().");
         }
-        readState = State.BUSY;
+        states[stateIndex] = state | BUSY; // Read state is IDLE, i.e. zero.
+
+        onStateChanged();
     }
 
     @Override
     public void cancelRead() {
-        if (writeState == State.COMPLETE && readState == State.COMPLETE) {
+        final int state = states[stateIndex];
+        final int readState = getReadState(state);
+        final int writeState = getWriteState(state);
+        if (writeState == COMPLETE && readState == COMPLETE) {
             return; // Ignore, wait for next step() to avoid execution order dependent cycle count.
         }
 
-        readState = State.IDLE;
-        if (writeState == State.FLUSHING) {
-            writeState = State.READY;
+        states[stateIndex] = pack(IDLE, writeState == FLUSHING ? READY : writeState, getValue(state));
+
+        if (readState != IDLE) {
+            onStateChanged();
         }
     }
 
     @Override
     public boolean isReading() {
-        return readState != State.IDLE;
+        return getReadState(states[stateIndex]) != IDLE;
     }
 
     @Override
     public boolean canTransfer() {
-        return writeState == State.FLUSHING && readState == State.FLUSHING;
+        return (states[stateIndex] & TRANSFER_MASK) == TRANSFER_FLUSHING;
     }
 
     @Override
@@ -199,8 +357,10 @@ public final class PipeImpl implements Pipe {
             throw new IllegalStateException("No data to read. Check canTransfer().");
         }
 
-        writeState = State.COMPLETE;
-        readState = State.COMPLETE;
+        final short value = getValue(states[stateIndex]);
+        states[stateIndex] = pack(COMPLETE, COMPLETE, value);
+
+        onStateChanged();
 
         sendEffect();
 
@@ -219,7 +379,12 @@ public final class PipeImpl implements Pipe {
         final double z = oz * 0.55 + position.getZ() + 0.5;
         final double extraOffsetY = oy < 0 ? -0.2 : (oy > 0) ? 0.1 : 0;
 
-        Network.INSTANCE.sendRedstoneEffect(host.getPipeHostWorld(), x, y + extraOffsetY, z);
+        final DeferredEffects effects = DeferredEffects.currentConcurrent();
+        if (effects != null) {
+            effects.add(() -> Network.INSTANCE.sendRedstoneEffect(host.getPipeHostWorld(), x, y + extraOffsetY, z));
+        } else {
+            Network.INSTANCE.sendRedstoneEffect(host.getPipeHostWorld(), x, y + extraOffsetY, z);
+        }
     }
 
     // --------------------------------------------------------------------- //
@@ -227,6 +392,7 @@ public final class PipeImpl implements Pipe {
 
     @Override
     public String toString() {
-        return host.getPipeHostPosition() + ": " + sendingFace + " [" + writeState + "] -> " + receivingFace + " [" + readState + "]";
+        final int state = states[stateIndex];
+        return host.getPipeHostPosition() + ": " + sendingFace + " [" + State.VALUES[getWriteState(state)] + "] -> " + receivingFace + " [" + State.VALUES[getReadState(state)] + "]";
     }
 }
@@ -0,0 +1,18 @@
+package li.cil.tis3d.common.machine;
+
+/**
+ * Callback for objects interested in state changes of a {@link PipeImpl}.
+ * <p>
+ * Listeners are one-shot: once notified they are removed from the pipe and
+ * have to register again if they want to be notified of further changes.
+ * Listeners must not register with the notifying pipe from inside
+ * {@link #onPipeChanged()}.
+ *
+ * @see PipeImpl#addListener(PipeListener)
+ */
+public interface PipeListener {
+    /**
+     * Called when the state of a pipe the listener registered with changed.
+     */
+    void onPipeChanged();
+}
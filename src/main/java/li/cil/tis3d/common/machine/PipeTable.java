@@ -0,0 +1,286 @@
+package li.cil.tis3d.common.machine;
+
+import li.cil.tis3d.api.machine.Face;
+import li.cil.tis3d.api.machine.Pipe;
+import li.cil.tis3d.api.machine.Port;
+
+import javax.annotation.Nullable;
+import java.util.Arrays;
+
+/**
+ * The pipes of a single computer block and where they are routed to, for
+ * all {@link PipeHost}s that are part of a multi-block.
+ * <p>
+ * Pipes on faces with an adjacent computer block are not used. Instead, the
+ * pipes on open faces are connected around the multi-block to the open face
+ * they lead to, by following the tables of the adjacent blocks, see
+ * {@link #rebuildOverrides()}. Only pipes taking part in a transfer are
+ * stepped, see {@link #step()}.
+ */
+public final class PipeTable {
+    /**
+     * The flat list of all {@link Pipe}s of the block.
+     * <p>
+     * Indexed by face and port using {@link PipeLayout#pack(Face, Port)}.
+     */
+    private final PipeImpl[] pipes = new PipeImpl[PipeLayout.PIPE_COUNT];
+
+    /**
+     * The packed states of all {@link #pipes}, indexed the same way starting
+     * at {@link #stateOffset}. The pipes operate directly on this array.
+     * <p>
+     * This is the table's own array, unless the table is part of a
+     * {@link CompiledMachine}, in which case it is the array holding the
+     * states of all pipes of the multi-block, see {@link #bindStates(int[], int)}.
+     */
+    private int[] states = new int[PipeLayout.PIPE_COUNT];
+
+    /**
+     * The index of the state of the first pipe in {@link #states}.
+     */
+    private int stateOffset;
+
+    /**
+     * The routing table of the block: the pipe each pipe of the block is
+     * connected to, indexed like {@link #pipes}. This is the pipe itself,
+     * unless it is on an open face, in which case it is the pipe of the open
+     * face around the multi-block it leads to. Kept across rebuilds and only
+     * updated where routes changed, see {@link #rebuildOverrides()}.
+     */
+    private final PipeImpl[] overrides = new PipeImpl[pipes.length];
+
+    /**
+     * Routes computed by {@link #rebuildOverrides()}, before being compared
+     * to the current ones. Kept to avoid allocating it on each rebuild.
+     */
+    private final PipeImpl[] computedOverrides = new PipeImpl[pipes.length];
+
+    /**
+     * The tables of the adjacent computer blocks, per face.
+     */
+    private final PipeTable[] neighbors = new PipeTable[Face.VALUES.length];
+
+    /**
+     * Bit mask of the pipes currently taking part in a transfer, indexed like
+     * {@link #pipes}. All other pipes are idle and need no stepping.
+     */
+    private int activePipes;
+
+    // --------------------------------------------------------------------- //
+
+    public PipeTable(final PipeHost host) {
+        for (final Face face : Face.VALUES) {
+            for (final Port port : Port.VALUES) {
+                final int pipeIndex = PipeLayout.pack(face, port);
+                overrides[pipeIndex] = pipes[pipeIndex] = new PipeImpl(host, states, pipeIndex, face, PipeLayout.mapFace(face, port), PipeLayout.mapPort(face, port));
+            }
+        }
+    }
+
+    /**
+     * Advances the logic of all pipes by calling {@link PipeImpl#step()} on them.
+     * <p>
+     * This will advance pipes with both an active read and write operation to
+     * transferring mode, if they're not already in transferring mode. Idle
+     * pipes are skipped, since stepping them has no effect.
+     */
+    public void step() {
+        // Re-read the mask after each step: finishing a transfer may lead to
+        // modules starting new transfers. Pipes activated this way after the
+        // current one in iteration order must still be stepped this cycle.
+        int index = 0;
+        while (index < pipes.length) {
+            final int remaining = activePipes >>> index;
+            if (remaining == 0) {
+                break;
+            }
+            index += Integer.numberOfTrailingZeros(remaining);
+            pipes[index].step();
+            index++;
+        }
+    }
+
+    /**
+     * Get the list of all pipes of the block.
+     *
+     * @return the list of pipes.
+     */
+    public PipeImpl[] getPipes() {
+        return pipes;
+    }
+
+    /**
+     * Get a copy of the packed states of all pipes of the block, for
+     * persisting them.
+     *
+     * @return the packed pipe states.
+     */
+    public int[] copyStates() {
+        return Arrays.copyOfRange(states, stateOffset, stateOffset + pipes.length);
+    }
+
+    /**
+     * Move the states of the pipes of the block into the specified array,
+     * starting at the specified index, keeping their values.
+     *
+     * @param states the array to store the states in.
+     * @param offset the index of the state of the first pipe in that array.
+     */
+    public void bindStates(final int[] states, final int offset) {
+        for (int index = 0; index < pipes.length; index++) {
+            pipes[index].bindState(states, offset + index);
+        }
+        this.states = states;
+        this.stateOffset = offset;
+    }
+
+    /**
+     * Move the states of the pipes of the block out of the specified array
+     * into an array of their own, keeping their values. Does nothing if the
+     * states are not stored in the specified array (anymore).
+     *
+     * @param states the array to move the states out of.
+     */
+    public void unbindStates(final int[] states) {
+        if (this.states == states) {
+            bindStates(new int[pipes.length], 0);
+        }
+    }
+
+    /**
+     * Receiving pipe for the specified face and port.
+     *
+     * @param face the face to get the pipe for.
+     * @param port the port for which to get the pipe.
+     * @return the input pipe on that port.
+     * @see li.cil.tis3d.api.machine.Casing#getReceivingPipe(Face, Port)
+     */
+    public Pipe getReceivingPipe(final Face face, final Port port) {
+        return overrides[PipeLayout.pack(face, port)];
+    }
+
+    /**
+     * Sending pipe for the specified face and port.
+     *
+     * @param face the face to get the pipe for.
+     * @param port the port for which to get the pipe.
+     * @return the output pipe on that port.
+     * @see li.cil.tis3d.api.machine.Casing#getSendingPipe(Face, Port)
+     */
+    public Pipe getSendingPipe(final Face face, final Port port) {
+        return overrides[PipeLayout.packMapped(face, port)];
+    }
+
+    /**
+     * Set the table of the computer block adjacent to the specified face.
+     * Takes effect on the next call to {@link #rebuildOverrides()}.
+     *
+     * @param face     the face the block is adjacent to.
+     * @param neighbor the table of the block, if there is one.
+     */
+    public void setNeighbor(final Face face, @Nullable final PipeTable neighbor) {
+        neighbors[face.ordinal()] = neighbor;
+    }
+
+    /**
+     * Track whether a pipe is taking part in a transfer, see
+     * {@link PipeHost#onPipeActiveChanged(int, boolean)}.
+     *
+     * @param index    the index of the pipe.
+     * @param isActive whether the pipe is now active.
+     */
+    public void setPipeActive(final int index, final boolean isActive) {
+        if (isActive) {
+            activePipes |= 1 << index;
+        } else {
+            activePipes &= ~(1 << index);
+        }
+    }
+
+    /**
+     * Recompute the routes of the pipes on open faces of the block, then
+     * apply those that differ from the current ones.
+     *
+     * @return a bit mask of the faces, by ordinal, whose modules read from
+     * or write to a pipe that was rerouted.
+     */
+    public int rebuildOverrides() {
+        // Start from the initial state before checking for inter-block connections.
+        System.arraycopy(pipes, 0, computedOverrides, 0, pipes.length);
+
+        // Check each open face's neighbors, if they're in front of another
+        // computer block, start connecting the pipe to where that leads us.
+        for (final Face face : Face.VALUES) {
+            if (neighbors[face.ordinal()] != null) {
+                continue;
+            }
+
+            for (final Port port : Port.VALUES) {
+                final Face otherFace = PipeLayout.mapFace(face, port);
+                final Port otherPort = PipeLayout.mapPort(face, port);
+
+                final PipeTable neighbor = neighbors[otherFace.ordinal()];
+                if (neighbor != null) {
+                    final Face neighborFace = otherFace.getOpposite();
+                    final Port neighborPort = PipeLayout.flipSide(otherFace, otherPort);
+                    neighbor.computePipeOverrides(neighborFace, neighborPort, this, face, port, computedOverrides);
+                }
+            }
+        }
+
+        int changedFaces = 0;
+        for (int index = 0; index < pipes.length; index++) {
+            if (overrides[index] != computedOverrides[index]) {
+                overrides[index] = computedOverrides[index];
+
+                // Affects the module reading from the pipe and the one writing
+                // to it, on the other side of the edge.
+                final Face face = PipeLayout.unpackFace(index);
+                changedFaces |= 1 << face.ordinal();
+                changedFaces |= 1 << PipeLayout.mapFace(face, PipeLayout.unpackPort(index)).ordinal();
+            }
+        }
+        return changedFaces;
+    }
+
+    // --------------------------------------------------------------------- //
+
+    /**
+     * Computes the route of the pipe on the specified face and port of the
+     * block we're searching for by traversing the multi-block until an open face
+     * is found that at face and port connects to. Used to bridge casings so
+     * that we can write values to modules of other casings without latency.
+     *
+     * @param face      the face of <em>this</em> block to search from.
+     * @param port      the port of <em>this</em> block to search from.
+     * @param start     the table of the block we're searching for.
+     * @param startFace the face on the block we're searching for.
+     * @param startPort the port on the block we're searching for.
+     * @param result    the routes being computed for the block we're searching for.
+     */
+    private void computePipeOverrides(final Face face, final Port port, final PipeTable start, final Face startFace, final Port startPort, final PipeImpl[] result) {
+        // Avoid cycles for inner faces of 2x2 structures.
+        if (start == this) {
+            return;
+        }
+
+        final Face otherFace = PipeLayout.mapFace(face, port);
+        final Port otherPort = PipeLayout.mapPort(face, port);
+
+        final PipeTable neighbor = neighbors[otherFace.ordinal()];
+        if (neighbor != null) {
+            // Got a neighbor, continue searching through it. This can continue
+            // only two times before we run into the early exit above.
+            final Face neighborFace = otherFace.getOpposite();
+            final Port neighborPort = PipeLayout.flipSide(otherFace, otherPort);
+            neighbor.computePipeOverrides(neighborFace, neighborPort, start, startFace, startPort, result);
+        } else {
+            // No neighbor, we have an open face. Use as target for the pipe.
+            // override in the original computer. Setting this up in one
+            // direction suffices as this is performed in both directions.
+            final int receivingIndex = PipeLayout.pack(startFace, startPort);
+            final int mySendingIndex = PipeLayout.packMapped(otherFace, otherPort);
+            result[receivingIndex] = pipes[mySendingIndex];
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package li.cil.tis3d.common.mixin;
+
+import li.cil.tis3d.common.block.entity.ControllerScheduler;
+import net.minecraft.world.World;
+import org.spongepowered.asm.mixin.Final;
+import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.Shadow;
+import org.spongepowered.asm.mixin.injection.At;
+import org.spongepowered.asm.mixin.injection.Inject;
+import org.spongepowered.asm.mixin.injection.callback.CallbackInfo;
+
+@Mixin(World.class)
+public abstract class ControllerSchedulerMixin {
+    @Shadow
+    @Final
+    public boolean isClient;
+
+    @Inject(method = "tickBlockEntities", at = @At("TAIL"))
+    private void onBlockEntitiesTicked(final CallbackInfo ci) {
+        if (!isClient) {
+            ControllerScheduler.stepScheduled();
+        }
+    }
+}
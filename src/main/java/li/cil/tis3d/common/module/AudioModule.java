@@ -26,7 +26,7 @@ import net.minecraft.world.World;
 /**
  * The audio module, emitting sounds like none other.
  */
-public final class AudioModule extends AbstractModule {
+public final class AudioModule extends AbstractModule implements ConcurrentlySteppable {
     // --------------------------------------------------------------------- //
     // Computed data
 
@@ -120,8 +120,10 @@ public final class AudioModule extends AbstractModule {
         final double z = pos.getZ() + 0.5 + facing.getOffsetZ() * 0.6;
 
         // Let there be sound!
-        final World world = getCasing().getCasingWorld();
-        world.playSound(null, x, y, z, instrument.getSound(), SoundCategory.BLOCKS, volume, pitch);
-        ((ServerWorld)world).spawnParticles(ParticleTypes.NOTE, x, y, z, 1, 0, 0, 0, 0);
+        getCasing().queueEffect(() -> {
+            final World world = getCasing().getCasingWorld();
+            world.playSound(null, x, y, z, instrument.getSound(), SoundCategory.BLOCKS, volume, pitch);
+            ((ServerWorld)world).spawnParticles(ParticleTypes.NOTE, x, y, z, 1, 0, 0, 0, 0);
+        });
     }
 }
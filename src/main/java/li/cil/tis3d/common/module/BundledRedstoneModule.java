@@ -1,7 +1,6 @@
 package li.cil.tis3d.common.module;
 
 import io.netty.buffer.ByteBuf;
-import io.netty.buffer.Unpooled;
 import li.cil.tis3d.api.BundledRedstoneAPI;
 import li.cil.tis3d.api.machine.Casing;
 import li.cil.tis3d.api.machine.Face;
@@ -15,7 +14,6 @@ import li.cil.tis3d.client.init.Textures;
 import li.cil.tis3d.util.ColorUtils;
 import net.fabricmc.api.EnvType;
 import net.fabricmc.api.Environment;
-import net.minecraft.block.Block;
 import net.minecraft.client.render.RenderLayer;
 import net.minecraft.client.render.VertexConsumer;
 import net.minecraft.client.render.VertexConsumerProvider;
@@ -52,18 +50,6 @@ public final class BundledRedstoneModule extends AbstractModuleWithRotation impl
     private static final float SHARED_V0 = 10 / 32f;
     private static final float V_STEP = 1 / 16f;
 
-    /**
-     * The last tick we updated. Used to avoid changing output multiple times a
-     * tick, which is usually pointless and really bad for performance.
-     */
-    private long lastStep = 0L;
-
-    /**
-     * Something changed last tick after the first neighbor block update, so
-     * we need to update again in the next tick (if we don't anyway).
-     */
-    private boolean scheduledNeighborUpdate = false;
-
     // --------------------------------------------------------------------- //
 
     public BundledRedstoneModule(final Casing casing, final Face face) {
@@ -75,18 +61,10 @@ public final class BundledRedstoneModule extends AbstractModuleWithRotation impl
 
     @Override
     public void step() {
-        final World world = getCasing().getCasingWorld();
-
         for (final Port port : Port.VALUES) {
             stepOutput(port);
             stepInput(port);
         }
-
-        if (scheduledNeighborUpdate && world.getTime() > lastStep) {
-            notifyNeighbors();
-        }
-
-        lastStep = world.getTime();
     }
 
     @Override
@@ -311,8 +289,8 @@ public final class BundledRedstoneModule extends AbstractModuleWithRotation impl
         // If the value changed, make sure we're saved.
         getCasing().markDirty();
 
-        // Notify neighbors, avoid multiple world updates per tick.
-        scheduledNeighborUpdate = true;
+        // Notify neighbors, merged with other updates of the casing in this tick.
+        getCasing().notifyNeighbors();
 
         // Notify bundled redstone APIs.
         final BundledRedstoneOutputChangedEvent event = new BundledRedstoneOutputChangedEvent(this, channel);
@@ -321,22 +299,11 @@ public final class BundledRedstoneModule extends AbstractModuleWithRotation impl
         sendData();
     }
 
-    /**
-     * Notify all neighbors of a block update, to let them realize our output changed.
-     */
-    private void notifyNeighbors() {
-        final World world = getCasing().getCasingWorld();
-
-        scheduledNeighborUpdate = false;
-        final Block blockType = world.getBlockState(getCasing().getPosition()).getBlock();
-        world.updateNeighborsAlways(getCasing().getPosition(), blockType);
-    }
-
     /**
      * Send the current state of the module (to the client).
      */
     private void sendData() {
-        final ByteBuf data = Unpooled.buffer();
+        final ByteBuf data = getCasing().allocateData();
         for (final short value : input) {
             data.writeShort(value);
         }
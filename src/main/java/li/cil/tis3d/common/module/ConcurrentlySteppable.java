@@ -0,0 +1,21 @@
+package li.cil.tis3d.common.module;
+
+import li.cil.tis3d.api.module.Module;
+import li.cil.tis3d.common.machine.DeferredEffects;
+
+/**
+ * Marker interface for modules that may be stepped on a thread other than
+ * the server thread, see {@link li.cil.tis3d.common.Settings#concurrentControllerStepping}.
+ * <p>
+ * Such modules must not access the world in {@link Module#step()} or in the
+ * pipe callbacks triggered while stepping, other than reading data that does
+ * not change while block entities tick, such as the world time. All their
+ * side effects must go through the casing, i.e.
+ * {@link li.cil.tis3d.api.machine.Casing#markDirty()},
+ * {@link li.cil.tis3d.api.machine.Casing#notifyNeighbors()},
+ * {@link li.cil.tis3d.api.machine.Casing#queueEffect(Runnable)} and sending
+ * data, which are queued in the {@link DeferredEffects} bound to the stepping
+ * thread.
+ */
+public interface ConcurrentlySteppable extends Module {
+}
@@ -1,7 +1,6 @@
 package li.cil.tis3d.common.module;
 
 import io.netty.buffer.ByteBuf;
-import io.netty.buffer.Unpooled;
 import li.cil.tis3d.api.machine.Casing;
 import li.cil.tis3d.api.machine.Face;
 import li.cil.tis3d.api.machine.Pipe;
@@ -30,7 +29,7 @@ import javax.annotation.Nullable;
 import java.util.Arrays;
 import java.util.LinkedList;
 
-public final class DisplayModule extends AbstractModuleWithRotation {
+public final class DisplayModule extends AbstractModuleWithRotation implements ConcurrentlySteppable {
     @Environment(EnvType.CLIENT)
     public static final class LeakDetector {
         private static final LinkedList<NativeImageBackedTexture> leakedTextures = new LinkedList<>();
@@ -363,7 +362,7 @@ public final class DisplayModule extends AbstractModuleWithRotation {
      * Indicate to our client representation to clear the image data.
      */
     private void sendClear() {
-        final ByteBuf data = Unpooled.buffer();
+        final ByteBuf data = getCasing().allocateData();
         data.writeBoolean(true);
         getCasing().sendData(getFace(), data, DATA_TYPE_CLEAR);
     }
@@ -372,7 +371,7 @@ public final class DisplayModule extends AbstractModuleWithRotation {
      * Send a draw call to our client representation.
      */
     private void sendDrawCall() {
-        final ByteBuf data = Unpooled.buffer();
+        final ByteBuf data = getCasing().allocateData();
         data.writeBoolean(false);
         data.writeBytes(drawCall);
         getCasing().sendData(getFace(), data);
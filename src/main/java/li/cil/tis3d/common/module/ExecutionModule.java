@@ -1,9 +1,9 @@
 package li.cil.tis3d.common.module;
 
 import io.netty.buffer.ByteBuf;
-import io.netty.buffer.Unpooled;
 import li.cil.tis3d.api.machine.Casing;
 import li.cil.tis3d.api.machine.Face;
+import li.cil.tis3d.api.machine.Pipe;
 import li.cil.tis3d.api.machine.Port;
 import li.cil.tis3d.api.module.traits.BlockChangeAware;
 import li.cil.tis3d.api.prefab.module.AbstractModuleWithRotation;
@@ -14,6 +14,8 @@ import li.cil.tis3d.client.render.font.SmallFontRenderer;
 import li.cil.tis3d.common.Constants;
 import li.cil.tis3d.common.init.Items;
 import li.cil.tis3d.common.item.CodeBookItem;
+import li.cil.tis3d.common.machine.PipeImpl;
+import li.cil.tis3d.common.machine.PipeListener;
 import li.cil.tis3d.common.module.execution.MachineImpl;
 import li.cil.tis3d.common.module.execution.MachineState;
 import li.cil.tis3d.common.module.execution.compiler.Compiler;
@@ -42,11 +44,12 @@ import net.minecraft.world.World;
 
 import javax.annotation.Nullable;
 import java.util.*;
+import java.util.function.Consumer;
 
 /**
  * The programmable execution module.
  */
-public final class ExecutionModule extends AbstractModuleWithRotation implements BlockChangeAware {
+public final class ExecutionModule extends AbstractModuleWithRotation implements BlockChangeAware, PipeListener, ConcurrentlySteppable {
     // --------------------------------------------------------------------- //
     // Persisted data
 
@@ -57,6 +60,27 @@ public final class ExecutionModule extends AbstractModuleWithRotation implements
     // --------------------------------------------------------------------- //
     // Computed data
 
+    /**
+     * Whether the module is known to make no progress when stepped until
+     * something in its environment changes. Set after a step in which the
+     * machine did not advance, cleared when one of the pipes the module is
+     * connected to changes its state or the module's state is changed from
+     * the outside. Stepping is skipped while set.
+     */
+    private boolean isSleeping;
+
+    /**
+     * Whether the execution state changed and {@link #partialStateWriter} is
+     * queued to send it. Cleared when the writer is called, so the state is
+     * serialized once per sent packet, regardless of how often it changed.
+     */
+    private boolean isPartialStateDirty;
+
+    /**
+     * Writes the current execution state when the queued data is sent.
+     */
+    private final Consumer<ByteBuf> partialStateWriter = this::writePartialState;
+
     private enum State {
         IDLE,
         ERR,
@@ -100,6 +124,10 @@ public final class ExecutionModule extends AbstractModuleWithRotation implements
 
     @Override
     public void step() {
+        if (isSleeping) {
+            return;
+        }
+
         final State prevState = state;
 
         if (compileError != null) {
@@ -119,10 +147,14 @@ public final class ExecutionModule extends AbstractModuleWithRotation implements
             getCasing().markDirty();
             sendPartialState();
         }
+
+        sleep();
     }
 
     @Override
     public void onEnabled() {
+        isSleeping = false;
+
         sendFullState();
     }
 
@@ -130,12 +162,14 @@ public final class ExecutionModule extends AbstractModuleWithRotation implements
     public void onDisabled() {
         getState().reset();
         state = State.IDLE;
+        isSleeping = false;
 
         sendPartialState();
     }
 
     @Override
     public void onBeforeWriteComplete(final Port port) {
+        isSleeping = false;
         if (compileError == null) {
             machine.onBeforeWriteComplete(port);
         }
@@ -143,6 +177,7 @@ public final class ExecutionModule extends AbstractModuleWithRotation implements
 
     @Override
     public void onWriteComplete(final Port port) {
+        isSleeping = false;
         if (compileError == null) {
             machine.onWriteCompleted(port);
         }
@@ -221,13 +256,13 @@ public final class ExecutionModule extends AbstractModuleWithRotation implements
     @Override
     public void onData(final ByteBuf data) {
         final MachineState machineState = getState();
-        machineState.pc = data.readShort();
-        machineState.acc = data.readShort();
-        machineState.bak = data.readShort();
+        machineState.setPc(data.readShort());
+        machineState.setAcc(data.readShort());
+        machineState.setBak(data.readShort());
         if (data.readBoolean()) {
-            machineState.last = Optional.of(Port.values()[data.readByte()]);
+            machineState.setLast(Port.values()[data.readByte()]);
         } else {
-            machineState.last = Optional.empty();
+            machineState.clearLast();
         }
         state = State.values()[data.readByte()];
     }
@@ -261,6 +296,8 @@ public final class ExecutionModule extends AbstractModuleWithRotation implements
     @Override
     public void readFromNBT(final CompoundTag nbt) {
         super.readFromNBT(nbt);
+        machine.updateRotation();
+        isSleeping = false;
 
         final CompoundTag machineNbt = nbt.getCompound(TAG_MACHINE);
         getState().readFromNBT(machineNbt);
@@ -303,6 +340,24 @@ public final class ExecutionModule extends AbstractModuleWithRotation implements
         }
     }
 
+    // --------------------------------------------------------------------- //
+    // Rotatable
+
+    @Override
+    public void setFacing(final Port facing) {
+        super.setFacing(facing);
+        machine.updateRotation();
+        isSleeping = false;
+    }
+
+    // --------------------------------------------------------------------- //
+    // PipeListener
+
+    @Override
+    public void onPipeChanged() {
+        isSleeping = false;
+    }
+
     // --------------------------------------------------------------------- //
 
     /**
@@ -316,6 +371,7 @@ public final class ExecutionModule extends AbstractModuleWithRotation implements
      */
     private void compile(final Iterable<String> code, final PlayerEntity player) {
         compileError = null;
+        isSleeping = false;
         try {
             getState().clear();
             Compiler.compile(code, getState());
@@ -325,6 +381,33 @@ public final class ExecutionModule extends AbstractModuleWithRotation implements
         }
     }
 
+    /**
+     * Put the module to sleep after a step in which it made no progress.
+     * <p>
+     * Stepping the module again will have no effect until either its own
+     * state or the state of one of the pipes it reads from or writes to
+     * changes, so we register with those pipes to be woken up. Other
+     * changes wake the module explicitly.
+     */
+    private void sleep() {
+        isSleeping = true;
+
+        if (state == State.WAIT) {
+            final Casing casing = getCasing();
+            for (final Port port : Port.VALUES) {
+                addPipeListener(casing.getReceivingPipe(getFace(), port));
+                addPipeListener(casing.getSendingPipe(getFace(), port));
+            }
+        }
+    }
+
+    private void addPipeListener(final Pipe pipe) {
+        // Locked pipes never change, unlocking them wakes the module.
+        if (pipe instanceof PipeImpl) {
+            ((PipeImpl)pipe).addListener(this);
+        }
+    }
+
     /**
      * Send the full state to the client.
      */
@@ -338,20 +421,35 @@ public final class ExecutionModule extends AbstractModuleWithRotation implements
      * Send the current execution state to the client.
      */
     private void sendPartialState() {
-        if (!isVisible()) {
+        if (isPartialStateDirty) {
             return;
         }
 
-        final ByteBuf data = Unpooled.buffer();
+        isPartialStateDirty = true;
+        getCasing().sendData(getFace(), partialStateWriter, DATA_TYPE_INCREMENTAL);
+    }
 
-        data.writeShort((short)getState().pc);
-        data.writeShort(getState().acc);
-        data.writeShort(getState().bak);
-        data.writeBoolean(getState().last.isPresent());
-        getState().last.ifPresent(port -> data.writeByte((byte)port.ordinal()));
-        data.writeByte(state.ordinal());
+    /**
+     * Serialize the current execution state, when it is actually sent.
+     *
+     * @param data the buffer to write the state to.
+     */
+    private void writePartialState(final ByteBuf data) {
+        isPartialStateDirty = false;
 
-        getCasing().sendData(getFace(), data, DATA_TYPE_INCREMENTAL);
+        // Checked here rather than when queueing, since checking visibility
+        // accesses the world, and the module may have been removed since.
+        if (getCasing().getModule(getFace()) != this || !isVisible()) {
+            return;
+        }
+
+        final MachineState machineState = getState();
+        data.writeShort((short)machineState.getPc());
+        data.writeShort(machineState.getAcc());
+        data.writeShort(machineState.getBak());
+        data.writeBoolean(machineState.getLast().isPresent());
+        machineState.getLast().ifPresent(port -> data.writeByte((byte)port.ordinal()));
+        data.writeByte(state.ordinal());
     }
 
     @Environment(EnvType.CLIENT)
@@ -367,10 +465,10 @@ public final class ExecutionModule extends AbstractModuleWithRotation implements
         final VertexConsumer vcFont = fontRenderer.chooseVertexConsumer(vcp);
 
         // Draw register info on top.
-        final String accLast = String.format("ACC:%4X LAST:%s", machineState.acc, machineState.last.map(Enum::name).orElse("NONE"));
+        final String accLast = String.format("ACC:%4X LAST:%s", machineState.getAcc(), machineState.getLast().map(Enum::name).orElse("NONE"));
         fontRenderer.drawString(matrices.peek(), vcFont, light, overlay, accLast);
         matrices.translate(0, fontRenderer.getCharHeight() + 4, 0);
-        final String bakState = String.format("BAK:%4X MODE:%s", machineState.bak, state.name());
+        final String bakState = String.format("BAK:%4X MODE:%s", machineState.getBak(), state.name());
         fontRenderer.drawString(matrices.peek(), vcFont, light, overlay, bakState);
         matrices.translate(0, fontRenderer.getCharHeight() + 4, 0);
 
@@ -385,7 +483,7 @@ public final class ExecutionModule extends AbstractModuleWithRotation implements
         final int totalLines = machineState.code.length;
         final int currentLine;
         if (machineState.lineNumbers.size() > 0) {
-            currentLine = Optional.ofNullable(machineState.lineNumbers.get(machineState.pc)).orElse(-1);
+            currentLine = Optional.ofNullable(machineState.lineNumbers.get(machineState.getPc())).orElse(-1);
         } else if (compileError != null) {
             currentLine = compileError.getLineNumber();
         } else {
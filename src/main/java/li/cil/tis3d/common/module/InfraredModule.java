@@ -30,7 +30,7 @@ import net.minecraft.world.World;
 import java.util.Deque;
 import java.util.LinkedList;
 
-public final class InfraredModule extends AbstractModule implements InfraredReceiver {
+public final class InfraredModule extends AbstractModule implements InfraredReceiver, ConcurrentlySteppable {
     // --------------------------------------------------------------------- //
     // Persisted data
 
@@ -205,6 +205,6 @@ public final class InfraredModule extends AbstractModule implements InfraredRece
         final Vec3d position = new Vec3d(blockPos.getX() + 0.5, blockPos.getY() + 0.5, blockPos.getZ() + 0.5);
         final Vec3d direction = new Vec3d(facing.getOffsetX(), facing.getOffsetY(), facing.getOffsetZ());
 
-        InfraredAPI.sendPacket(world, position, direction, value);
+        getCasing().queueEffect(() -> InfraredAPI.sendPacket(world, position, direction, value));
     }
 }
@@ -1,7 +1,6 @@
 package li.cil.tis3d.common.module;
 
 import io.netty.buffer.ByteBuf;
-import io.netty.buffer.Unpooled;
 import li.cil.tis3d.api.machine.Casing;
 import li.cil.tis3d.api.machine.Face;
 import li.cil.tis3d.api.machine.Pipe;
@@ -29,7 +28,7 @@ import net.minecraft.util.math.MathHelper;
  * <p>
  * While it is not full, it will receive data on all ports and push them back.
  */
-public final class QueueModule extends AbstractModuleWithRotation {
+public final class QueueModule extends AbstractModuleWithRotation implements ConcurrentlySteppable {
     // --------------------------------------------------------------------- //
     // Persisted data
 
@@ -258,7 +257,7 @@ public final class QueueModule extends AbstractModuleWithRotation {
     }
 
     private void sendData() {
-        final ByteBuf data = Unpooled.buffer();
+        final ByteBuf data = getCasing().allocateData();
         data.writeByte(head);
         data.writeByte(tail);
         for (final short value : queue) {
@@ -1,7 +1,6 @@
 package li.cil.tis3d.common.module;
 
 import io.netty.buffer.ByteBuf;
-import io.netty.buffer.Unpooled;
 import li.cil.tis3d.api.machine.Casing;
 import li.cil.tis3d.api.machine.Face;
 import li.cil.tis3d.api.machine.Pipe;
@@ -35,7 +34,7 @@ import java.util.Arrays;
  * <li>ACCESS: await either read to retrieve value or write to set value, all ports writing, all ports reading.</li>
  * </ul>
  */
-public class RandomAccessMemoryModule extends AbstractModuleWithRotation {
+public class RandomAccessMemoryModule extends AbstractModuleWithRotation implements ConcurrentlySteppable {
     // --------------------------------------------------------------------- //
     // Persisted data
 
@@ -345,13 +344,13 @@ public class RandomAccessMemoryModule extends AbstractModuleWithRotation {
     }
 
     private void sendClear() {
-        final ByteBuf data = Unpooled.buffer();
+        final ByteBuf data = getCasing().allocateData();
         data.writeByte(PACKET_CLEAR);
         getCasing().sendData(getFace(), data, DATA_TYPE_CLEAR);
     }
 
     private void sendSingle() {
-        final ByteBuf data = Unpooled.buffer();
+        final ByteBuf data = getCasing().allocateData();
         data.writeByte(PACKET_SINGLE);
         data.writeByte(address);
         data.writeByte(memory[address & 0xFF]);
@@ -359,7 +358,7 @@ public class RandomAccessMemoryModule extends AbstractModuleWithRotation {
     }
 
     private void sendFull() {
-        final ByteBuf data = Unpooled.buffer();
+        final ByteBuf data = getCasing().allocateData();
         data.writeByte(PACKET_FULL);
         data.writeBytes(memory);
         getCasing().sendData(getFace(), data);
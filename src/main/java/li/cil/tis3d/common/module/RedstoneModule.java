@@ -1,7 +1,6 @@
 package li.cil.tis3d.common.module;
 
 import io.netty.buffer.ByteBuf;
-import io.netty.buffer.Unpooled;
 import li.cil.tis3d.api.machine.Casing;
 import li.cil.tis3d.api.machine.Face;
 import li.cil.tis3d.api.machine.Pipe;
@@ -12,7 +11,6 @@ import li.cil.tis3d.api.util.RenderUtil;
 import li.cil.tis3d.client.init.Textures;
 import net.fabricmc.api.EnvType;
 import net.fabricmc.api.Environment;
-import net.minecraft.block.Block;
 import net.minecraft.client.render.RenderLayer;
 import net.minecraft.client.render.VertexConsumer;
 import net.minecraft.client.render.VertexConsumerProvider;
@@ -22,7 +20,7 @@ import net.minecraft.client.util.math.MatrixStack;
 import net.minecraft.nbt.CompoundTag;
 import net.minecraft.world.World;
 
-public final class RedstoneModule extends AbstractModuleWithRotation implements Redstone {
+public final class RedstoneModule extends AbstractModuleWithRotation implements Redstone, ConcurrentlySteppable {
     // --------------------------------------------------------------------- //
     // Persisted data
 
@@ -49,18 +47,6 @@ public final class RedstoneModule extends AbstractModuleWithRotation implements
     private static final float SHARED_W = 3 / 32f;
     private static final float SHARED_H = SHARED_V1 - SHARED_V0;
 
-    /**
-     * The last tick we updated. Used to avoid changing output multiple times a
-     * tick, which is usually pointless and really bad for performance.
-     */
-    private long lastStep = 0L;
-
-    /**
-     * Something changed last tick after the first neighbor block update, so
-     * we need to update again in the next tick (if we don't anyway).
-     */
-    private boolean scheduledNeighborUpdate = false;
-
     // --------------------------------------------------------------------- //
 
     public RedstoneModule(final Casing casing, final Face face) {
@@ -72,18 +58,10 @@ public final class RedstoneModule extends AbstractModuleWithRotation implements
 
     @Override
     public void step() {
-        final World world = getCasing().getCasingWorld();
-
         for (final Port port : Port.VALUES) {
             stepOutput(port);
             stepInput(port);
         }
-
-        if (scheduledNeighborUpdate && world.getTime() > lastStep) {
-            notifyNeighbors();
-        }
-
-        lastStep = world.getTime();
     }
 
     @Override
@@ -91,7 +69,7 @@ public final class RedstoneModule extends AbstractModuleWithRotation implements
         input = 0;
         output = 0;
 
-        notifyNeighbors();
+        getCasing().notifyNeighbors();
 
         sendData();
     }
@@ -248,28 +226,17 @@ public final class RedstoneModule extends AbstractModuleWithRotation implements
         // If the value changed, make sure we're saved.
         getCasing().markDirty();
 
-        // Notify neighbors, avoid multiple world updates per tick.
-        scheduledNeighborUpdate = true;
+        // Notify neighbors, merged with other updates of the casing in this tick.
+        getCasing().notifyNeighbors();
 
         sendData();
     }
 
-    /**
-     * Notify all neighbors of a block update, to let them realize our output changed.
-     */
-    private void notifyNeighbors() {
-        final World world = getCasing().getCasingWorld();
-
-        scheduledNeighborUpdate = false;
-        final Block blockType = world.getBlockState(getCasing().getPosition()).getBlock();
-        world.updateNeighborsAlways(getCasing().getPosition(), blockType);
-    }
-
     /**
      * Send the current state of the module (to the client).
      */
     private void sendData() {
-        final ByteBuf data = Unpooled.buffer();
+        final ByteBuf data = getCasing().allocateData();
         data.writeShort(input);
         data.writeShort(output);
         getCasing().sendData(getFace(), data, DATA_TYPE_UPDATE);
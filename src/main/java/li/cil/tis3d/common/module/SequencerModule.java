@@ -1,7 +1,6 @@
 package li.cil.tis3d.common.module;
 
 import io.netty.buffer.ByteBuf;
-import io.netty.buffer.Unpooled;
 import li.cil.tis3d.api.machine.Casing;
 import li.cil.tis3d.api.machine.Face;
 import li.cil.tis3d.api.machine.Pipe;
@@ -258,7 +257,7 @@ public final class SequencerModule extends AbstractModuleWithRotation {
     }
 
     private void sendConfiguration(final Side toSide) {
-        final ByteBuf data = Unpooled.buffer();
+        final ByteBuf data = getCasing().allocateData();
         if (toSide == Side.CLIENT) {
             data.writeBoolean(true);
         }
@@ -267,7 +266,7 @@ public final class SequencerModule extends AbstractModuleWithRotation {
     }
 
     private void sendPosition() {
-        final ByteBuf data = Unpooled.buffer();
+        final ByteBuf data = getCasing().allocateData();
         data.writeBoolean(false);
         data.writeByte(position);
         getCasing().sendData(getFace(), data, DATA_TYPE_POSITION);
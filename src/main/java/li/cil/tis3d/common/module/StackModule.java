@@ -1,7 +1,6 @@
 package li.cil.tis3d.common.module;
 
 import io.netty.buffer.ByteBuf;
-import io.netty.buffer.Unpooled;
 import li.cil.tis3d.api.machine.Casing;
 import li.cil.tis3d.api.machine.Face;
 import li.cil.tis3d.api.machine.Pipe;
@@ -29,7 +28,7 @@ import net.minecraft.util.math.MathHelper;
  * <p>
  * While it is not full, it will receive data on all ports and push them back.
  */
-public final class StackModule extends AbstractModuleWithRotation {
+public final class StackModule extends AbstractModuleWithRotation implements ConcurrentlySteppable {
     // --------------------------------------------------------------------- //
     // Persisted data
 
@@ -249,7 +248,7 @@ public final class StackModule extends AbstractModuleWithRotation {
     }
 
     private void sendData() {
-        final ByteBuf data = Unpooled.buffer();
+        final ByteBuf data = getCasing().allocateData();
         data.writeByte(top);
         for (final short value : stack) {
             data.writeShort(value);
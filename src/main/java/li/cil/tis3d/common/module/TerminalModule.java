@@ -1,7 +1,6 @@
 package li.cil.tis3d.common.module;
 
 import io.netty.buffer.ByteBuf;
-import io.netty.buffer.Unpooled;
 import li.cil.tis3d.api.machine.Casing;
 import li.cil.tis3d.api.machine.Face;
 import li.cil.tis3d.api.machine.Pipe;
@@ -139,13 +138,19 @@ public final class TerminalModule extends AbstractModuleWithRotation {
         display.clear();
         output.setLength(0);
 
-        final ByteBuf data = Unpooled.buffer();
+        final ByteBuf data = getCasing().allocateData();
         data.writeByte(PACKET_CLEAR);
         getCasing().sendData(getFace(), data);
     }
 
     @Override
     public void onDisposed() {
+        // Pooled buffer, release it if it never got sent.
+        if (sendBuffer != null) {
+            sendBuffer.release();
+            sendBuffer = null;
+        }
+
         if (getCasing().getCasingWorld().isClient) {
             //noinspection MethodCallSideOnly Guarded by isClient check.
             closeGui();
@@ -415,7 +420,7 @@ public final class TerminalModule extends AbstractModuleWithRotation {
     // Networking
 
     private void sendInputEnabled(final boolean value) {
-        final ByteBuf response = Unpooled.buffer();
+        final ByteBuf response = getCasing().allocateData();
         response.writeByte(PACKET_INPUT);
         response.writeBoolean(value);
         getCasing().sendData(getFace(), response, DATA_TYPE_INPUT);
@@ -423,14 +428,14 @@ public final class TerminalModule extends AbstractModuleWithRotation {
 
     private void sendDisplayToClient(final char ch) {
         if (sendBuffer == null) {
-            sendBuffer = Unpooled.buffer();
+            sendBuffer = getCasing().allocateData();
             sendBuffer.writeByte(PACKET_DISPLAY);
         }
         sendBuffer.writeChar(ch);
     }
 
     private void sendInputToServer() {
-        final ByteBuf data = Unpooled.buffer();
+        final ByteBuf data = getCasing().allocateData();
         writeString(data, input.toString());
         getCasing().sendData(getFace(), data, DATA_TYPE_INPUT);
     }
@@ -1,7 +1,6 @@
 package li.cil.tis3d.common.module;
 
 import io.netty.buffer.ByteBuf;
-import io.netty.buffer.Unpooled;
 import li.cil.tis3d.api.machine.Casing;
 import li.cil.tis3d.api.machine.Face;
 import li.cil.tis3d.api.machine.Pipe;
@@ -31,7 +30,7 @@ import net.minecraft.nbt.CompoundTag;
  * This module will receive data on all ports and push back a value while the
  * timer is zero.
  */
-public final class TimerModule extends AbstractModuleWithRotation {
+public final class TimerModule extends AbstractModuleWithRotation implements ConcurrentlySteppable {
     // --------------------------------------------------------------------- //
     // Persisted data
 
@@ -196,7 +195,7 @@ public final class TimerModule extends AbstractModuleWithRotation {
     }
 
     private void sendData() {
-        final ByteBuf data = Unpooled.buffer();
+        final ByteBuf data = getCasing().allocateData();
         data.writeLong(timer);
         getCasing().sendData(getFace(), data, DATA_TYPE_UPDATE);
     }
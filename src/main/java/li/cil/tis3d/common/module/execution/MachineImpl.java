@@ -1,15 +1,12 @@
 package li.cil.tis3d.common.module.execution;
 
-import com.google.common.collect.ImmutableMap;
 import li.cil.tis3d.api.machine.Face;
+import li.cil.tis3d.api.machine.HaltAndCatchFireException;
 import li.cil.tis3d.api.machine.Port;
 import li.cil.tis3d.common.module.ExecutionModule;
-import li.cil.tis3d.common.module.execution.instruction.Instruction;
+import li.cil.tis3d.common.module.execution.instruction.Opcodes;
 import li.cil.tis3d.common.module.execution.target.*;
 
-import javax.annotation.Nullable;
-import java.util.Map;
-
 /**
  * Track machine state and ease communicating with ports of an execution module.
  */
@@ -22,24 +19,54 @@ public final class MachineImpl implements Machine {
     // Computed data
 
     private final ExecutionModule module;
-    private final Map<Target, TargetInterface> interfaces;
+
+    /**
+     * Interfaces for all targets, indexed by {@link Target#ordinal()}.
+     */
+    private final TargetInterface[] interfaces;
+
+    /**
+     * Interfaces for all targets with the module's rotation applied to port
+     * targets, indexed by {@link Target#ordinal()}.
+     *
+     * @see #updateRotation()
+     */
+    private final TargetInterface[] rotatedInterfaces;
+
+    /**
+     * Marker returned by {@link #read(int)} when no value is available yet.
+     * Valid values are always in <tt>short</tt> range.
+     */
+    private static final int NO_VALUE = Integer.MIN_VALUE;
 
     // --------------------------------------------------------------------- //
 
     public MachineImpl(final ExecutionModule module, final Face face) {
         this.state = new MachineState();
         this.module = module;
-        this.interfaces = ImmutableMap.<Target, TargetInterface>builder().
-            put(Target.ACC, new AccTargetInterface(this)).
-            put(Target.BAK, new BakTargetInterface(this)).
-            put(Target.NIL, new NilTargetInterface(this)).
-            put(Target.LEFT, new SideTargetInterface(this, module, face, Port.LEFT)).
-            put(Target.RIGHT, new SideTargetInterface(this, module, face, Port.RIGHT)).
-            put(Target.UP, new SideTargetInterface(this, module, face, Port.UP)).
-            put(Target.DOWN, new SideTargetInterface(this, module, face, Port.DOWN)).
-            put(Target.ANY, new AnyTargetInterface(this, module, face)).
-            put(Target.LAST, new LastTargetInterface(this, module, face)).
-            build();
+        this.interfaces = new TargetInterface[Target.VALUES.length];
+        interfaces[Target.ACC.ordinal()] = new AccTargetInterface(this);
+        interfaces[Target.BAK.ordinal()] = new BakTargetInterface(this);
+        interfaces[Target.NIL.ordinal()] = new NilTargetInterface(this);
+        interfaces[Target.LEFT.ordinal()] = new SideTargetInterface(this, module, face, Port.LEFT);
+        interfaces[Target.RIGHT.ordinal()] = new SideTargetInterface(this, module, face, Port.RIGHT);
+        interfaces[Target.UP.ordinal()] = new SideTargetInterface(this, module, face, Port.UP);
+        interfaces[Target.DOWN.ordinal()] = new SideTargetInterface(this, module, face, Port.DOWN);
+        interfaces[Target.ANY.ordinal()] = new AnyTargetInterface(this, module, face);
+        interfaces[Target.LAST.ordinal()] = new LastTargetInterface(this, module, face);
+        this.rotatedInterfaces = new TargetInterface[Target.VALUES.length];
+        updateRotation();
+    }
+
+    /**
+     * Rebuild the lookup table of rotated target interfaces.
+     * <p>
+     * Must be called whenever the facing of the hosting module changes.
+     */
+    public void updateRotation() {
+        for (final Target target : Target.VALUES) {
+            rotatedInterfaces[target.ordinal()] = interfaces[getRotatedTarget(target).ordinal()];
+        }
     }
 
     /**
@@ -49,9 +76,10 @@ public final class MachineImpl implements Machine {
      * @return <tt>true</tt> if the current instruction changed (even if it's the same again).
      */
     public boolean step() {
-        final Instruction instruction = getInstruction();
-        if (instruction != null) {
-            instruction.step(this);
+        final int offset = getInstructionOffset();
+        if (offset >= 0) {
+            final int[] bytecode = state.bytecode;
+            execute(bytecode[offset + Opcodes.OFFSET_OPCODE], bytecode[offset + Opcodes.OFFSET_A], bytecode[offset + Opcodes.OFFSET_B]);
         }
 
         return state.finishCycle();
@@ -64,9 +92,9 @@ public final class MachineImpl implements Machine {
      * @see li.cil.tis3d.api.module.Module#onBeforeWriteComplete(Port)
      */
     public void onBeforeWriteComplete(final Port port) {
-        final Instruction instruction = getInstruction();
-        if (instruction != null) {
-            instruction.onBeforeWriteComplete(this, port);
+        final int offset = getInstructionOffset();
+        if (offset >= 0 && isMove(state.bytecode[offset + Opcodes.OFFSET_OPCODE])) {
+            getInterface(state.bytecode[offset + Opcodes.OFFSET_B]).onBeforeWriteComplete(port);
         }
     }
 
@@ -79,23 +107,228 @@ public final class MachineImpl implements Machine {
      * @param port the port on which the write operation was completed.
      */
     public void onWriteCompleted(final Port port) {
-        final Instruction instruction = getInstruction();
-        if (instruction != null) {
-            instruction.onWriteCompleted(this, port);
+        final int offset = getInstructionOffset();
+        if (offset >= 0 && isMove(state.bytecode[offset + Opcodes.OFFSET_OPCODE])) {
+            state.registers.pc[state.index]++;
         }
     }
 
+    // --------------------------------------------------------------------- //
+
     /**
-     * Utility method for safely retrieving the current instruction.
+     * Utility method for safely retrieving the offset of the current
+     * instruction in the bytecode of the machine's program.
      *
-     * @return the currently active instruction, or <tt>null</tt>.
+     * @return the offset of the active instruction, or <tt>-1</tt>.
      */
-    @Nullable
-    private Instruction getInstruction() {
-        if (state.pc >= 0 && state.pc < state.instructions.size()) {
-            return state.instructions.get(state.pc);
+    private int getInstructionOffset() {
+        final int pc = state.registers.pc[state.index];
+        if (pc >= 0 && pc < state.bytecode.length / Opcodes.INSTRUCTION_SIZE) {
+            return pc * Opcodes.INSTRUCTION_SIZE;
         }
-        return null;
+        return -1;
+    }
+
+    /**
+     * Whether the specified opcode is that of an instruction writing to a
+     * target, i.e. one that waits for its write operation to complete.
+     *
+     * @param opcode the opcode to check.
+     * @return <tt>true</tt> if the opcode belongs to a move instruction.
+     */
+    private static boolean isMove(final int opcode) {
+        return opcode == Opcodes.MOV || opcode == Opcodes.MOV_IMM;
+    }
+
+    /**
+     * Run a single step of the instruction with the specified encoding.
+     * <p>
+     * Instructions increment the program counter themselves once done.
+     *
+     * @param opcode the opcode of the instruction.
+     * @param a      the first operand of the instruction.
+     * @param b      the second operand of the instruction.
+     */
+    private void execute(final int opcode, final int a, final int b) {
+        // Registers may be shared with other machines, ours are in slot i.
+        final MachineRegisters registers = state.registers;
+        final int[] pc = registers.pc;
+        final short[] acc = registers.acc;
+        final short[] bak = registers.bak;
+        final byte[] last = registers.last;
+        final int i = state.index;
+
+        final int value;
+        switch (opcode) {
+            case Opcodes.MOV: {
+                final TargetInterface destination = getInterface(b);
+                if (!destination.isWriting()) {
+                    final int read = read(a);
+                    if (read != NO_VALUE && destination.beginWrite((short)read)) {
+                        pc[i]++;
+                    }
+                }
+                return;
+            }
+            case Opcodes.MOV_IMM: {
+                final TargetInterface destination = getInterface(b);
+                if (!destination.isWriting() && destination.beginWrite((short)a)) {
+                    pc[i]++;
+                }
+                return;
+            }
+
+            case Opcodes.ADD:
+            case Opcodes.SUB:
+            case Opcodes.MUL:
+            case Opcodes.DIV:
+            case Opcodes.AND:
+            case Opcodes.OR:
+            case Opcodes.XOR:
+            case Opcodes.SHL:
+            case Opcodes.SHR:
+            case Opcodes.JRO:
+                value = read(a);
+                if (value == NO_VALUE) {
+                    return;
+                }
+                break;
+            default:
+                value = a;
+                break;
+        }
+
+        switch (opcode) {
+            case Opcodes.ADD:
+            case Opcodes.ADD_IMM:
+                acc[i] = saturate(acc[i] + value);
+                break;
+            case Opcodes.SUB:
+            case Opcodes.SUB_IMM:
+                acc[i] = saturate(acc[i] - value);
+                break;
+            case Opcodes.MUL:
+            case Opcodes.MUL_IMM:
+                acc[i] = saturate(acc[i] * value);
+                break;
+            case Opcodes.DIV:
+            case Opcodes.DIV_IMM:
+                if (value == 0) {
+                    throw new HaltAndCatchFireException();
+                }
+                acc[i] = saturate(acc[i] / value);
+                break;
+            case Opcodes.AND:
+            case Opcodes.AND_IMM:
+                acc[i] &= value;
+                break;
+            case Opcodes.OR:
+            case Opcodes.OR_IMM:
+                acc[i] |= value;
+                break;
+            case Opcodes.XOR:
+            case Opcodes.XOR_IMM:
+                acc[i] ^= value;
+                break;
+            case Opcodes.SHL:
+            case Opcodes.SHL_IMM:
+                acc[i] <<= value;
+                break;
+            case Opcodes.SHR:
+            case Opcodes.SHR_IMM:
+                acc[i] >>= value;
+                break;
+            case Opcodes.NOT:
+                acc[i] = (short)~acc[i];
+                break;
+            case Opcodes.NEG:
+                acc[i] = (short)-acc[i];
+                break;
+            case Opcodes.SAV:
+                bak[i] = acc[i];
+                break;
+            case Opcodes.SWP: {
+                final short tmp = acc[i];
+                acc[i] = bak[i];
+                bak[i] = tmp;
+                break;
+            }
+            case Opcodes.HCF:
+                throw new HaltAndCatchFireException();
+            case Opcodes.RLLAST:
+                if (last[i] != MachineRegisters.NO_PORT) {
+                    last[i] = (byte)Port.VALUES[last[i]].rotated(-1).ordinal();
+                }
+                break;
+            case Opcodes.RRLAST:
+                if (last[i] != MachineRegisters.NO_PORT) {
+                    last[i] = (byte)Port.VALUES[last[i]].rotated(1).ordinal();
+                }
+                break;
+
+            case Opcodes.JMP:
+                pc[i] = value;
+                return;
+            case Opcodes.JEZ:
+                pc[i] = acc[i] == 0 ? value : pc[i] + 1;
+                return;
+            case Opcodes.JNZ:
+                pc[i] = acc[i] != 0 ? value : pc[i] + 1;
+                return;
+            case Opcodes.JGZ:
+                pc[i] = acc[i] > 0 ? value : pc[i] + 1;
+                return;
+            case Opcodes.JLZ:
+                pc[i] = acc[i] < 0 ? value : pc[i] + 1;
+                return;
+            case Opcodes.JRO:
+            case Opcodes.JRO_IMM:
+                pc[i] += value;
+                return;
+
+            default:
+                throw new IllegalStateException("Invalid opcode: " + opcode);
+        }
+
+        pc[i]++;
+    }
+
+    /**
+     * Try to read a value from the target with the specified ordinal, starting
+     * a read operation if necessary.
+     *
+     * @param target the ordinal of the target to read from.
+     * @return the value read, or {@link #NO_VALUE} if none is available yet.
+     */
+    private int read(final int target) {
+        final TargetInterface source = getInterface(target);
+        if (!source.isReading()) {
+            source.beginRead();
+        }
+        if (source.canTransfer()) {
+            return source.read();
+        }
+        return NO_VALUE;
+    }
+
+    /**
+     * Clamp the specified value to the range of a register.
+     *
+     * @param value the value to clamp.
+     * @return the clamped value.
+     */
+    private static short saturate(final int value) {
+        return (short)Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, value));
+    }
+
+    /**
+     * Get the interface for the target with the specified ordinal.
+     *
+     * @param target the ordinal of the target.
+     * @return the interface for that target.
+     */
+    private TargetInterface getInterface(final int target) {
+        return rotatedInterfaces[target];
     }
 
     // --------------------------------------------------------------------- //
@@ -108,8 +341,7 @@ public final class MachineImpl implements Machine {
 
     @Override
     public TargetInterface getInterface(final Target target) {
-        final Target rotatedTarget = getRotatedTarget(target);
-        return interfaces.get(rotatedTarget);
+        return rotatedInterfaces[target.ordinal()];
     }
 
     // --------------------------------------------------------------------- //
@@ -0,0 +1,86 @@
+package li.cil.tis3d.common.module.execution;
+
+import java.util.Arrays;
+
+/**
+ * The registers of a number of virtual machines, stored as flat arrays
+ * indexed by the slot of each machine, rather than per machine.
+ * <p>
+ * Each {@link MachineState} is a view on one slot. By default states own
+ * registers with a single slot; controllers move the states of all their
+ * execution modules into a shared instance, so that stepping them walks
+ * these arrays in order, see {@link li.cil.tis3d.common.machine.CompiledMachine}.
+ */
+public final class MachineRegisters {
+    /**
+     * Marker stored in {@link #last} when no port was read from yet.
+     */
+    static final byte NO_PORT = -1;
+
+    /**
+     * Program counters, i.e. the index of the next operation to execute.
+     */
+    final int[] pc;
+
+    /**
+     * Accumulator registers.
+     */
+    final short[] acc;
+
+    /**
+     * Backup registers.
+     */
+    final short[] bak;
+
+    /**
+     * The ports last read from, by <tt>ordinal()</tt>, or {@link #NO_PORT}.
+     */
+    final byte[] last;
+
+    /**
+     * Program counters after the last call to {@link MachineState#finishCycle()}.
+     */
+    final int[] pcPrev;
+
+    // --------------------------------------------------------------------- //
+
+    /**
+     * Create registers for the specified number of machines, all reset.
+     *
+     * @param capacity the number of machines to hold registers for.
+     */
+    public MachineRegisters(final int capacity) {
+        pc = new int[capacity];
+        acc = new short[capacity];
+        bak = new short[capacity];
+        last = new byte[capacity];
+        pcPrev = new int[capacity];
+        Arrays.fill(last, NO_PORT);
+    }
+
+    /**
+     * Get the number of machines these registers can hold.
+     *
+     * @return the number of slots.
+     */
+    public int getCapacity() {
+        return pc.length;
+    }
+
+    // --------------------------------------------------------------------- //
+
+    /**
+     * Copy the registers in the specified slot to a slot of other registers.
+     *
+     * @param index       the slot to copy.
+     * @param target      the registers to copy to.
+     * @param targetIndex the slot to copy to.
+     */
+    void copyTo(final int index, final MachineRegisters target, final int targetIndex) {
+        target.pc[targetIndex] = pc[index];
+        target.acc[targetIndex] = acc[index];
+        target.bak[targetIndex] = bak[index];
+        target.last[targetIndex] = last[index];
+        target.pcPrev[targetIndex] = pcPrev[index];
+    }
+}
@@ -2,53 +2,43 @@ package li.cil.tis3d.common.module.execution;
 
 import li.cil.tis3d.api.machine.Port;
 import li.cil.tis3d.common.Constants;
-import li.cil.tis3d.common.Settings;
 import li.cil.tis3d.common.module.execution.compiler.Compiler;
 import li.cil.tis3d.common.module.execution.compiler.ParseException;
 import li.cil.tis3d.common.module.execution.instruction.Instruction;
+import li.cil.tis3d.common.module.execution.instruction.Opcodes;
 import li.cil.tis3d.util.EnumUtils;
 import net.minecraft.nbt.CompoundTag;
 
+import javax.annotation.Nullable;
 import java.util.*;
 
 /**
  * Virtual machine state for executing TIS-100 assembly.
+ * <p>
+ * The registers are not stored in the state itself, but in a slot of some
+ * {@link MachineRegisters}, which may be shared with other machines, see
+ * {@link #attach(MachineRegisters, int)}.
  */
-@SuppressWarnings("OptionalUsedAsFieldOrParameterType")
 public final class MachineState {
     // --------------------------------------------------------------------- //
     // Persisted data
 
     /**
-     * Program counter, i.e. the index of the next operation to execute.
+     * The registers holding the program counter, accumulator, backup register
+     * and last port of this machine, in slot {@link #index}.
      */
-    public int pc = 0;
+    MachineRegisters registers = new MachineRegisters(1);
 
     /**
-     * Accumulator register.
+     * The slot of this machine in {@link #registers}.
      */
-    public short acc = 0;
-
-    /**
-     * Backup register.
-     */
-    public short bak = 0;
-
-    /**
-     * The port last read from.
-     */
-    public Optional<Port> last = Optional.empty();
+    int index;
 
     /**
      * Lines of original code this state was compiled from.
      */
     public String[] code;
 
-    /**
-     * State of program counter after last call to {@link #finishCycle()}.
-     */
-    private int pcPrev;
-
     // --------------------------------------------------------------------- //
     // Computed data
 
@@ -60,23 +50,124 @@ public final class MachineState {
     private static final String TAG_LAST = "last";
     private static final String TAG_PC_PREV = "pcPrev";
 
+    /**
+     * The compiled program stored in the machine, if any. The fields below
+     * refer to its parts, which are shared by all machines running the same
+     * code, and must not be modified.
+     */
+    @Nullable
+    private Program program;
+
     /**
      * List of instructions (the program) stored in the machine.
      */
-    public final List<Instruction> instructions = new ArrayList<>(Settings.maxLinesPerProgram);
+    public List<Instruction> instructions = Collections.emptyList();
 
     /**
      * List of labels and associated addresses.
      */
-    public final HashMap<String, Integer> labels = new HashMap<>(Settings.maxLinesPerProgram);
+    public Map<String, Integer> labels = Collections.emptyMap();
 
     /**
      * Instruction address to line number mapping.
      */
-    public final HashMap<Integer, Integer> lineNumbers = new HashMap<>(Settings.maxLinesPerProgram);
+    public Map<Integer, Integer> lineNumbers = Collections.emptyMap();
+
+    /**
+     * The pre-decoded form of {@link #instructions} interpreted by the machine,
+     * see {@link Opcodes}. Rebuilt by the compiler, never modified in-place.
+     */
+    public int[] bytecode = EMPTY_BYTECODE;
+
+    /**
+     * Shared empty program.
+     */
+    private static final int[] EMPTY_BYTECODE = new int[0];
+
+    /**
+     * Pre-allocated values for {@link #getLast()}, indexed by port <tt>ordinal()</tt>.
+     */
+    @SuppressWarnings("unchecked")
+    private static final Optional<Port>[] LAST_PORTS = Arrays.stream(Port.VALUES).map(Optional::of).toArray(Optional[]::new);
 
     // --------------------------------------------------------------------- //
 
+    /**
+     * Move the registers of this machine into the specified slot of the
+     * specified registers, keeping their values.
+     *
+     * @param registers the registers to move to.
+     * @param index     the slot to use in those registers.
+     */
+    public void attach(final MachineRegisters registers, final int index) {
+        this.registers.copyTo(this.index, registers, index);
+        this.registers = registers;
+        this.index = index;
+    }
+
+    /**
+     * Move the registers of this machine out of the specified registers into
+     * registers of its own, keeping their values. Does nothing if the machine
+     * is not stored in the specified registers (anymore).
+     *
+     * @param registers the registers to move out of.
+     */
+    public void detach(final MachineRegisters registers) {
+        if (this.registers == registers) {
+            attach(new MachineRegisters(1), 0);
+        }
+    }
+
+    public int getPc() {
+        return registers.pc[index];
+    }
+
+    public void setPc(final int pc) {
+        registers.pc[index] = pc;
+    }
+
+    public short getAcc() {
+        return registers.acc[index];
+    }
+
+    public void setAcc(final short acc) {
+        registers.acc[index] = acc;
+    }
+
+    public short getBak() {
+        return registers.bak[index];
+    }
+
+    public void setBak(final short bak) {
+        registers.bak[index] = bak;
+    }
+
+    /**
+     * Get the port last read from, if any.
+     *
+     * @return the port last read from.
+     */
+    public Optional<Port> getLast() {
+        final byte last = registers.last[index];
+        return last != MachineRegisters.NO_PORT ? LAST_PORTS[last] : Optional.empty();
+    }
+
+    /**
+     * Set the port last read from.
+     *
+     * @param port the port last read from.
+     */
+    public void setLast(final Port port) {
+        registers.last[index] = (byte)port.ordinal();
+    }
+
+    /**
+     * Forget the port last read from.
+     */
+    public void clearLast() {
+        registers.last[index] = MachineRegisters.NO_PORT;
+    }
+
     /**
      * Finishes an execution cycle, ensuring values of the state are valid ones and
      * returning whether the internal state changed since the last call to this method.
@@ -88,15 +179,17 @@ public final class MachineState {
         // state of the hosting execution module, so we need to report change when the
         // instruction at the current program counter position has finished (which we can
         // tell by seeing that it incremented / changed the program counter state).
-        final boolean hasChanged = pc != pcPrev;
+        final int[] pcs = registers.pc;
+        final int pc = pcs[index];
+        final boolean hasChanged = pc != registers.pcPrev[index];
 
         // Set to zero even when running out at the end to have programs
         // restart automatically.
         if (pc < 0 || pc >= instructions.size()) {
-            pc = 0;
+            pcs[index] = 0;
         }
 
-        pcPrev = pc;
+        registers.pcPrev[index] = pcs[index];
 
         return hasChanged;
     }
@@ -105,10 +198,10 @@ public final class MachineState {
      * Soft reset the machine state.
      */
     public void reset() {
-        pc = 0;
-        acc = 0;
-        bak = 0;
-        last = Optional.empty();
+        registers.pc[index] = 0;
+        registers.acc[index] = 0;
+        registers.bak[index] = 0;
+        registers.last[index] = MachineRegisters.NO_PORT;
     }
 
     /**
@@ -117,10 +210,26 @@ public final class MachineState {
     public void clear() {
         reset();
 
-        instructions.clear();
-        labels.clear();
+        program = null;
+        instructions = Collections.emptyList();
+        bytecode = EMPTY_BYTECODE;
+        labels = Collections.emptyMap();
         code = null;
-        lineNumbers.clear();
+        lineNumbers = Collections.emptyMap();
+    }
+
+    /**
+     * Set the compiled program stored in the machine.
+     *
+     * @param program the program to run.
+     */
+    public void setProgram(final Program program) {
+        this.program = program;
+        code = program.code;
+        instructions = program.instructions;
+        labels = program.labels;
+        lineNumbers = program.lineNumbers;
+        bytecode = program.bytecode;
     }
 
     // --------------------------------------------------------------------- //
@@ -136,23 +245,23 @@ public final class MachineState {
             }
         }
 
-        pc = nbt.getInt(TAG_PC);
-        acc = nbt.getShort(TAG_ACC);
-        bak = nbt.getShort(TAG_BAK);
+        setPc(nbt.getInt(TAG_PC));
+        setAcc(nbt.getShort(TAG_ACC));
+        setBak(nbt.getShort(TAG_BAK));
         if (nbt.contains(TAG_LAST)) {
-            last = Optional.of(EnumUtils.readFromNBT(Port.class, TAG_LAST, nbt));
+            setLast(EnumUtils.readFromNBT(Port.class, TAG_LAST, nbt));
         } else {
-            last = Optional.empty();
+            clearLast();
         }
-        pcPrev = nbt.getInt(TAG_PC_PREV);
+        registers.pcPrev[index] = nbt.getInt(TAG_PC_PREV);
     }
 
     public void writeToNBT(final CompoundTag nbt) {
-        nbt.putInt(TAG_PC, pc);
-        nbt.putShort(TAG_ACC, acc);
-        nbt.putShort(TAG_BAK, bak);
-        last.ifPresent(port -> EnumUtils.writeToNBT(port, TAG_LAST, nbt));
-        nbt.putInt(TAG_PC_PREV, pcPrev);
+        nbt.putInt(TAG_PC, getPc());
+        nbt.putShort(TAG_ACC, getAcc());
+        nbt.putShort(TAG_BAK, getBak());
+        getLast().ifPresent(port -> EnumUtils.writeToNBT(port, TAG_LAST, nbt));
+        nbt.putInt(TAG_PC_PREV, registers.pcPrev[index]);
 
         if (code != null) {
             nbt.putString(TAG_CODE, String.join("\n", code));
@@ -0,0 +1,53 @@
+package li.cil.tis3d.common.module.execution;
+
+import li.cil.tis3d.common.module.execution.instruction.Instruction;
+import li.cil.tis3d.common.module.execution.instruction.Opcodes;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A compiled program, shared by all {@link MachineState}s running the same
+ * code, see {@link li.cil.tis3d.common.module.execution.compiler.Compiler}.
+ * <p>
+ * Programs are immutable: the collections are unmodifiable, and neither the
+ * code nor the bytecode array may be modified by anyone holding them.
+ */
+public final class Program {
+    /**
+     * Lines of original code the program was compiled from.
+     */
+    public final String[] code;
+
+    /**
+     * List of instructions of the program.
+     */
+    public final List<Instruction> instructions;
+
+    /**
+     * List of labels and associated addresses.
+     */
+    public final Map<String, Integer> labels;
+
+    /**
+     * Instruction address to line number mapping.
+     */
+    public final Map<Integer, Integer> lineNumbers;
+
+    /**
+     * The pre-decoded form of {@link #instructions} interpreted by the machine,
+     * see {@link Opcodes}.
+     */
+    public final int[] bytecode;
+
+    // --------------------------------------------------------------------- //
+
+    public Program(final String[] code, final List<Instruction> instructions, final Map<String, Integer> labels, final Map<Integer, Integer> lineNumbers, final int[] bytecode) {
+        this.code = code;
+        this.instructions = Collections.unmodifiableList(instructions);
+        this.labels = Collections.unmodifiableMap(labels);
+        this.lineNumbers = Collections.unmodifiableMap(lineNumbers);
+        this.bytecode = bytecode;
+    }
+}
@@ -1,22 +1,25 @@
 package li.cil.tis3d.common.module.execution.compiler;
 
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Iterables;
 import li.cil.tis3d.common.Constants;
 import li.cil.tis3d.common.Settings;
 import li.cil.tis3d.common.module.execution.MachineState;
+import li.cil.tis3d.common.module.execution.Program;
 import li.cil.tis3d.common.module.execution.compiler.instruction.*;
 import li.cil.tis3d.common.module.execution.instruction.*;
 import li.cil.tis3d.common.module.execution.target.Target;
 
 import java.util.*;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 /**
  * Compiles TIS-100 assembly code into instructions.
  * <p>
  * Generates exceptions with line and column location if invalid code is encountered.
+ * <p>
+ * Programs compiled successfully are cached by their source, so that machines
+ * running the same code share a single compiled program, see {@link ProgramCache}.
  */
 public final class Compiler {
     /**
@@ -39,42 +42,51 @@ public final class Compiler {
             lines[lineNumber] = lines[lineNumber].toUpperCase(Locale.US);
         }
 
+        // Machines running the same code share the compiled program. The
+        // program may have been compiled with a larger max line length, so
+        // check that again; all other checks only depend on the code.
+        final List<String> source = ImmutableList.copyOf(lines);
+        final Program cachedProgram = ProgramCache.get(source);
+        if (cachedProgram != null) {
+            for (int lineNumber = 0; lineNumber < lines.length; lineNumber++) {
+                if (lines[lineNumber].length() > Settings.maxColumnsPerLine) {
+                    state.code = lines;
+                    throw new ParseException(Constants.MESSAGE_TOO_MANY_COLUMNS, lineNumber, Settings.maxColumnsPerLine, Settings.maxColumnsPerLine);
+                }
+            }
+            state.setProgram(cachedProgram);
+            return;
+        }
+
         state.code = lines;
+        state.instructions = new ArrayList<>();
+        state.labels = new HashMap<>();
+        state.lineNumbers = new HashMap<>();
 
         try {
             // Parse all lines into the specified machine state.
             final List<Validator> validators = new ArrayList<>();
             final Map<String, String> defines = new HashMap<>();
+            final LineTokens tokens = new LineTokens();
             for (int lineNumber = 0; lineNumber < lines.length; lineNumber++) {
                 // Enforce max line length.
                 if (lines[lineNumber].length() > Settings.maxColumnsPerLine) {
                     throw new ParseException(Constants.MESSAGE_TOO_MANY_COLUMNS, lineNumber, Settings.maxColumnsPerLine, Settings.maxColumnsPerLine);
                 }
 
-                // Check for defines, also trims whitespace.
-                final Matcher defineMatcher = PATTERN_DEFINE.matcher(lines[lineNumber]);
-                if (defineMatcher.matches()) {
-                    parseDefine(defineMatcher, defines);
-                }
-
-                final Matcher undefineMatcher = PATTERN_UNDEFINE.matcher(lines[lineNumber]);
-                if (undefineMatcher.matches()) {
-                    parseUndefine(undefineMatcher, defines);
-                }
-
-                // Get current line, strip comments.
-                final Matcher commentMatcher = PATTERN_COMMENT.matcher(lines[lineNumber]);
-                final String line = commentMatcher.replaceFirst("").trim();
-
-                // Extract a label, if any, pass the rest onto the instruction parser. Also trims.
-                final Matcher lineMatcher = PATTERN_LINE.matcher(line);
-                if (lineMatcher.matches()) {
-                    parseLabel(lineMatcher, state, lineNumber);
-                    parseInstruction(lineMatcher, state, lineNumber, defines, validators);
-                } else {
+                // Split the line into tokens, also strips comments and trims whitespace.
+                if (!Lexer.tokenize(lines[lineNumber], tokens)) {
                     // This should be pretty much impossible...
                     throw new ParseException(Constants.MESSAGE_INVALID_FORMAT, lineNumber, 0, 0);
                 }
+
+                // Check for defines.
+                parseDefine(tokens, defines);
+                parseUndefine(tokens, defines);
+
+                // Extract a label, if any, pass the rest onto the instruction parser.
+                parseLabel(tokens, state, lineNumber);
+                parseInstruction(tokens, state, lineNumber, defines, validators);
             }
 
             // Run all registered validators as a post-processing step. This is used
@@ -82,6 +94,16 @@ public final class Compiler {
             for (final Validator validator : validators) {
                 validator.accept(state);
             }
+
+            // Encode the program into its pre-decoded form used when executing it.
+            final int[] bytecode = new int[state.instructions.size() * Opcodes.INSTRUCTION_SIZE];
+            for (int address = 0; address < state.instructions.size(); address++) {
+                state.instructions.get(address).encode(bytecode, address * Opcodes.INSTRUCTION_SIZE, state.labels);
+            }
+
+            final Program program = new Program(lines, state.instructions, state.labels, state.lineNumbers, bytecode);
+            ProgramCache.put(source, program);
+            state.setProgram(program);
         } catch (final ParseException e) {
             state.clear();
             state.code = lines;
@@ -92,18 +114,18 @@ public final class Compiler {
     // --------------------------------------------------------------------- //
 
     /**
-     * Parse a define from the specified match and put it in the map of defines.
+     * Parse a define from the specified tokens and put it in the map of defines.
      *
-     * @param matcher the matcher for the line to parse.
+     * @param tokens  the tokens of the line to parse.
      * @param defines the map with defines to add results to.
      */
-    private static void parseDefine(final Matcher matcher, final Map<String, String> defines) {
-        final String key = matcher.group("key");
+    private static void parseDefine(final LineTokens tokens, final Map<String, String> defines) {
+        final String key = tokens.get(Token.DEFINE_KEY);
         if (key == null) {
             return;
         }
 
-        String value = matcher.group("value");
+        String value = tokens.get(Token.DEFINE_VALUE);
         if (value == null) {
             return;
         }
@@ -122,13 +144,13 @@ public final class Compiler {
     }
 
     /**
-     * Parse an undefine from the specified match and remove it from the map of defines.
+     * Parse an undefine from the specified tokens and remove it from the map of defines.
      *
-     * @param matcher the matcher for the line to parse.
+     * @param tokens  the tokens of the line to parse.
      * @param defines the map with defines to remove results from.
      */
-    private static void parseUndefine(final Matcher matcher, final Map<String, String> defines) {
-        final String key = matcher.group("key");
+    private static void parseUndefine(final LineTokens tokens, final Map<String, String> defines) {
+        final String key = tokens.get(Token.UNDEFINE_KEY);
         if (key == null) {
             return;
         }
@@ -139,19 +161,19 @@ public final class Compiler {
     /**
      * Look for a label on the specified line and store it if present.
      *
-     * @param matcher    the matcher for the line to parse.
+     * @param tokens     the tokens of the line to parse.
      * @param state      the machine state to store the label in.
      * @param lineNumber the current line number.
      */
-    private static void parseLabel(final Matcher matcher, final MachineState state, final int lineNumber) throws ParseException {
-        final String label = matcher.group("label");
+    private static void parseLabel(final LineTokens tokens, final MachineState state, final int lineNumber) throws ParseException {
+        final String label = tokens.get(Token.LABEL);
         if (label == null) {
             return;
         }
 
         // Got a label, store it and the address it represents.
         if (state.labels.containsKey(label)) {
-            throw new ParseException(Constants.MESSAGE_LABEL_DUPLICATE, lineNumber, matcher.start("label"), matcher.end("label"));
+            throw new ParseException(Constants.MESSAGE_LABEL_DUPLICATE, lineNumber, tokens.start(Token.LABEL), tokens.end(Token.LABEL));
         }
         state.labels.put(label, state.instructions.size());
     }
@@ -159,22 +181,22 @@ public final class Compiler {
     /**
      * Look for an instruction on the specified line and store it if present.
      *
-     * @param matcher    the matcher for the line to parse.
+     * @param tokens     the tokens of the line to parse.
      * @param state      the machine state to store the generated instruction in.
      * @param lineNumber the number of the line we're parsing (for exceptions).
      * @param defines    the map of currently active defines.
      * @param validators list of validators instruction emitters may add to.
      * @throws ParseException if there was a syntax error.
      */
-    private static void parseInstruction(final Matcher matcher, final MachineState state, final int lineNumber, final Map<String, String> defines, final List<Validator> validators) throws ParseException {
-        final String name = matcher.group("name");
+    private static void parseInstruction(final LineTokens tokens, final MachineState state, final int lineNumber, final Map<String, String> defines, final List<Validator> validators) throws ParseException {
+        final String name = tokens.get(Token.NAME);
         if (name == null) {
             return;
         }
 
         // Got an instruction, process arguments and instantiate it.
         final Instruction instruction = EMITTER_MAP.getOrDefault(name, EMITTER_MISSING).
-            compile(matcher, lineNumber, defines, validators);
+            compile(tokens, lineNumber, defines, validators);
 
         // Remember line numbers for debugging.
         state.lineNumbers.put(state.instructions.size(), lineNumber);
@@ -185,10 +207,6 @@ public final class Compiler {
 
     // --------------------------------------------------------------------- //
 
-    private static final Pattern PATTERN_COMMENT = Pattern.compile("#.*$");
-    private static final Pattern PATTERN_DEFINE = Pattern.compile("#DEFINE\\s+(?<key>\\S+)\\s*(?<value>\\S+)\\s*$");
-    private static final Pattern PATTERN_UNDEFINE = Pattern.compile("#UNDEF\\s+(?<key>\\S+)\\s*$");
-    private static final Pattern PATTERN_LINE = Pattern.compile("^\\s*(?:(?<label>[^:\\s]+)\\s*:\\s*)?(?:(?<name>\\S+)\\s*(?<arg1>[^,\\s]+)?\\s*,?\\s*(?<arg2>[^,\\s]+)?\\s*(?<excess>.+)?)?\\s*$");
     private static final String INSTRUCTION_NO_NAME = "NOP";
     private static final Instruction INSTRUCTION_NOP = new AddInstruction(Target.NIL);
     private static final InstructionEmitter EMITTER_MISSING = new MissingInstructionEmitter();
@@ -0,0 +1,278 @@
+package li.cil.tis3d.common.module.execution.compiler;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Splits single lines of assembly code into {@link LineTokens}.
+ * <p>
+ * Lines are scanned once from start to end, without creating any objects,
+ * producing the same tokens at the same positions as the regular expressions
+ * below. Those are still used for lines containing line terminator characters,
+ * which can only come from pasted text, because the expressions treat them
+ * specially in comments and at the end of the line.
+ */
+public final class Lexer {
+    private static final Pattern PATTERN_DEFINE = Pattern.compile("#DEFINE\\s+(?<key>\\S+)\\s*(?<value>\\S+)\\s*$");
+    private static final Pattern PATTERN_UNDEFINE = Pattern.compile("#UNDEF\\s+(?<key>\\S+)\\s*$");
+    private static final Pattern PATTERN_COMMENT = Pattern.compile("#.*$");
+    private static final Pattern PATTERN_LINE = Pattern.compile("^\\s*(?:(?<label>[^:\\s]+)\\s*:\\s*)?(?:(?<name>\\S+)\\s*(?<arg1>[^,\\s]+)?\\s*,?\\s*(?<arg2>[^,\\s]+)?\\s*(?<excess>.+)?)?\\s*$");
+
+    private static final String DIRECTIVE_DEFINE = "#DEFINE";
+    private static final String DIRECTIVE_UNDEFINE = "#UNDEF";
+    private static final char COMMENT = '#';
+    private static final char LABEL_SEPARATOR = ':';
+    private static final char ARGUMENT_SEPARATOR = ',';
+
+    // --------------------------------------------------------------------- //
+
+    /**
+     * Split the specified line into tokens.
+     *
+     * @param line   the line to split.
+     * @param tokens the tokens to store the result in.
+     * @return <tt>true</tt> if the line could be split, <tt>false</tt> if it has an invalid format.
+     */
+    public static boolean tokenize(final String line, final LineTokens tokens) {
+        if (hasLineTerminator(line)) {
+            return tokenizeWithPatterns(line, tokens);
+        }
+
+        tokens.reset(line);
+
+        scanDefine(line, tokens);
+        scanUndefine(line, tokens);
+
+        // Strip comments and surrounding whitespace, like String.trim().
+        int end = line.indexOf(COMMENT);
+        if (end < 0) {
+            end = line.length();
+        }
+        int start = 0;
+        while (start < end && line.charAt(start) <= ' ') {
+            start++;
+        }
+        while (end > start && line.charAt(end - 1) <= ' ') {
+            end--;
+        }
+
+        tokens.setCode(line, start, end - start);
+        scanCode(line, start, end, tokens);
+
+        return true;
+    }
+
+    /**
+     * Split the specified line into tokens using regular expressions. This
+     * is what {@link #tokenize(String, LineTokens)} falls back to for lines
+     * it cannot scan itself.
+     *
+     * @param line   the line to split.
+     * @param tokens the tokens to store the result in.
+     * @return <tt>true</tt> if the line could be split, <tt>false</tt> if it has an invalid format.
+     */
+    public static boolean tokenizeWithPatterns(final String line, final LineTokens tokens) {
+        tokens.reset(line);
+
+        final Matcher defineMatcher = PATTERN_DEFINE.matcher(line);
+        if (defineMatcher.matches()) {
+            set(tokens, Token.DEFINE_KEY, defineMatcher, "key");
+            set(tokens, Token.DEFINE_VALUE, defineMatcher, "value");
+        }
+        final Matcher undefineMatcher = PATTERN_UNDEFINE.matcher(line);
+        if (undefineMatcher.matches()) {
+            set(tokens, Token.UNDEFINE_KEY, undefineMatcher, "key");
+        }
+
+        final String code = PATTERN_COMMENT.matcher(line).replaceFirst("").trim();
+        final Matcher matcher = PATTERN_LINE.matcher(code);
+        if (!matcher.matches()) {
+            return false;
+        }
+
+        tokens.setCode(code, 0, matcher.end());
+        set(tokens, Token.LABEL, matcher, "label");
+        set(tokens, Token.NAME, matcher, "name");
+        set(tokens, Token.ARG1, matcher, "arg1");
+        set(tokens, Token.ARG2, matcher, "arg2");
+        set(tokens, Token.EXCESS, matcher, "excess");
+
+        return true;
+    }
+
+    // --------------------------------------------------------------------- //
+
+    /**
+     * Scan the code on a line, given by the start and end of the code in the
+     * line, into label, instruction name, arguments and excess. Each part is
+     * matched greedily, like in {@link #PATTERN_LINE}.
+     */
+    private static void scanCode(final String line, final int start, final int end, final LineTokens tokens) {
+        int position = start;
+
+        // A label is everything up to a colon, ignoring whitespace before it.
+        final int labelEnd = skipLabel(line, position, end);
+        if (labelEnd > position) {
+            final int separator = skipWhitespace(line, labelEnd, end);
+            if (separator < end && line.charAt(separator) == LABEL_SEPARATOR) {
+                tokens.set(Token.LABEL, position - start, labelEnd - start);
+                position = skipWhitespace(line, separator + 1, end);
+            }
+        }
+
+        if (position == end) {
+            return;
+        }
+
+        final int nameEnd = skipWord(line, position, end);
+        tokens.set(Token.NAME, position - start, nameEnd - start);
+        position = skipWhitespace(line, nameEnd, end);
+
+        position = scanArgument(line, position, start, end, Token.ARG1, tokens);
+        position = skipWhitespace(line, position, end);
+        if (position < end && line.charAt(position) == ARGUMENT_SEPARATOR) {
+            position = skipWhitespace(line, position + 1, end);
+        }
+        position = scanArgument(line, position, start, end, Token.ARG2, tokens);
+        position = skipWhitespace(line, position, end);
+
+        if (position < end) {
+            tokens.set(Token.EXCESS, position - start, end - start);
+        }
+    }
+
+    private static int scanArgument(final String line, final int position, final int start, final int end, final Token token, final LineTokens tokens) {
+        final int argumentEnd = skipArgument(line, position, end);
+        if (argumentEnd > position) {
+            tokens.set(token, position - start, argumentEnd - start);
+        }
+        return argumentEnd;
+    }
+
+    /**
+     * Scan a <tt>#DEFINE</tt> directive, matching {@link #PATTERN_DEFINE}.
+     * Note that a single word after the directive matches it, too, with the
+     * last character of the word as the value.
+     */
+    private static void scanDefine(final String line, final LineTokens tokens) {
+        if (!line.startsWith(DIRECTIVE_DEFINE)) {
+            return;
+        }
+
+        final int length = line.length();
+        final int keyStart = skipWhitespace(line, DIRECTIVE_DEFINE.length(), length);
+        if (keyStart == DIRECTIVE_DEFINE.length()) {
+            return;
+        }
+        final int keyEnd = skipWord(line, keyStart, length);
+        if (keyEnd == keyStart) {
+            return;
+        }
+
+        final int valueStart = skipWhitespace(line, keyEnd, length);
+        if (valueStart == length) {
+            if (keyEnd - keyStart > 1) {
+                tokens.set(Token.DEFINE_KEY, keyStart, keyEnd - 1);
+                tokens.set(Token.DEFINE_VALUE, keyEnd - 1, keyEnd);
+            }
+            return;
+        }
+
+        final int valueEnd = skipWord(line, valueStart, length);
+        if (skipWhitespace(line, valueEnd, length) == length) {
+            tokens.set(Token.DEFINE_KEY, keyStart, keyEnd);
+            tokens.set(Token.DEFINE_VALUE, valueStart, valueEnd);
+        }
+    }
+
+    /**
+     * Scan an <tt>#UNDEF</tt> directive, matching {@link #PATTERN_UNDEFINE}.
+     */
+    private static void scanUndefine(final String line, final LineTokens tokens) {
+        if (!line.startsWith(DIRECTIVE_UNDEFINE)) {
+            return;
+        }
+
+        final int length = line.length();
+        final int keyStart = skipWhitespace(line, DIRECTIVE_UNDEFINE.length(), length);
+        if (keyStart == DIRECTIVE_UNDEFINE.length()) {
+            return;
+        }
+        final int keyEnd = skipWord(line, keyStart, length);
+        if (keyEnd > keyStart && skipWhitespace(line, keyEnd, length) == length) {
+            tokens.set(Token.UNDEFINE_KEY, keyStart, keyEnd);
+        }
+    }
+
+    // --------------------------------------------------------------------- //
+
+    /**
+     * Skip characters matching <tt>\s</tt>.
+     */
+    private static int skipWhitespace(final String line, int position, final int end) {
+        while (position < end && isWhitespace(line.charAt(position))) {
+            position++;
+        }
+        return position;
+    }
+
+    /**
+     * Skip characters matching <tt>\S</tt>.
+     */
+    private static int skipWord(final String line, int position, final int end) {
+        while (position < end && !isWhitespace(line.charAt(position))) {
+            position++;
+        }
+        return position;
+    }
+
+    /**
+     * Skip characters matching <tt>[^:\s]</tt>.
+     */
+    private static int skipLabel(final String line, int position, final int end) {
+        while (position < end && !isWhitespace(line.charAt(position)) && line.charAt(position) != LABEL_SEPARATOR) {
+            position++;
+        }
+        return position;
+    }
+
+    /**
+     * Skip characters matching <tt>[^,\s]</tt>.
+     */
+    private static int skipArgument(final String line, int position, final int end) {
+        while (position < end && !isWhitespace(line.charAt(position)) && line.charAt(position) != ARGUMENT_SEPARATOR) {
+            position++;
+        }
+        return position;
+    }
+
+    /**
+     * Whether the character matches <tt>\s</tt>.
+     */
+    private static boolean isWhitespace(final char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+    }
+
+    /**
+     * Whether the line contains characters terminating a line for <tt>.</tt>
+     * and <tt>$</tt> in regular expressions.
+     */
+    private static boolean hasLineTerminator(final String line) {
+        for (int i = 0; i < line.length(); i++) {
+            final char c = line.charAt(i);
+            if (c == '\n' || c == '\r' || c == '\u0085' || c == '\u2028' || c == '\u2029') {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static void set(final LineTokens tokens, final Token token, final Matcher matcher, final String group) {
+        tokens.set(token, matcher.start(group), matcher.end(group));
+    }
+
+    // --------------------------------------------------------------------- //
+
+    private Lexer() {
+    }
+}
@@ -0,0 +1,101 @@
+package li.cil.tis3d.common.module.execution.compiler;
+
+import javax.annotation.Nullable;
+import java.util.Arrays;
+
+/**
+ * The tokens of a single line of assembly code, as split by the {@link Lexer}.
+ * <p>
+ * Token positions are columns relative to the code on the line, i.e. the line
+ * with comments and surrounding whitespace removed, which is what positions in
+ * {@link ParseException}s refer to. Absent tokens have a position of <tt>-1</tt>.
+ * <p>
+ * Instances are reused for all lines of a program, so the text of a token
+ * is only extracted when asked for.
+ */
+public final class LineTokens {
+    /**
+     * The line the tokens were read from.
+     */
+    private String line = "";
+
+    /**
+     * The string holding the code on the line, and where it starts in it.
+     */
+    private String code = "";
+    private int codeOffset;
+    private int codeLength;
+
+    private final int[] starts = new int[Token.VALUES.length];
+    private final int[] ends = new int[Token.VALUES.length];
+
+    // --------------------------------------------------------------------- //
+
+    /**
+     * Get the text of the specified token.
+     *
+     * @param token the token to get the text of.
+     * @return the text of the token, or <tt>null</tt> if the line has no such token.
+     */
+    @Nullable
+    public String get(final Token token) {
+        final int start = starts[token.ordinal()];
+        if (start < 0) {
+            return null;
+        }
+
+        final int end = ends[token.ordinal()];
+        return token.isDirective ? line.substring(start, end) : code.substring(codeOffset + start, codeOffset + end);
+    }
+
+    /**
+     * Get the column the specified token starts at.
+     *
+     * @param token the token to get the start of.
+     * @return the start of the token, or <tt>-1</tt> if the line has no such token.
+     */
+    public int start(final Token token) {
+        return starts[token.ordinal()];
+    }
+
+    /**
+     * Get the column after the last character of the specified token.
+     *
+     * @param token the token to get the end of.
+     * @return the end of the token, or <tt>-1</tt> if the line has no such token.
+     */
+    public int end(final Token token) {
+        return ends[token.ordinal()];
+    }
+
+    /**
+     * Get the length of the code on the line, i.e. the column after its last character.
+     *
+     * @return the length of the code.
+     */
+    public int getCodeLength() {
+        return codeLength;
+    }
+
+    // --------------------------------------------------------------------- //
+
+    void reset(final String line) {
+        this.line = line;
+        code = line;
+        codeOffset = 0;
+        codeLength = 0;
+        Arrays.fill(starts, -1);
+        Arrays.fill(ends, -1);
+    }
+
+    void setCode(final String code, final int offset, final int length) {
+        this.code = code;
+        codeOffset = offset;
+        codeLength = length;
+    }
+
+    void set(final Token token, final int start, final int end) {
+        starts[token.ordinal()] = start;
+        ends[token.ordinal()] = end;
+    }
+}
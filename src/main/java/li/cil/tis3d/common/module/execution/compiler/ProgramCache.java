@@ -0,0 +1,77 @@
+package li.cil.tis3d.common.module.execution.compiler;
+
+import li.cil.tis3d.common.module.execution.Program;
+
+import javax.annotation.Nullable;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Programs compiled successfully, by their normalized source, i.e. the list
+ * of their upper-cased lines, so that machines running the same
+ * code, e.g. when loading many identical execution modules, share a single
+ * compiled program.
+ * <p>
+ * Programs are only weakly referenced, and dropped once no machine state
+ * uses them anymore. Compilation happens on the server and client thread,
+ * so all access is synchronized.
+ */
+final class ProgramCache {
+    private static final Map<List<String>, ProgramReference> PROGRAMS = new HashMap<>();
+    private static final ReferenceQueue<Program> QUEUE = new ReferenceQueue<>();
+
+    // --------------------------------------------------------------------- //
+
+    /**
+     * Get the cached program compiled from the specified normalized source.
+     *
+     * @param source the normalized source of the program.
+     * @return the compiled program, if it is cached.
+     */
+    @Nullable
+    static synchronized Program get(final List<String> source) {
+        removeStaleEntries();
+        final ProgramReference reference = PROGRAMS.get(source);
+        return reference != null ? reference.get() : null;
+    }
+
+    /**
+     * Cache the program compiled from the specified normalized source.
+     *
+     * @param source  the normalized source of the program.
+     * @param program the compiled program.
+     */
+    static synchronized void put(final List<String> source, final Program program) {
+        removeStaleEntries();
+        PROGRAMS.put(source, new ProgramReference(source, program));
+    }
+
+    // --------------------------------------------------------------------- //
+
+    private static void removeStaleEntries() {
+        Reference<? extends Program> reference;
+        while ((reference = QUEUE.poll()) != null) {
+            final ProgramReference programReference = (ProgramReference)reference;
+            // May have been replaced by a newer program in the meantime.
+            PROGRAMS.remove(programReference.source, programReference);
+        }
+    }
+
+    private static final class ProgramReference extends WeakReference<Program> {
+        final List<String> source;
+
+        ProgramReference(final List<String> source, final Program program) {
+            super(program, QUEUE);
+            this.source = source;
+        }
+    }
+
+    // --------------------------------------------------------------------- //
+
+    private ProgramCache() {
+    }
+}
@@ -0,0 +1,66 @@
+package li.cil.tis3d.common.module.execution.compiler;
+
+/**
+ * The kinds of tokens a line of assembly code is split into by the {@link Lexer}.
+ */
+public enum Token {
+    /**
+     * The label at the start of a line, without the colon.
+     */
+    LABEL(false),
+
+    /**
+     * The name of the instruction on a line.
+     */
+    NAME(false),
+
+    /**
+     * The first argument of the instruction.
+     */
+    ARG1(false),
+
+    /**
+     * The second argument of the instruction.
+     */
+    ARG2(false),
+
+    /**
+     * Anything following the second argument, which is always an error.
+     */
+    EXCESS(false),
+
+    /**
+     * The name defined by a <tt>#DEFINE</tt> directive.
+     */
+    DEFINE_KEY(true),
+
+    /**
+     * The value defined by a <tt>#DEFINE</tt> directive.
+     */
+    DEFINE_VALUE(true),
+
+    /**
+     * The name removed by an <tt>#UNDEF</tt> directive.
+     */
+    UNDEFINE_KEY(true);
+
+    // --------------------------------------------------------------------- //
+
+    /**
+     * Whether this is part of a preprocessor directive. Directives are
+     * comments, so their tokens are positioned relative to the start of
+     * the line instead of to the code on the line.
+     */
+    public final boolean isDirective;
+
+    Token(final boolean isDirective) {
+        this.isDirective = isDirective;
+    }
+
+    // --------------------------------------------------------------------- //
+
+    /**
+     * All possible enum values for quick indexing.
+     */
+    public static final Token[] VALUES = Token.values();
+}
@@ -1,27 +1,28 @@
 package li.cil.tis3d.common.module.execution.compiler.instruction;
 
 import li.cil.tis3d.common.Constants;
+import li.cil.tis3d.common.module.execution.compiler.LineTokens;
 import li.cil.tis3d.common.module.execution.compiler.ParseException;
+import li.cil.tis3d.common.module.execution.compiler.Token;
 import li.cil.tis3d.common.module.execution.target.Target;
 
 import java.util.Map;
-import java.util.regex.Matcher;
 
 /**
  * Base implementation for instruction emitters.
  */
 abstract class AbstractInstructionEmitter implements InstructionEmitter {
-    static void checkExcess(final int lineNumber, final Matcher matcher, final String name) throws ParseException {
-        final int start = matcher.start(name);
+    static void checkExcess(final int lineNumber, final LineTokens tokens, final Token token) throws ParseException {
+        final int start = tokens.start(token);
         if (start >= 0) {
-            throw new ParseException(Constants.MESSAGE_PARAMETER_OVERFLOW, lineNumber, start, matcher.end());
+            throw new ParseException(Constants.MESSAGE_PARAMETER_OVERFLOW, lineNumber, start, tokens.getCodeLength());
         }
     }
 
-    static String checkArg(final int lineNumber, final Matcher matcher, final String name, final String previous) throws ParseException {
-        final String arg = matcher.group(name);
+    static String checkArg(final int lineNumber, final LineTokens tokens, final Token token, final Token previous) throws ParseException {
+        final String arg = tokens.get(token);
         if (arg == null) {
-            throw new ParseException(Constants.MESSAGE_PARAMETER_UNDERFLOW, lineNumber, matcher.end(previous) + 1, matcher.end(previous) + 1);
+            throw new ParseException(Constants.MESSAGE_PARAMETER_UNDERFLOW, lineNumber, tokens.end(previous) + 1, tokens.end(previous) + 1);
         }
         return arg;
     }
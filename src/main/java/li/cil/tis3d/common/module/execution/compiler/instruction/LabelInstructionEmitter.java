@@ -2,14 +2,15 @@ package li.cil.tis3d.common.module.execution.compiler.instruction;
 
 import li.cil.tis3d.common.Constants;
 import li.cil.tis3d.common.module.execution.MachineState;
+import li.cil.tis3d.common.module.execution.compiler.LineTokens;
 import li.cil.tis3d.common.module.execution.compiler.ParseException;
+import li.cil.tis3d.common.module.execution.compiler.Token;
 import li.cil.tis3d.common.module.execution.compiler.Validator;
 import li.cil.tis3d.common.module.execution.instruction.Instruction;
 
 import java.util.List;
 import java.util.Map;
 import java.util.function.Function;
-import java.util.regex.Matcher;
 
 public final class LabelInstructionEmitter extends AbstractInstructionEmitter {
     private final Function<String, Instruction> constructor;
@@ -19,18 +20,21 @@ public final class LabelInstructionEmitter extends AbstractInstructionEmitter {
     }
 
     @Override
-    public Instruction compile(final Matcher matcher, final int lineNumber, final Map<String, String> defines, final List<Validator> validators) throws ParseException {
-        final String label = checkArg(lineNumber, matcher, "arg1", "name");
-        checkExcess(lineNumber, matcher, "arg2");
+    public Instruction compile(final LineTokens tokens, final int lineNumber, final Map<String, String> defines, final List<Validator> validators) throws ParseException {
+        final String label = checkArg(lineNumber, tokens, Token.ARG1, Token.NAME);
+        checkExcess(lineNumber, tokens, Token.ARG2);
 
-        validators.add(state -> validateLabel(state, label, matcher, lineNumber));
+        // Tokens are reused for the next line, so remember where the label is.
+        final int start = tokens.start(Token.ARG1);
+        final int end = tokens.end(Token.ARG1);
+        validators.add(state -> validateLabel(state, label, lineNumber, start, end));
 
         return constructor.apply(label);
     }
 
-    private static void validateLabel(final MachineState state, final String label, final Matcher matcher, final int lineNumber) throws ParseException {
+    private static void validateLabel(final MachineState state, final String label, final int lineNumber, final int start, final int end) throws ParseException {
         if (!state.labels.containsKey(label)) {
-            throw new ParseException(Constants.MESSAGE_LABEL_NOT_FOUND, lineNumber, matcher.start("arg1"), matcher.end("arg1"));
+            throw new ParseException(Constants.MESSAGE_LABEL_NOT_FOUND, lineNumber, start, end);
         }
     }
 }
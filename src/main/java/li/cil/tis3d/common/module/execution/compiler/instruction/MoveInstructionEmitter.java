@@ -1,6 +1,8 @@
 package li.cil.tis3d.common.module.execution.compiler.instruction;
 
+import li.cil.tis3d.common.module.execution.compiler.LineTokens;
 import li.cil.tis3d.common.module.execution.compiler.ParseException;
+import li.cil.tis3d.common.module.execution.compiler.Token;
 import li.cil.tis3d.common.module.execution.compiler.Validator;
 import li.cil.tis3d.common.module.execution.instruction.Instruction;
 import li.cil.tis3d.common.module.execution.instruction.MoveImmediateInstruction;
@@ -9,16 +11,15 @@ import li.cil.tis3d.common.module.execution.target.Target;
 
 import java.util.List;
 import java.util.Map;
-import java.util.regex.Matcher;
 
 public final class MoveInstructionEmitter extends AbstractInstructionEmitter {
     @Override
-    public Instruction compile(final Matcher matcher, final int lineNumber, final Map<String, String> defines, final List<Validator> validators) throws ParseException {
-        final Object src = checkTargetOrNumber(checkArg(lineNumber, matcher, "arg1", "name"),
-                                               lineNumber, defines, matcher.start("arg1"), matcher.end("arg1"));
-        final Target dst = checkTarget(checkArg(lineNumber, matcher, "arg2", "arg1"),
-                                       lineNumber, defines, matcher.start("arg2"), matcher.end("arg2"));
-        checkExcess(lineNumber, matcher, "excess");
+    public Instruction compile(final LineTokens tokens, final int lineNumber, final Map<String, String> defines, final List<Validator> validators) throws ParseException {
+        final Object src = checkTargetOrNumber(checkArg(lineNumber, tokens, Token.ARG1, Token.NAME),
+                                               lineNumber, defines, tokens.start(Token.ARG1), tokens.end(Token.ARG1));
+        final Target dst = checkTarget(checkArg(lineNumber, tokens, Token.ARG2, Token.ARG1),
+                                       lineNumber, defines, tokens.start(Token.ARG2), tokens.end(Token.ARG2));
+        checkExcess(lineNumber, tokens, Token.EXCESS);
 
         if (src instanceof Target) {
             return new MoveInstruction((Target)src, dst);
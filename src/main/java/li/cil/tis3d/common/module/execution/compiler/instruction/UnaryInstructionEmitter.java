@@ -1,13 +1,14 @@
 package li.cil.tis3d.common.module.execution.compiler.instruction;
 
+import li.cil.tis3d.common.module.execution.compiler.LineTokens;
 import li.cil.tis3d.common.module.execution.compiler.ParseException;
+import li.cil.tis3d.common.module.execution.compiler.Token;
 import li.cil.tis3d.common.module.execution.compiler.Validator;
 import li.cil.tis3d.common.module.execution.instruction.Instruction;
 
 import java.util.List;
 import java.util.Map;
 import java.util.function.Supplier;
-import java.util.regex.Matcher;
 
 public final class UnaryInstructionEmitter extends AbstractInstructionEmitter {
     private final Supplier<Instruction> constructor;
@@ -17,8 +18,8 @@ public final class UnaryInstructionEmitter extends AbstractInstructionEmitter {
     }
 
     @Override
-    public Instruction compile(final Matcher matcher, final int lineNumber, final Map<String, String> defines, final List<Validator> validators) throws ParseException {
-        checkExcess(lineNumber, matcher, "arg1");
+    public Instruction compile(final LineTokens tokens, final int lineNumber, final Map<String, String> defines, final List<Validator> validators) throws ParseException {
+        checkExcess(lineNumber, tokens, Token.ARG1);
 
         return constructor.get();
     }
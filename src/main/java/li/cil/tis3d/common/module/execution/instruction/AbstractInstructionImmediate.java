@@ -0,0 +1,18 @@
+package li.cil.tis3d.common.module.execution.instruction;
+
+import java.util.Map;
+
+abstract class AbstractInstructionImmediate implements Instruction {
+    private final int opcode;
+    protected final short value;
+
+    protected AbstractInstructionImmediate(final int opcode, final short value) {
+        this.opcode = opcode;
+        this.value = value;
+    }
+
+    @Override
+    public void encode(final int[] bytecode, final int offset, final Map<String, Integer> labels) {
+        Opcodes.encode(bytecode, offset, opcode, value, 0);
+    }
+}
@@ -0,0 +1,18 @@
+package li.cil.tis3d.common.module.execution.instruction;
+
+import java.util.Map;
+
+abstract class AbstractInstructionJump implements Instruction {
+    private final int opcode;
+    protected final String label;
+
+    protected AbstractInstructionJump(final int opcode, final String label) {
+        this.opcode = opcode;
+        this.label = label;
+    }
+
+    @Override
+    public void encode(final int[] bytecode, final int offset, final Map<String, Integer> labels) {
+        Opcodes.encode(bytecode, offset, opcode, labels.get(label), 0);
+    }
+}
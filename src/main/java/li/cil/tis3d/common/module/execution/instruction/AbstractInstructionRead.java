@@ -1,27 +1,20 @@
 package li.cil.tis3d.common.module.execution.instruction;
 
-import li.cil.tis3d.common.module.execution.Machine;
 import li.cil.tis3d.common.module.execution.target.Target;
-import li.cil.tis3d.common.module.execution.target.TargetInterface;
+
+import java.util.Map;
 
 abstract class AbstractInstructionRead implements Instruction {
+    private final int opcode;
     protected final Target source;
 
-    protected AbstractInstructionRead(final Target source) {
+    protected AbstractInstructionRead(final int opcode, final Target source) {
+        this.opcode = opcode;
         this.source = source;
     }
 
     @Override
-    public final void step(final Machine machine) {
-        final TargetInterface sourceInterface = machine.getInterface(source);
-
-        if (!sourceInterface.isReading()) {
-            sourceInterface.beginRead();
-        }
-        if (sourceInterface.canTransfer()) {
-            doStep(machine, sourceInterface.read());
-        }
+    public void encode(final int[] bytecode, final int offset, final Map<String, Integer> labels) {
+        Opcodes.encode(bytecode, offset, opcode, source.ordinal(), 0);
     }
-
-    protected abstract void doStep(final Machine machine, final int value);
 }
@@ -1,17 +1,14 @@
 package li.cil.tis3d.common.module.execution.instruction;
 
-import li.cil.tis3d.common.module.execution.Machine;
-import li.cil.tis3d.common.module.execution.MachineState;
+import java.util.Map;
 
 public final class BitwiseNotInstruction implements Instruction {
     public static final String NAME = "NOT";
     public static final Instruction INSTANCE = new BitwiseNotInstruction();
 
     @Override
-    public void step(final Machine machine) {
-        final MachineState state = machine.getState();
-        state.acc = (short)~state.acc;
-        state.pc++;
+    public void encode(final int[] bytecode, final int offset, final Map<String, Integer> labels) {
+        Opcodes.encode(bytecode, offset, Opcodes.NOT, 0, 0);
     }
 
     @Override
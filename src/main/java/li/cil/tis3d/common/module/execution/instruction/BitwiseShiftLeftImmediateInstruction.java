@@ -1,20 +1,8 @@
 package li.cil.tis3d.common.module.execution.instruction;
 
-import li.cil.tis3d.common.module.execution.Machine;
-import li.cil.tis3d.common.module.execution.MachineState;
-
-public final class BitwiseShiftLeftImmediateInstruction implements Instruction {
-    private final short value;
-
+public final class BitwiseShiftLeftImmediateInstruction extends AbstractInstructionImmediate {
     public BitwiseShiftLeftImmediateInstruction(final short value) {
-        this.value = value;
-    }
-
-    @Override
-    public void step(final Machine machine) {
-        final MachineState state = machine.getState();
-        state.acc <<= value;
-        state.pc++;
+        super(Opcodes.SHL_IMM, value);
     }
 
     @Override
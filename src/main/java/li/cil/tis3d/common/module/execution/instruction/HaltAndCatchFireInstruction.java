@@ -1,15 +1,14 @@
 package li.cil.tis3d.common.module.execution.instruction;
 
-import li.cil.tis3d.api.machine.HaltAndCatchFireException;
-import li.cil.tis3d.common.module.execution.Machine;
+import java.util.Map;
 
 public final class HaltAndCatchFireInstruction implements Instruction {
     public static final String NAME = "HCF";
     public static final Instruction INSTANCE = new HaltAndCatchFireInstruction();
 
     @Override
-    public void step(final Machine machine) {
-        throw new HaltAndCatchFireException();
+    public void encode(final int[] bytecode, final int offset, final Map<String, Integer> labels) {
+        Opcodes.encode(bytecode, offset, Opcodes.HCF, 0, 0);
     }
 
     @Override
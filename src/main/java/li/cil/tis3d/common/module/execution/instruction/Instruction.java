@@ -1,46 +1,27 @@
 package li.cil.tis3d.common.module.execution.instruction;
 
-import li.cil.tis3d.api.machine.Port;
-import li.cil.tis3d.common.module.execution.Machine;
-import li.cil.tis3d.common.module.execution.MachineImpl;
+import java.util.Map;
 
 /**
  * A single instruction that can be executed by the execution module.
  * <p>
- * Note that instructions <em>must not</em> have any mutable state! They
- * always operate on the machine given to them, and the pipes connected
- * to that machine. Their only state is their configuration.
+ * Instructions are not executed directly. Once a program has been compiled,
+ * each instruction is encoded into the program's bytecode, which is then
+ * interpreted by the machine, see {@link Opcodes}.
+ * <p>
+ * Note that instructions <em>must not</em> have any mutable state! Their
+ * only state is their configuration.
  */
 public interface Instruction {
     /**
-     * Update the instruction, when it is done it must increment the machine's
-     * program counter itself.
-     *
-     * @param machine the machine to run the instruction on.
-     */
-    void step(final Machine machine);
-
-    /**
-     * Take action based on pending write operation completion, e.g. to abort other
-     * writes when a value should only be readable once.
-     *
-     * @param machine the machine the operation will finish on.
-     * @param port    the port the operation will finish on.
-     * @see li.cil.tis3d.api.module.Module#onBeforeWriteComplete(Port)
-     */
-    default void onBeforeWriteComplete(final MachineImpl machine, final Port port) {
-    }
-
-    /**
-     * Finish a write operation started by the instruction, usually by
-     * advancing the program counter.
+     * Write the encoded form of this instruction into the specified bytecode.
      * <p>
-     * Instructions must <em>always</em> await or cancel a write operation they
-     * started.
+     * Called after all instructions of a program have been parsed and all
+     * validators ran, so all referenced labels are known to exist.
      *
-     * @param machine the machine the operation finished on.
-     * @param port    the port the operation finished on.
+     * @param bytecode the bytecode of the program being encoded.
+     * @param offset   the offset of this instruction in the bytecode.
+     * @param labels   the labels of the program and their addresses.
      */
-    default void onWriteCompleted(final Machine machine, final Port port) {
-    }
+    void encode(final int[] bytecode, final int offset, final Map<String, Integer> labels);
 }
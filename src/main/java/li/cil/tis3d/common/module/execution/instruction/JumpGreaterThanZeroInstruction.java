@@ -1,17 +1,10 @@
 package li.cil.tis3d.common.module.execution.instruction;
 
-import li.cil.tis3d.common.module.execution.MachineState;
-
-public final class JumpGreaterThanZeroInstruction extends AbstractInstructionJumpConditional {
+public final class JumpGreaterThanZeroInstruction extends AbstractInstructionJump {
     public static final String NAME = "JGZ";
 
     public JumpGreaterThanZeroInstruction(final String label) {
-        super(label);
-    }
-
-    @Override
-    protected boolean isConditionTrue(final MachineState state) {
-        return state.acc > 0;
+        super(Opcodes.JGZ, label);
     }
 
     @Override
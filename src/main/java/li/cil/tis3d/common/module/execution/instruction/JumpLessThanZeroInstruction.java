@@ -1,17 +1,10 @@
 package li.cil.tis3d.common.module.execution.instruction;
 
-import li.cil.tis3d.common.module.execution.MachineState;
-
-public final class JumpLessThanZeroInstruction extends AbstractInstructionJumpConditional {
+public final class JumpLessThanZeroInstruction extends AbstractInstructionJump {
     public static final String NAME = "JLZ";
 
     public JumpLessThanZeroInstruction(final String label) {
-        super(label);
-    }
-
-    @Override
-    protected boolean isConditionTrue(final MachineState state) {
-        return state.acc < 0;
+        super(Opcodes.JLZ, label);
     }
 
     @Override
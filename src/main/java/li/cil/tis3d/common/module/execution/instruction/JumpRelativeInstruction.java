@@ -1,28 +1,12 @@
 package li.cil.tis3d.common.module.execution.instruction;
 
-import li.cil.tis3d.common.module.execution.Machine;
 import li.cil.tis3d.common.module.execution.target.Target;
-import li.cil.tis3d.common.module.execution.target.TargetInterface;
 
-public final class JumpRelativeInstruction implements Instruction {
+public final class JumpRelativeInstruction extends AbstractInstructionRead {
     public static final String NAME = "JRO";
 
-    private final Target source;
-
     public JumpRelativeInstruction(final Target source) {
-        this.source = source;
-    }
-
-    @Override
-    public void step(final Machine machine) {
-        final TargetInterface sourceInterface = machine.getInterface(source);
-
-        if (!sourceInterface.isReading()) {
-            sourceInterface.beginRead();
-        }
-        if (sourceInterface.canTransfer()) {
-            machine.getState().pc += sourceInterface.read();
-        }
+        super(Opcodes.JRO, source);
     }
 
     @Override
@@ -1,8 +1,8 @@
 package li.cil.tis3d.common.module.execution.instruction;
 
-import li.cil.tis3d.common.module.execution.Machine;
 import li.cil.tis3d.common.module.execution.target.Target;
-import li.cil.tis3d.common.module.execution.target.TargetInterface;
+
+import java.util.Map;
 
 public final class MoveImmediateInstruction extends AbstractInstructionMove {
     private final short value;
@@ -13,14 +13,8 @@ public final class MoveImmediateInstruction extends AbstractInstructionMove {
     }
 
     @Override
-    public void step(final Machine machine) {
-        final TargetInterface destinationInterface = machine.getInterface(destination);
-
-        if (!destinationInterface.isWriting()) {
-            if (destinationInterface.beginWrite(value)) {
-                machine.getState().pc++;
-            }
-        }
+    public void encode(final int[] bytecode, final int offset, final Map<String, Integer> labels) {
+        Opcodes.encode(bytecode, offset, Opcodes.MOV_IMM, value, destination.ordinal());
     }
 
     @Override
@@ -1,8 +1,8 @@
 package li.cil.tis3d.common.module.execution.instruction;
 
-import li.cil.tis3d.common.module.execution.Machine;
 import li.cil.tis3d.common.module.execution.target.Target;
-import li.cil.tis3d.common.module.execution.target.TargetInterface;
+
+import java.util.Map;
 
 public final class MoveInstruction extends AbstractInstructionMove {
     public static final String NAME = "MOV";
@@ -15,21 +15,8 @@ public final class MoveInstruction extends AbstractInstructionMove {
     }
 
     @Override
-    public void step(final Machine machine) {
-        final TargetInterface sourceInterface = machine.getInterface(source);
-        final TargetInterface destinationInterface = machine.getInterface(destination);
-
-        if (!destinationInterface.isWriting()) {
-            if (!sourceInterface.isReading()) {
-                sourceInterface.beginRead();
-            }
-            if (sourceInterface.canTransfer()) {
-                final short value = sourceInterface.read();
-                if (destinationInterface.beginWrite(value)) {
-                    machine.getState().pc++;
-                }
-            }
-        }
+    public void encode(final int[] bytecode, final int offset, final Map<String, Integer> labels) {
+        Opcodes.encode(bytecode, offset, Opcodes.MOV, source.ordinal(), destination.ordinal());
     }
 
     @Override
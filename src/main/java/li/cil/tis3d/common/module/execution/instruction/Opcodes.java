@@ -0,0 +1,85 @@
+package li.cil.tis3d.common.module.execution.instruction;
+
+import li.cil.tis3d.common.module.execution.target.Target;
+
+/**
+ * Opcodes of the pre-decoded program representation interpreted by
+ * {@link li.cil.tis3d.common.module.execution.MachineImpl}.
+ * <p>
+ * Each instruction is encoded as {@link #INSTRUCTION_SIZE} consecutive ints,
+ * the opcode followed by two operands. {@link Target}s are stored by their
+ * <tt>ordinal()</tt>, immediate values as-is and labels as the address they
+ * resolve to.
+ */
+public final class Opcodes {
+    /**
+     * Number of ints each encoded instruction occupies.
+     */
+    public static final int INSTRUCTION_SIZE = 3;
+
+    /**
+     * Offsets of the opcode and its operands inside an encoded instruction.
+     */
+    public static final int OFFSET_OPCODE = 0;
+    public static final int OFFSET_A = 1;
+    public static final int OFFSET_B = 2;
+
+    // --------------------------------------------------------------------- //
+
+    public static final int MOV = 0; // source, destination
+    public static final int MOV_IMM = 1; // value, destination
+    public static final int ADD = 2; // source
+    public static final int ADD_IMM = 3; // value
+    public static final int SUB = 4; // source
+    public static final int SUB_IMM = 5; // value
+    public static final int MUL = 6; // source
+    public static final int MUL_IMM = 7; // value
+    public static final int DIV = 8; // source
+    public static final int DIV_IMM = 9; // value
+    public static final int AND = 10; // source
+    public static final int AND_IMM = 11; // value
+    public static final int OR = 12; // source
+    public static final int OR_IMM = 13; // value
+    public static final int XOR = 14; // source
+    public static final int XOR_IMM = 15; // value
+    public static final int SHL = 16; // source
+    public static final int SHL_IMM = 17; // value
+    public static final int SHR = 18; // source
+    public static final int SHR_IMM = 19; // value
+    public static final int NOT = 20;
+    public static final int NEG = 21;
+    public static final int SAV = 22;
+    public static final int SWP = 23;
+    public static final int HCF = 24;
+    public static final int RLLAST = 25;
+    public static final int RRLAST = 26;
+    public static final int JMP = 27; // address
+    public static final int JEZ = 28; // address
+    public static final int JNZ = 29; // address
+    public static final int JGZ = 30; // address
+    public static final int JLZ = 31; // address
+    public static final int JRO = 32; // source
+    public static final int JRO_IMM = 33; // delta
+
+    // --------------------------------------------------------------------- //
+
+    /**
+     * Write a single encoded instruction into the specified bytecode.
+     *
+     * @param bytecode the bytecode to write to.
+     * @param offset   the offset of the instruction in the bytecode.
+     * @param opcode   the opcode of the instruction.
+     * @param a        the first operand of the instruction.
+     * @param b        the second operand of the instruction.
+     */
+    public static void encode(final int[] bytecode, final int offset, final int opcode, final int a, final int b) {
+        bytecode[offset + OFFSET_OPCODE] = opcode;
+        bytecode[offset + OFFSET_A] = a;
+        bytecode[offset + OFFSET_B] = b;
+    }
+
+    // --------------------------------------------------------------------- //
+
+    private Opcodes() {
+    }
+}
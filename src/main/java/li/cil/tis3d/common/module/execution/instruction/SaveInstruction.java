@@ -1,17 +1,14 @@
 package li.cil.tis3d.common.module.execution.instruction;
 
-import li.cil.tis3d.common.module.execution.Machine;
-import li.cil.tis3d.common.module.execution.MachineState;
+import java.util.Map;
 
 public final class SaveInstruction implements Instruction {
     public static final String NAME = "SAV";
     public static final Instruction INSTANCE = new SaveInstruction();
 
     @Override
-    public void step(final Machine machine) {
-        final MachineState state = machine.getState();
-        state.bak = state.acc;
-        state.pc++;
+    public void encode(final int[] bytecode, final int offset, final Map<String, Integer> labels) {
+        Opcodes.encode(bytecode, offset, Opcodes.SAV, 0, 0);
     }
 
     @Override
@@ -17,7 +17,7 @@ public final class AccTargetInterface extends AbstractTargetInterface {
 
     @Override
     public boolean beginWrite(final short value) {
-        getState().acc = value;
+        getState().setAcc(value);
         return true;
     }
 
@@ -42,7 +42,7 @@ public final class AccTargetInterface extends AbstractTargetInterface {
 
     @Override
     public short read() {
-        return getState().acc;
+        return getState().getAcc();
     }
 
     // --------------------------------------------------------------------- //
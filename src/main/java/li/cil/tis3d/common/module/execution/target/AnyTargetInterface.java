@@ -5,8 +5,6 @@ import li.cil.tis3d.api.machine.Port;
 import li.cil.tis3d.common.module.ExecutionModule;
 import li.cil.tis3d.common.module.execution.Machine;
 
-import java.util.Optional;
-
 /**
  * Interface for the {@link Target#ANY} target.
  * <p>
@@ -66,7 +64,7 @@ public final class AnyTargetInterface extends AbstractTargetInterfaceSide {
                     }
                 }
 
-                getMachine().getState().last = Optional.of(port);
+                getMachine().getState().setLast(port);
 
                 return read(port);
             }
@@ -78,7 +76,7 @@ public final class AnyTargetInterface extends AbstractTargetInterfaceSide {
     @Override
     public void onBeforeWriteComplete(final Port port) {
         cancelWrite();
-        getMachine().getState().last = Optional.of(port);
+        getMachine().getState().setLast(port);
     }
 
     // --------------------------------------------------------------------- //
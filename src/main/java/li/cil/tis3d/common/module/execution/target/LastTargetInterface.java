@@ -1,9 +1,12 @@
 package li.cil.tis3d.common.module.execution.target;
 
 import li.cil.tis3d.api.machine.Face;
+import li.cil.tis3d.api.machine.Port;
 import li.cil.tis3d.common.module.ExecutionModule;
 import li.cil.tis3d.common.module.execution.Machine;
 
+import java.util.Optional;
+
 /**
  * Interface for the {@link Target#LAST} target.
  * <p>
@@ -24,33 +27,44 @@ public final class LastTargetInterface extends AbstractTargetInterfaceSide {
 
     @Override
     public boolean beginWrite(final short value) {
-        getState().last.ifPresent(port -> beginWrite(port, value));
-        return !getState().last.isPresent();
+        final Optional<Port> last = getState().getLast();
+        if (last.isPresent()) {
+            beginWrite(last.get(), value);
+            return false;
+        }
+        return true;
     }
 
     @Override
     public boolean isWriting() {
-        return getState().last.map(this::isWriting).orElse(false);
+        final Optional<Port> last = getState().getLast();
+        return last.isPresent() && isWriting(last.get());
     }
 
     @Override
     public void beginRead() {
-        getState().last.ifPresent(this::beginRead);
+        final Optional<Port> last = getState().getLast();
+        if (last.isPresent()) {
+            beginRead(last.get());
+        }
     }
 
     @Override
     public boolean isReading() {
-        return getState().last.map(this::isReading).orElse(false);
+        final Optional<Port> last = getState().getLast();
+        return last.isPresent() && isReading(last.get());
     }
 
     @Override
     public boolean canTransfer() {
-        return getState().last.map(this::canTransfer).orElse(true);
+        final Optional<Port> last = getState().getLast();
+        return !last.isPresent() || canTransfer(last.get());
     }
 
     @Override
     public short read() {
-        return getState().last.map(this::read).orElse((short)0);
+        final Optional<Port> last = getState().getLast();
+        return last.isPresent() ? read(last.get()) : 0;
     }
 
     // --------------------------------------------------------------------- //
@@ -58,6 +72,6 @@ public final class LastTargetInterface extends AbstractTargetInterfaceSide {
 
     @Override
     public String toString() {
-        return "LAST [" + getState().last.map(Enum::name).orElse("NIL") + "]";
+        return "LAST [" + getState().getLast().map(Enum::name).orElse("NIL") + "]";
     }
 }
@@ -0,0 +1,81 @@
+package li.cil.tis3d.common.network;
+
+import it.unimi.dsi.fastutil.longs.Long2ByteMap;
+import it.unimi.dsi.fastutil.longs.Long2ByteOpenHashMap;
+import net.minecraft.entity.player.PlayerEntity;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.world.World;
+import net.minecraft.world.dimension.DimensionType;
+
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * Tracks which casing faces each player currently renders in detail, as
+ * reported by their clients.
+ * <p>
+ * Data modules send via {@link li.cil.tis3d.api.machine.Casing#sendData(li.cil.tis3d.api.machine.Face, java.util.function.Consumer, byte)}
+ * changes at high rates, e.g. the execution state of execution modules. It
+ * is only sent at full rate to players watching the face of the module;
+ * other players nearby receive it at a low rate. Only accessed on the server
+ * thread.
+ */
+public final class CasingInterests {
+    /**
+     * The interests of all players that reported any. Weak, so that players
+     * leaving the server, or being replaced when respawning, are dropped.
+     */
+    private static final Map<PlayerEntity, Interests> INTERESTS = new WeakHashMap<>();
+
+    // --------------------------------------------------------------------- //
+
+    /**
+     * Replace the interests of the specified player.
+     *
+     * @param player    the player to set the interests for.
+     * @param positions the positions of the watched casings.
+     * @param faceMasks the watched faces of each casing.
+     */
+    public static void setInterests(final PlayerEntity player, final long[] positions, final byte[] faceMasks) {
+        if (positions.length == 0) {
+            INTERESTS.remove(player);
+            return;
+        }
+
+        final Interests interests = INTERESTS.computeIfAbsent(player, p -> new Interests());
+        interests.dimension = player.world.getDimension().getType();
+        interests.faceMasks.clear();
+        for (int i = 0; i < positions.length; i++) {
+            interests.faceMasks.put(positions[i], faceMasks[i]);
+        }
+    }
+
+    /**
+     * Get the faces of the casing at the specified position the specified
+     * player is currently watching.
+     *
+     * @param player   the player to get the watched faces for.
+     * @param world    the world the casing is in.
+     * @param position the position of the casing.
+     * @return the watched faces, as bit mask indexed by face ordinal.
+     */
+    public static int getWatchedFaces(final PlayerEntity player, final World world, final BlockPos position) {
+        final Interests interests = INTERESTS.get(player);
+        if (interests == null || interests.dimension != world.getDimension().getType()) {
+            return 0;
+        }
+        return interests.faceMasks.get(position.asLong()) & 0xFF;
+    }
+
+    // --------------------------------------------------------------------- //
+
+    private static final class Interests {
+        private final Long2ByteMap faceMasks = new Long2ByteOpenHashMap();
+        private DimensionType dimension;
+    }
+
+    // --------------------------------------------------------------------- //
+
+    private CasingInterests() {
+    }
+}
@@ -0,0 +1,212 @@
+package li.cil.tis3d.common.network;
+
+import io.netty.buffer.ByteBuf;
+import it.unimi.dsi.fastutil.ints.Int2ObjectMap;
+import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import li.cil.tis3d.api.machine.Face;
+import net.minecraft.entity.player.PlayerEntity;
+
+import javax.annotation.Nullable;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * Tracks the raw data of each type last sent to a client per module, which
+ * following data of the same type is delta encoded against, see
+ * {@link ModuleDataFormat}.
+ * <p>
+ * The server keeps one set of baselines per player, the client mirrors the
+ * set for its player by applying the same updates to it for each received
+ * entry. Connections deliver packets reliably and in order, so the data the
+ * server last sent is the data the client last received. The server may drop
+ * baselines at any time, in which case it sends the full data again, and
+ * tells the client to drop its baselines with the next message. This way
+ * the client never holds more baselines than the server. The client also
+ * drops its baselines when changing worlds or disconnecting, when the server
+ * drops them for the player as well.
+ */
+public final class ModuleDataBaselines {
+    /**
+     * Maximum size of data kept as baseline. Larger data is always sent in
+     * full, to bound the memory used per player.
+     */
+    public static final int MAX_DATA_SIZE = 256;
+
+    /**
+     * Maximum number of casings to keep baselines for per player, after which
+     * all baselines of the player are dropped. Only checked on the server,
+     * the client follows when told to.
+     */
+    private static final int MAX_CASINGS = 4096;
+
+    /**
+     * The baselines of all players on the server. Weak, so that players
+     * leaving the server, or being replaced when respawning, are dropped.
+     * Only accessed on the server thread.
+     */
+    private static final Map<PlayerEntity, ModuleDataBaselines> SERVER_BASELINES = new WeakHashMap<>();
+
+    /**
+     * The baselines of the player on the client. Only accessed on the client thread.
+     */
+    private static final ModuleDataBaselines CLIENT_BASELINES = new ModuleDataBaselines();
+
+    /**
+     * Baselines by casing position, then by face and type.
+     */
+    private final Long2ObjectMap<Int2ObjectMap<byte[]>> baselines = new Long2ObjectOpenHashMap<>();
+
+    /**
+     * Whether the baselines were dropped on the server since the last message
+     * sent to the player, see {@link #consumeReset()}. Set initially, since a
+     * respawned player is a new entity while the client keeps its baselines
+     * when respawning in the same world.
+     */
+    private boolean isResetPending = true;
+
+    // --------------------------------------------------------------------- //
+
+    /**
+     * Get the baselines for data sent to the specified player.
+     *
+     * @param player the player to get the baselines for.
+     * @return the baselines of the player.
+     */
+    public static ModuleDataBaselines getServerBaselines(final PlayerEntity player) {
+        final ModuleDataBaselines baselines = SERVER_BASELINES.computeIfAbsent(player, p -> new ModuleDataBaselines());
+        if (baselines.baselines.size() > MAX_CASINGS) {
+            baselines.reset();
+        }
+        return baselines;
+    }
+
+    /**
+     * Drop all baselines for data sent to the specified player, e.g. because
+     * the player changed worlds. The client drops its baselines along with
+     * the next data sent to it.
+     *
+     * @param player the player to drop the baselines of.
+     */
+    public static void resetServerBaselines(final PlayerEntity player) {
+        final ModuleDataBaselines baselines = SERVER_BASELINES.get(player);
+        if (baselines != null) {
+            baselines.reset();
+        }
+    }
+
+    /**
+     * Get the baselines for data received by the client.
+     *
+     * @return the baselines of the client.
+     */
+    public static ModuleDataBaselines getClientBaselines() {
+        return CLIENT_BASELINES;
+    }
+
+    /**
+     * Drop all baselines on the client. Called when the client changes
+     * worlds or disconnects, at which point the server drops its baselines
+     * for the player as well, and when the server says it dropped them.
+     */
+    public static void resetClientBaselines() {
+        CLIENT_BASELINES.baselines.clear();
+    }
+
+    // --------------------------------------------------------------------- //
+
+    /**
+     * Get the raw data of the specified type last sent to the module on the
+     * specified face of the casing at the specified position.
+     *
+     * @param position the position of the casing.
+     * @param face     the face of the module.
+     * @param type     the type of the data.
+     * @return the data last sent, or <tt>null</tt> if there is none.
+     */
+    @Nullable
+    public byte[] get(final long position, final Face face, final byte type) {
+        final Int2ObjectMap<byte[]> casingBaselines = baselines.get(position);
+        return casingBaselines != null ? casingBaselines.get(pack(face, type)) : null;
+    }
+
+    /**
+     * Update the raw data of the specified type last sent to the module on
+     * the specified face of the casing at the specified position. Does not
+     * consume the data.
+     *
+     * @param position the position of the casing.
+     * @param face     the face of the module.
+     * @param type     the type of the data.
+     * @param data     the data sent.
+     */
+    public void update(final long position, final Face face, final byte type, final ByteBuf data) {
+        final int length = data.readableBytes();
+        if (length > MAX_DATA_SIZE) {
+            final Int2ObjectMap<byte[]> casingBaselines = baselines.get(position);
+            if (casingBaselines != null) {
+                casingBaselines.remove(pack(face, type));
+            }
+            return;
+        }
+
+        final Int2ObjectMap<byte[]> casingBaselines = getOrCreate(position);
+        final int key = pack(face, type);
+        byte[] baseline = casingBaselines.get(key);
+        if (baseline == null || baseline.length != length) {
+            baseline = new byte[length];
+            casingBaselines.put(key, baseline);
+        }
+        data.getBytes(data.readerIndex(), baseline);
+    }
+
+    /**
+     * Update the raw data of the specified type last sent to the module on
+     * the specified face of the casing at the specified position.
+     *
+     * @param position the position of the casing.
+     * @param face     the face of the module.
+     * @param type     the type of the data.
+     * @param data     the data sent, kept as is.
+     */
+    public void update(final long position, final Face face, final byte type, final byte[] data) {
+        getOrCreate(position).put(pack(face, type), data);
+    }
+
+    /**
+     * Whether the baselines were dropped since this was last called, in which
+     * case the client has to drop its baselines before applying the data
+     * sent next. Only used on the server.
+     *
+     * @return <tt>true</tt> if the client has to drop its baselines.
+     */
+    public boolean consumeReset() {
+        final boolean result = isResetPending;
+        isResetPending = false;
+        return result;
+    }
+
+    // --------------------------------------------------------------------- //
+
+    private void reset() {
+        baselines.clear();
+        isResetPending = true;
+    }
+
+    private Int2ObjectMap<byte[]> getOrCreate(final long position) {
+        Int2ObjectMap<byte[]> casingBaselines = baselines.get(position);
+        if (casingBaselines == null) {
+            casingBaselines = new Int2ObjectOpenHashMap<>();
+            baselines.put(position, casingBaselines);
+        }
+        return casingBaselines;
+    }
+
+    private static int pack(final Face face, final byte type) {
+        return (face.ordinal() << 8) | (type & 0xFF);
+    }
+
+    private ModuleDataBaselines() {
+    }
+}
@@ -0,0 +1,162 @@
+package li.cil.tis3d.common.network;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.PooledByteBufAllocator;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Pool for the buffers module data is sent in, see {@link li.cil.tis3d.api.machine.Casing#allocateData()}.
+ * <p>
+ * Buffers allocated here are owned by whoever holds them: by the module
+ * until it passes them to the casing, then by the send queues, which
+ * release them once their data was written or replaced by newer data.
+ * Buffers from elsewhere are never released, so modules may still send
+ * unpooled buffers, which are left to the garbage collector as before.
+ * <p>
+ * Also tracks how many buffers are allocated, to confirm modules use the
+ * pool, see {@link #getStatistics()}. Allocation may happen on threads
+ * stepping machines concurrently, so all counters are thread safe.
+ */
+public final class ModuleDataBuffers {
+    /**
+     * Initial capacity of allocated buffers. Most module data is a few
+     * bytes, larger data grows the buffer as usual.
+     */
+    private static final int INITIAL_CAPACITY = 64;
+
+    /**
+     * Number of ticks the statistics are collected over.
+     */
+    public static final int STATISTICS_INTERVAL = 100;
+
+    /**
+     * Dedicated allocator, so that buffers allocated here can be told
+     * apart from buffers allocated elsewhere. Heap buffers, since data is
+     * only ever copied into other heap buffers.
+     */
+    private static final PooledByteBufAllocator ALLOCATOR = new PooledByteBufAllocator(false);
+
+    private static final LongAdder pooledCount = new LongAdder();
+    private static final LongAdder unpooledCount = new LongAdder();
+    private static final LongAdder queuedBytes = new LongAdder();
+
+    private static Statistics statistics = new Statistics(0, 0, 0, 0);
+    private static int ticksSinceUpdate;
+
+    // --------------------------------------------------------------------- //
+
+    /**
+     * Allocate a pooled buffer for module data.
+     *
+     * @return the new buffer.
+     */
+    public static ByteBuf allocate() {
+        pooledCount.increment();
+        return ALLOCATOR.heapBuffer(INITIAL_CAPACITY);
+    }
+
+    /**
+     * Allocate a pooled buffer holding a copy of the readable bytes of the
+     * specified buffer. Does not consume the specified buffer.
+     *
+     * @param data the data to copy.
+     * @return the new buffer.
+     */
+    public static ByteBuf copy(final ByteBuf data) {
+        pooledCount.increment();
+        final int length = data.readableBytes();
+        return ALLOCATOR.heapBuffer(length).writeBytes(data, data.readerIndex(), length);
+    }
+
+    /**
+     * Release the specified buffer if it was allocated by this pool.
+     *
+     * @param data the buffer to release.
+     */
+    public static void release(final ByteBuf data) {
+        if (isPooled(data)) {
+            data.release();
+        }
+    }
+
+    /**
+     * Record that the specified buffer was queued to be sent, for the statistics.
+     *
+     * @param data the buffer that was queued.
+     */
+    static void onQueued(final ByteBuf data) {
+        if (!isPooled(data)) {
+            unpooledCount.increment();
+        }
+        queuedBytes.add(data.readableBytes());
+    }
+
+    /**
+     * Advance the statistics by one tick. Called at the end of each server tick.
+     */
+    static void onTick() {
+        if (++ticksSinceUpdate < STATISTICS_INTERVAL) {
+            return;
+        }
+        ticksSinceUpdate = 0;
+
+        statistics = new Statistics(pooledCount.sumThenReset(), unpooledCount.sumThenReset(), queuedBytes.sumThenReset(),
+            ALLOCATOR.metric().usedHeapMemory());
+    }
+
+    /**
+     * Get the statistics of the last {@link #STATISTICS_INTERVAL} ticks.
+     *
+     * @return the current statistics.
+     */
+    public static Statistics getStatistics() {
+        return statistics;
+    }
+
+    // --------------------------------------------------------------------- //
+
+    private static boolean isPooled(final ByteBuf data) {
+        return data.alloc() == ALLOCATOR;
+    }
+
+    // --------------------------------------------------------------------- //
+
+    /**
+     * Buffer allocations over the last {@link #STATISTICS_INTERVAL} ticks.
+     */
+    public static final class Statistics {
+        /**
+         * Number of buffers allocated from the pool.
+         */
+        public final long pooledCount;
+
+        /**
+         * Number of buffers queued by modules that were not allocated from
+         * the pool, which are left to the garbage collector.
+         */
+        public final long unpooledCount;
+
+        /**
+         * Total size of the data queued by modules, in bytes.
+         */
+        public final long queuedBytes;
+
+        /**
+         * Memory currently reserved by the pool, in bytes.
+         */
+        public final long poolMemory;
+
+        private Statistics(final long pooledCount, final long unpooledCount, final long queuedBytes, final long poolMemory) {
+            this.pooledCount = pooledCount;
+            this.unpooledCount = unpooledCount;
+            this.queuedBytes = queuedBytes;
+            this.poolMemory = poolMemory;
+        }
+    }
+
+    // --------------------------------------------------------------------- //
+
+    private ModuleDataBuffers() {
+    }
+}
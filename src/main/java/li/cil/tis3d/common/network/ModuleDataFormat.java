@@ -0,0 +1,228 @@
+package li.cil.tis3d.common.network;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.handler.codec.DecoderException;
+import li.cil.tis3d.api.machine.Face;
+import net.minecraft.util.PacketByteBuf;
+
+/**
+ * Wire format of the module data of a casing, as sent in
+ * {@link li.cil.tis3d.common.network.message.CasingDataBatchMessage}s and
+ * {@link li.cil.tis3d.common.network.message.CasingDataMessage}s.
+ * <p>
+ * The data holds any number of faces of a casing, each written
+ * as <tt>byte face, varint length</tt>, followed by the entries queued for
+ * the module on that face. Each entry is written as <tt>varint header,
+ * varint length</tt>, followed by its payload, where the header packs the
+ * kind of the entry and the type of the data.
+ * <p>
+ * Raw data of a type may be sent as a delta against the data of the same
+ * type the receiver got last, see {@link ModuleDataBaselines}. NBT data is
+ * written uncompressed, since packets are compressed as a whole by the
+ * connection once they exceed its compression threshold, and compressing
+ * entries on their own only adds overhead.
+ */
+public final class ModuleDataFormat {
+    /**
+     * Entry holding raw data, passed to {@link li.cil.tis3d.api.module.Module#onData(ByteBuf)}.
+     */
+    public static final int KIND_DATA = 0;
+
+    /**
+     * Entry holding NBT data, passed to {@link li.cil.tis3d.api.module.Module#onData(net.minecraft.nbt.CompoundTag)}.
+     */
+    public static final int KIND_NBT = 1;
+
+    /**
+     * Entry holding raw data encoded as delta against the last raw data of
+     * the same type, see {@link #writeDelta(PacketByteBuf, byte, byte[], ByteBuf, PacketByteBuf)}.
+     */
+    public static final int KIND_DELTA = 2;
+
+    private static final int KIND_BITS = 2;
+    private static final int KIND_MASK = (1 << KIND_BITS) - 1;
+
+    /**
+     * Unchanged bytes between two changed ones are sent along with those if
+     * there are fewer of them than this, since starting a new run of changed
+     * bytes costs at least as much.
+     */
+    private static final int MIN_SKIP = 2;
+
+    // --------------------------------------------------------------------- //
+
+    /**
+     * Get the kind of an entry from its header.
+     *
+     * @param header the header of the entry.
+     * @return the kind of the entry.
+     */
+    public static int getKind(final int header) {
+        return header & KIND_MASK;
+    }
+
+    /**
+     * Get the type of the data of an entry from its header.
+     *
+     * @param header the header of the entry.
+     * @return the type of the data, negative if it has none.
+     */
+    public static byte getType(final int header) {
+        return (byte)((header >>> KIND_BITS) - 1);
+    }
+
+    /**
+     * Write an entry with the specified payload. Does not consume the payload.
+     *
+     * @param buffer the buffer to write the entry to.
+     * @param kind   the kind of the entry.
+     * @param type   the type of the data.
+     * @param data   the payload of the entry.
+     */
+    public static void writeEntry(final PacketByteBuf buffer, final int kind, final byte type, final ByteBuf data) {
+        // Shift the type so that untyped data, i.e. -1, still fits a single byte.
+        buffer.writeVarInt(((type + 1) << KIND_BITS) | kind);
+        buffer.writeVarInt(data.readableBytes());
+        buffer.writeBytes(data, data.readerIndex(), data.readableBytes());
+    }
+
+    /**
+     * Write an entry with the specified payload, as delta against the data
+     * last sent to the receiver if the entry holds raw data of a type, at most
+     * {@link ModuleDataBaselines#MAX_DATA_SIZE} bytes large, and the delta is
+     * smaller, and update the baselines of the receiver. Does
+     * not consume the payload.
+     *
+     * @param buffer    the buffer to write the entry to.
+     * @param kind      the kind of the entry.
+     * @param type      the type of the data.
+     * @param data      the payload of the entry.
+     * @param position  the position of the casing the data is for.
+     * @param face      the face of the module the data is for.
+     * @param baselines the baselines of the receiver.
+     * @param scratch   a buffer to encode the delta in, cleared afterwards.
+     */
+    public static void writeEntry(final PacketByteBuf buffer, final int kind, final byte type, final ByteBuf data, final long position, final Face face, final ModuleDataBaselines baselines, final PacketByteBuf scratch) {
+        if (kind != KIND_DATA || type < 0) {
+            writeEntry(buffer, kind, type, data);
+            return;
+        }
+
+        // Data too large to be kept as baseline is always sent in full, the
+        // receiver rejects deltas of such data.
+        final byte[] baseline = data.readableBytes() <= ModuleDataBaselines.MAX_DATA_SIZE ? baselines.get(position, face, type) : null;
+        if (baseline == null || !writeDelta(buffer, type, baseline, data, scratch)) {
+            writeEntry(buffer, kind, type, data);
+        }
+        baselines.update(position, face, type, data);
+    }
+
+    /**
+     * Write an entry holding the specified raw data as delta against the
+     * specified baseline, if that is smaller than the data itself. Does not
+     * consume the data.
+     * <p>
+     * The delta is written as <tt>varint length</tt> of the data, followed by
+     * runs of <tt>varint skipped, varint count</tt> and <tt>count</tt> bytes,
+     * where skipped bytes are taken from the baseline. The last run ends
+     * after <tt>skipped</tt> if that reaches the end of the data.
+     *
+     * @param buffer   the buffer to write the entry to.
+     * @param type     the type of the data.
+     * @param baseline the data of the same type last sent to the receiver.
+     * @param data     the data to write.
+     * @param scratch  a buffer to encode the delta in, cleared afterwards.
+     * @return <tt>true</tt> if the delta was written; <tt>false</tt> if nothing was written.
+     */
+    public static boolean writeDelta(final PacketByteBuf buffer, final byte type, final byte[] baseline, final ByteBuf data, final PacketByteBuf scratch) {
+        final int offset = data.readerIndex();
+        final int length = data.readableBytes();
+
+        scratch.writeVarInt(length);
+        int position = 0;
+        while (position < length) {
+            int start = position;
+            while (start < length && isUnchanged(baseline, data, offset, start)) {
+                start++;
+            }
+            scratch.writeVarInt(start - position);
+            if (start == length) {
+                break;
+            }
+
+            int end = start;
+            while (end < length) {
+                if (!isUnchanged(baseline, data, offset, end)) {
+                    end++;
+                    continue;
+                }
+                int skipEnd = end;
+                while (skipEnd < length && isUnchanged(baseline, data, offset, skipEnd)) {
+                    skipEnd++;
+                }
+                if (skipEnd == length || skipEnd - end >= MIN_SKIP) {
+                    break;
+                }
+                end = skipEnd;
+            }
+            scratch.writeVarInt(end - start);
+            scratch.writeBytes(data, offset + start, end - start);
+            position = end;
+        }
+
+        final boolean isSmaller = scratch.readableBytes() < length;
+        if (isSmaller) {
+            writeEntry(buffer, KIND_DELTA, type, scratch);
+        }
+        scratch.clear();
+        return isSmaller;
+    }
+
+    /**
+     * Read the payload of a delta entry written by {@link #writeDelta(PacketByteBuf, byte, byte[], ByteBuf, PacketByteBuf)}.
+     *
+     * @param baseline the data of the same type last received.
+     * @param delta    the payload of the entry.
+     * @return the decoded data.
+     * @throws DecoderException if the delta is invalid.
+     */
+    public static byte[] readDelta(final byte[] baseline, final PacketByteBuf delta) {
+        final int length = delta.readVarInt();
+        if (length < 0 || length > ModuleDataBaselines.MAX_DATA_SIZE) {
+            throw new DecoderException("Delta exceeds maximum size: " + length);
+        }
+
+        final byte[] data = new byte[length];
+        int position = 0;
+        while (position < length) {
+            final int skipped = delta.readVarInt();
+            if (skipped < 0 || skipped > length - position || skipped > baseline.length - position) {
+                throw new DecoderException("Delta skips past end of data.");
+            }
+            System.arraycopy(baseline, position, data, position, skipped);
+            position += skipped;
+            if (position == length) {
+                break;
+            }
+
+            final int count = delta.readVarInt();
+            if (count <= 0 || count > length - position) {
+                throw new DecoderException("Delta writes past end of data.");
+            }
+            delta.readBytes(data, position, count);
+            position += count;
+        }
+        return data;
+    }
+
+    // --------------------------------------------------------------------- //
+
+    private static boolean isUnchanged(final byte[] baseline, final ByteBuf data, final int offset, final int index) {
+        return index < baseline.length && baseline[index] == data.getByte(offset + index);
+    }
+
+    // --------------------------------------------------------------------- //
+
+    private ModuleDataFormat() {
+    }
+}
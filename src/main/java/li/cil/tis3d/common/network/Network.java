@@ -1,8 +1,9 @@
 package li.cil.tis3d.common.network;
 
 import io.netty.buffer.ByteBuf;
-import io.netty.buffer.ByteBufOutputStream;
 import io.netty.buffer.Unpooled;
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
 import li.cil.tis3d.api.API;
 import li.cil.tis3d.api.machine.Casing;
 import li.cil.tis3d.api.machine.Face;
@@ -11,6 +12,8 @@ import li.cil.tis3d.common.Settings;
 import li.cil.tis3d.common.TIS3D;
 import li.cil.tis3d.common.network.handler.AbstractMessageHandler;
 import li.cil.tis3d.common.network.handler.CasingDataMessageHandler;
+import li.cil.tis3d.common.network.handler.CasingInterestMessageHandler;
+import li.cil.tis3d.common.network.handler.ClientSettingsMessageHandler;
 import li.cil.tis3d.common.network.handler.CodeBookDataMessageHandler;
 import li.cil.tis3d.common.network.handler.ReadOnlyMemoryModuleDataServerMessageHandler;
 import li.cil.tis3d.common.network.message.*;
@@ -26,21 +29,19 @@ import net.minecraft.client.MinecraftClient;
 import net.minecraft.client.network.ClientPlayNetworkHandler;
 import net.minecraft.entity.player.PlayerEntity;
 import net.minecraft.nbt.CompoundTag;
-import net.minecraft.nbt.NbtIo;
-import net.minecraft.network.Packet;
 import net.minecraft.network.packet.c2s.play.CustomPayloadC2SPacket;
 import net.minecraft.network.packet.s2c.play.CustomPayloadS2CPacket;
-import net.minecraft.network.packet.s2c.play.ParticleS2CPacket;
-import net.minecraft.particle.DustParticleEffect;
 import net.minecraft.server.network.ServerPlayerEntity;
 import net.minecraft.util.Identifier;
 import net.minecraft.util.PacketByteBuf;
 import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.MathHelper;
 import net.minecraft.util.math.Vec3d;
 import net.minecraft.world.World;
 
-import java.io.IOException;
+import javax.annotation.Nullable;
 import java.util.*;
+import java.util.function.Consumer;
 
 /**
  * Central networking hub for TIS-3D.
@@ -59,11 +60,18 @@ public final class Network {
 
     private final Map<Class<AbstractMessage>, Identifier> messageIdCache = new HashMap<>();
 
+    /**
+     * Players collected for sending a message to, reused for each message.
+     * Only accessed on the server thread.
+     */
+    private final List<ServerPlayerEntity> nearbyPlayers = new ArrayList<>();
+
     // --------------------------------------------------------------------- //
 
     @Environment(EnvType.CLIENT)
     public void initClient() {
-        registerMessage(new CasingDataMessageHandler(), CasingDataMessage.class, Side.CLIENT);
+        registerMessage(new CasingDataBatchMessageHandler(), CasingDataBatchMessage.class, Side.CLIENT);
+        registerMessage(new ParticleEffectBatchMessageHandler(), ParticleEffectBatchMessage.class, Side.CLIENT);
         registerMessage(new CasingEnabledStateMessageHandler(), CasingEnabledStateMessage.class, Side.CLIENT);
         registerMessage(new CasingLockedStateMessageHandler(), CasingLockedStateMessage.class, Side.CLIENT);
         registerMessage(new CasingInventoryMessageHandler(), CasingInventoryMessage.class, Side.CLIENT);
@@ -75,6 +83,8 @@ public final class Network {
     public void initServer() {
         registerMessage(new CodeBookDataMessageHandler(), CodeBookDataMessage.class, Side.SERVER);
         registerMessage(new CasingDataMessageHandler(), CasingDataMessage.class, Side.SERVER);
+        registerMessage(new CasingInterestMessageHandler(), CasingInterestMessage.class, Side.SERVER);
+        registerMessage(new ClientSettingsMessageHandler(), ClientSettingsMessage.class, Side.SERVER);
         registerMessage(new ReadOnlyMemoryModuleDataServerMessageHandler(), ReadOnlyMemoryModuleDataMessage.class, Side.SERVER);
     }
 
@@ -88,6 +98,10 @@ public final class Network {
         getQueueFor(casing).queueData(face, data, type);
     }
 
+    public void sendModuleData(final Casing casing, final Face face, final Consumer<ByteBuf> writer, final byte type) {
+        getQueueFor(casing).queueData(face, writer, type);
+    }
+
     public void sendRedstoneEffect(final World world, final double x, final double y, final double z) {
         final BlockPos position = new BlockPos(x, y, z);
         if (!WorldUtils.isBlockLoaded(world, position)) {
@@ -101,7 +115,7 @@ public final class Network {
             }
         }
 
-        queueParticleEffect(world, (float)x, (float)y, (float)z);
+        ParticleEffects.queue(world, x, y, z);
     }
 
     public int sendToClientsInDimension(final AbstractMessage message, final World world) {
@@ -125,7 +139,13 @@ public final class Network {
     }
 
     public int sendToClientsNearLocation(final AbstractMessage message, final World world, final BlockPos pos, final int range) {
-        if (world.getPlayers().isEmpty()) {
+        final PlayerIndex index = PlayerIndex.get(world);
+        if (index.isEmpty()) {
+            return 0;
+        }
+
+        index.collectPlayersNear(pos.getX(), pos.getY(), pos.getZ(), range, nearbyPlayers);
+        if (nearbyPlayers.isEmpty()) {
             return 0;
         }
 
@@ -133,7 +153,17 @@ public final class Network {
         final PacketByteBuf buffer = serializeMessage(message);
         final CustomPayloadS2CPacket packet = new CustomPayloadS2CPacket(id, buffer);
 
-        return sendToClientsNearLocation(packet, world, pos, range);
+        int sent = 0;
+        for (int i = 0; i < nearbyPlayers.size(); i++) {
+            final ServerPlayerEntity player = nearbyPlayers.get(i);
+            player.networkHandler.sendPacket(packet);
+            if (!player.networkHandler.connection.isLocal()) {
+                sent++;
+            }
+        }
+        nearbyPlayers.clear();
+
+        return sent;
     }
 
     public void sendToClient(final AbstractMessage message, final PlayerEntity player) {
@@ -156,24 +186,6 @@ public final class Network {
         networkHandler.sendPacket(packet);
     }
 
-    private int sendToClientsNearLocation(final Packet<?> packet, final World world, final BlockPos pos, final int range) {
-        final int rangeSq = range * range;
-        int sent = 0;
-        for (final PlayerEntity player : world.getPlayers()) {
-            if (player instanceof ServerPlayerEntity) {
-                if (player.squaredDistanceTo(new Vec3d(pos)) < rangeSq) {
-                    final ServerPlayerEntity networkedPlayer = (ServerPlayerEntity)player;
-                    networkedPlayer.networkHandler.sendPacket(packet);
-                    if (!networkedPlayer.networkHandler.connection.isLocal()) {
-                        sent++;
-                    }
-                }
-            }
-        }
-
-        return sent;
-    }
-
     // --------------------------------------------------------------------- //
     // Message registration and packaging
 
@@ -217,150 +229,33 @@ public final class Network {
     // Message flushing
 
     public void serverTick() {
-        flushCasingQueues(Side.SERVER);
-        flushParticleQueue();
+        flushServerQueues();
+        ParticleEffects.flush();
+        ModuleDataBuffers.onTick();
+        PlayerIndex.clearAll();
     }
 
     public void clientTick() {
-        flushCasingQueues(Side.CLIENT);
-    }
-
-    // --------------------------------------------------------------------- //
-    // Particle message queueing
-
-    private static final int TICK_TIME = 50;
-    private static final Set<Position> particleQueue = new HashSet<>();
-    private static long lastParticlesSent = 0;
-    private static int particlesSent = 0;
-    private static int particleSendInterval = TICK_TIME;
-
-    private static void queueParticleEffect(final World world, final float x, final float y, final float z) {
-        final Position position = new Position(world, x, y, z);
-        particleQueue.add(position);
-    }
-
-    private static void flushParticleQueue() {
-        final long now = System.currentTimeMillis();
-        if (now - lastParticlesSent < particleSendInterval) {
-            return;
-        }
-        lastParticlesSent = now;
-
-        particlesSent = 0;
-        particleQueue.forEach(Position::sendMessage);
-
-        if (particlesSent > Settings.maxParticlesPerTick) {
-            final int throttle = (int)Math.ceil(particlesSent / (float)Settings.maxParticlesPerTick);
-            particleSendInterval = Math.min(2000, TICK_TIME * throttle);
-        } else {
-            particleSendInterval = TICK_TIME;
-        }
-
-        particleQueue.clear();
-    }
-
-    /**
-     * Track dimensional position of particle emission for culling duplicates
-     * when currently throttling.
-     */
-    private static final class Position {
-        private final World world;
-        private final float x;
-        private final float y;
-        private final float z;
-
-        private Position(final World world, final float x, final float y, final float z) {
-            this.world = world;
-            this.x = x;
-            this.y = y;
-            this.z = z;
-        }
-
-        private void sendMessage() {
-            final ParticleS2CPacket packet = new ParticleS2CPacket(DustParticleEffect.RED, false, x, y, z, 0, 0, 0, 0, 1);
-            if (Network.INSTANCE.sendToClientsNearLocation(packet, world, new BlockPos(x, y, z), RANGE_LOW) > 0) {
-                particlesSent++;
-            }
-        }
-
-        @Override
-        public boolean equals(final Object obj) {
-            if (this == obj) {
-                return true;
-            }
-            if (obj == null || getClass() != obj.getClass()) {
-                return false;
-            }
-
-            final Position that = (Position)obj;
-            return world.dimension.getType() == that.world.dimension.getType() &&
-                Float.compare(that.x, x) == 0 &&
-                Float.compare(that.y, y) == 0 &&
-                Float.compare(that.z, z) == 0;
-
-        }
-
-        @Override
-        public int hashCode() {
-            int result = world.dimension.getType().getRawId();
-            result = 31 * result + (x != +0.0f ? Float.floatToIntBits(x) : 0);
-            result = 31 * result + (y != +0.0f ? Float.floatToIntBits(y) : 0);
-            result = 31 * result + (z != +0.0f ? Float.floatToIntBits(z) : 0);
-            return result;
-        }
+        flushClientQueues();
     }
 
     // --------------------------------------------------------------------- //
     // Module data metering
 
-    private static int packetsSentServer = 0;
-    private static int packetsSentClient = 0;
-    private static int throttleServer = 0;
-    private static int throttleClient = 0;
-
-    private static int getPacketsSent(final Side side) {
-        return side == Side.CLIENT ? packetsSentClient : packetsSentServer;
-    }
-
-    private static void resetPacketsSent(final Side side) {
-        if (side == Side.CLIENT) {
-            packetsSentClient = 0;
-        } else {
-            packetsSentServer = 0;
-        }
-    }
-
-    private static void incrementPacketsSent(final Side side) {
-        if (side == Side.CLIENT) {
-            packetsSentClient++;
-        } else {
-            packetsSentServer++;
-        }
-    }
-
-    private static int getThrottle(final Side side) {
-        return side == Side.CLIENT ? throttleClient : throttleServer;
-    }
-
-    private static void setThrottle(final Side side, final int value) {
-        if (side == Side.CLIENT) {
-            throttleClient = value;
-        } else {
-            throttleServer = value;
-        }
-    }
-
-    private static void decrementThrottle(final Side side) {
-        if (side == Side.CLIENT) {
-            throttleClient--;
-        } else {
-            throttleServer--;
-        }
-    }
+    // Only applies to data sent by clients, data sent by the server is
+    // limited per player, see PlayerSendQueue.
+    private static int packetsSent = 0;
+    private static int throttle = 0;
 
     // --------------------------------------------------------------------- //
     // Module data queueing
 
+    /**
+     * Interval in ticks in which high rate module data is sent to players
+     * not watching the module, see {@link CasingInterests}.
+     */
+    private static final int SUMMARY_INTERVAL = 20;
+
     private static final Stack<CasingSendQueue> queuePool = new Stack<>();
     private static final Map<Casing, CasingSendQueue> clientQueues = new HashMap<>();
     private static final Map<Casing, CasingSendQueue> serverQueues = new HashMap<>();
@@ -386,50 +281,235 @@ public final class Network {
                     queue = new CasingSendQueue();
                 }
             }
+            queue.setCasing(casing);
             queues.put(casing, queue);
         }
         return queue;
     }
 
-    private static void flushCasingQueues(final Side side) {
-        if (getThrottle(side) > 0) {
-            decrementThrottle(side);
+    private static void flushClientQueues() {
+        if (throttle > 0) {
+            throttle--;
             return;
         }
 
-        resetPacketsSent(side);
+        packetsSent = 0;
 
-        final Map<Casing, CasingSendQueue> queues = getQueues(side);
-        queues.forEach(Network::flushCasingQueue);
-        clearQueues(queues);
+        clientQueues.values().forEach(CasingSendQueue::flushClient);
+        clearQueues(clientQueues);
 
-        final int sent = getPacketsSent(side);
-        if (sent > Settings.maxPacketsPerTick) {
-            final int throttle = (int)Math.min(40, Math.ceil(sent / (float)Settings.maxPacketsPerTick));
-            setThrottle(side, throttle);
+        if (packetsSent > Settings.maxPacketsPerTick) {
+            throttle = (int)Math.min(40, Math.ceil(packetsSent / (float)Settings.maxPacketsPerTick));
         }
     }
 
-    private static void flushCasingQueue(final Casing casing, final CasingSendQueue queue) {
-        queue.flush(casing);
+    private static void flushServerQueues() {
+        final Map<World, CasingBatch> batches = new HashMap<>();
+        for (final CasingSendQueue queue : serverQueues.values()) {
+            batches.computeIfAbsent(queue.getWorld(), CasingBatch::new).add(queue);
+        }
+        batches.values().forEach(CasingBatch::flush);
+        clearQueues(serverQueues);
+
+        PlayerSendQueue.flushAll();
     }
 
     private static void clearQueues(final Map<Casing, CasingSendQueue> queues) {
         synchronized (queuePool) {
-            queuePool.addAll(queues.values());
+            // Keep queues holding data that has not been sent to all players
+            // yet, so it can be sent with the next summary.
+            final Iterator<CasingSendQueue> iterator = queues.values().iterator();
+            while (iterator.hasNext()) {
+                final CasingSendQueue queue = iterator.next();
+                if (!queue.hasPendingData()) {
+                    queue.reset();
+                    queuePool.push(queue);
+                    iterator.remove();
+                }
+            }
+        }
+    }
+
+    /**
+     * Hands the data of all casings in a world to the players near them, see
+     * {@link PlayerSendQueue}, which sends one message per player holding
+     * the data of all casings near that player.
+     * <p>
+     * Casings are bucketed by chunk section, so that finding the casings near
+     * a player only looks at the sections in range of that player, instead of
+     * checking the distance of every casing to every player.
+     */
+    private static final class CasingBatch {
+        private final World world;
+        private final List<CasingSendQueue> queues = new ArrayList<>();
+        private final Long2ObjectMap<Section> sections = new Long2ObjectOpenHashMap<>();
+
+        private CasingBatch(final World world) {
+            this.world = world;
+        }
+
+        private void add(final CasingSendQueue queue) {
+            final BlockPos position = queue.getCasing().getPosition();
+            final int x = position.getX() >> 4;
+            final int y = position.getY() >> 4;
+            final int z = position.getZ() >> 4;
+            final long key = BlockPos.asLong(x, y, z);
+            Section section = sections.get(key);
+            if (section == null) {
+                section = new Section(x, y, z);
+                sections.put(key, section);
+            }
+            section.queues.add(queue);
+            queues.add(queue);
+        }
+
+        private void flush() {
+            // Find the casings near each player first, since the data of a
+            // casing depends on the faces watched by all players near it.
+            final List<ServerPlayerEntity> players = new ArrayList<>();
+            final List<List<CasingSendQueue>> nearbyQueues = new ArrayList<>();
+            for (final PlayerEntity player : world.getPlayers()) {
+                if (player instanceof ServerPlayerEntity) {
+                    final List<CasingSendQueue> playerQueues = new ArrayList<>();
+                    collectNearbyQueues(player, playerQueues);
+                    if (!playerQueues.isEmpty()) {
+                        players.add((ServerPlayerEntity)player);
+                        nearbyQueues.add(playerQueues);
+                        for (final CasingSendQueue queue : playerQueues) {
+                            queue.addWatchedFaces(CasingInterests.getWatchedFaces(player, world, queue.getCasing().getPosition()));
+                        }
+                    }
+                }
+            }
+
+            for (final CasingSendQueue queue : queues) {
+                queue.collectServerData();
+            }
+
+            for (int i = 0; i < players.size(); i++) {
+                final ServerPlayerEntity player = players.get(i);
+                final PlayerSendQueue playerQueue = PlayerSendQueue.get(player);
+                for (final CasingSendQueue queue : nearbyQueues.get(i)) {
+                    queue.queueServerData(player, playerQueue);
+                }
+            }
+
+            for (final CasingSendQueue queue : queues) {
+                queue.clearData();
+            }
+        }
+
+        private void collectNearbyQueues(final PlayerEntity player, final List<CasingSendQueue> result) {
+            final Vec3d position = player.getPos();
+            final int minX = MathHelper.floor(position.x - RANGE_HIGH) >> 4;
+            final int minY = MathHelper.floor(position.y - RANGE_HIGH) >> 4;
+            final int minZ = MathHelper.floor(position.z - RANGE_HIGH) >> 4;
+            final int maxX = MathHelper.floor(position.x + RANGE_HIGH) >> 4;
+            final int maxY = MathHelper.floor(position.y + RANGE_HIGH) >> 4;
+            final int maxZ = MathHelper.floor(position.z + RANGE_HIGH) >> 4;
+
+            // Look up the sections in range, or check all occupied sections
+            // if there are fewer of those.
+            final int volume = (maxX - minX + 1) * (maxY - minY + 1) * (maxZ - minZ + 1);
+            if (volume < sections.size()) {
+                for (int y = minY; y <= maxY; y++) {
+                    for (int z = minZ; z <= maxZ; z++) {
+                        for (int x = minX; x <= maxX; x++) {
+                            final Section section = sections.get(BlockPos.asLong(x, y, z));
+                            if (section != null) {
+                                section.collectNearbyQueues(player, result);
+                            }
+                        }
+                    }
+                }
+            } else {
+                for (final Section section : sections.values()) {
+                    if (section.x >= minX && section.x <= maxX &&
+                        section.y >= minY && section.y <= maxY &&
+                        section.z >= minZ && section.z <= maxZ) {
+                        section.collectNearbyQueues(player, result);
+                    }
+                }
+            }
+        }
+
+        /**
+         * The queues of the casings in a single chunk section.
+         */
+        private static final class Section {
+            private final int x;
+            private final int y;
+            private final int z;
+            private final List<CasingSendQueue> queues = new ArrayList<>();
+
+            private Section(final int x, final int y, final int z) {
+                this.x = x;
+                this.y = y;
+                this.z = z;
+            }
+
+            private void collectNearbyQueues(final PlayerEntity player, final List<CasingSendQueue> result) {
+                for (final CasingSendQueue queue : queues) {
+                    if (queue.isInRange(player)) {
+                        result.add(queue);
+                    }
+                }
+            }
         }
-        queues.clear();
     }
 
     /**
      * Collects messages for a single casing.
+     * <p>
+     * Data queued as writers changes at high rates, and is only sent at full
+     * rate to players watching the module it belongs to, see {@link CasingInterests}.
+     * Other players nearby receive it with a summary sent every {@link Network#SUMMARY_INTERVAL}
+     * ticks. Until then, the queue is kept, and the writers re-run to send the
+     * latest data.
      */
     private static final class CasingSendQueue {
+        private static final int ALL_FACES = (1 << Face.VALUES.length) - 1;
+
         private final ModuleSendQueue[] moduleQueues = new ModuleSendQueue[Face.VALUES.length];
 
+        /**
+         * Buffers the collected data is written into, reused for each flush.
+         * Messages are serialized when sent, so these may be cleared right
+         * after sending. The entries collected per module are written in
+         * the format of {@link ModuleDataFormat}, and on the server queued for
+         * each player near the casing.
+         */
+        private final PacketByteBuf data = new PacketByteBuf(Unpooled.buffer());
+        private final PacketByteBuf[] moduleData = new PacketByteBuf[Face.VALUES.length];
+        private final PacketByteBuf[] moduleDetailData = new PacketByteBuf[Face.VALUES.length];
+        private final PacketByteBuf scratch = new PacketByteBuf(Unpooled.buffer());
+
+        /**
+         * The casing this queue currently belongs to.
+         */
+        @Nullable
+        private Casing casing;
+        @Nullable
+        private Vec3d center;
+
+        /**
+         * The faces watched by any player near the casing in the last flush,
+         * and in the current flush, as reported via {@link #addWatchedFaces(int)}.
+         */
+        private int watchedFaces;
+        private int currentlyWatchedFaces;
+
+        /**
+         * Whether the data of the current flush includes writer data for all
+         * players, see {@link Network#SUMMARY_INTERVAL}.
+         */
+        private boolean isSummary;
+
         private CasingSendQueue() {
             for (int i = 0; i < moduleQueues.length; i++) {
                 moduleQueues[i] = new ModuleSendQueue();
+                moduleData[i] = new PacketByteBuf(Unpooled.buffer());
+                moduleDetailData[i] = new PacketByteBuf(Unpooled.buffer());
             }
         }
 
@@ -441,42 +521,146 @@ public final class Network {
             moduleQueues[face.ordinal()].queueData(data, type);
         }
 
+        private void queueData(final Face face, final Consumer<ByteBuf> writer, final byte type) {
+            moduleQueues[face.ordinal()].queueData(writer, type);
+        }
+
+        private boolean hasPendingData() {
+            for (final ModuleSendQueue queue : moduleQueues) {
+                if (queue.hasPendingWriters()) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private void setCasing(final Casing casing) {
+            this.casing = casing;
+            center = new Vec3d(casing.getPosition());
+        }
+
+        private Casing getCasing() {
+            return Objects.requireNonNull(casing);
+        }
+
+        private World getWorld() {
+            return getCasing().getCasingWorld();
+        }
+
+        private boolean isInRange(final PlayerEntity player) {
+            return player.squaredDistanceTo(Objects.requireNonNull(center)) < RANGE_HIGH * RANGE_HIGH;
+        }
+
+        private void reset() {
+            casing = null;
+            center = null;
+            watchedFaces = 0;
+        }
+
         /**
-         * Flush the casing's queue, sending all queued packets to clients.
-         *
-         * @param casing the casing this queue belongs to.
+         * Flush the casing's queue on the client, sending all queued packets
+         * to the server.
          */
-        private void flush(final Casing casing) {
-            final World world = casing.getCasingWorld();
-            final Side side = world.isClient ? Side.CLIENT : Side.SERVER;
-            final ByteBuf data = Unpooled.buffer();
-            collectData(data);
+        private void flushClient() {
+            final Casing casing = getCasing();
+            collectData(ALL_FACES, ALL_FACES, true);
+            writeData();
             if (data.readableBytes() > 0) {
-                final CasingDataMessage message = new CasingDataMessage(casing, data);
-                final boolean didSend;
-                if (side == Side.CLIENT) {
-                    //noinspection MethodCallSideOnly Guarded by == Side.CLIENT check.
-                    Network.INSTANCE.sendToServer(message);
-                    didSend = true;
-                } else {
-                    didSend = Network.INSTANCE.sendToClientsNearLocation(message, casing.getCasingWorld(), casing.getPosition(), Network.RANGE_HIGH) > 0;
-                }
-                if (didSend) {
-                    incrementPacketsSent(side);
+                //noinspection MethodCallSideOnly Only called on the client.
+                Network.INSTANCE.sendToServer(new CasingDataMessage(casing, data));
+                packetsSent++;
+            }
+            clearData();
+        }
+
+        /**
+         * Add faces watched by a player near the casing, before the data is
+         * collected via {@link #collectServerData()}.
+         *
+         * @param faces the watched faces, as bit mask indexed by face ordinal.
+         */
+        private void addWatchedFaces(final int faces) {
+            currentlyWatchedFaces |= faces;
+        }
+
+        /**
+         * Collect the queued data on the server, before it is written for
+         * each player near the casing via {@link #queueServerData(PlayerEntity, PlayerSendQueue)}.
+         */
+        private void collectServerData() {
+            final World world = getWorld();
+            final BlockPos position = getCasing().getPosition();
+            isSummary = Math.floorMod(world.getTime() + position.hashCode(), (long)SUMMARY_INTERVAL) == 0;
+
+            final int newlyWatchedFaces = currentlyWatchedFaces & ~watchedFaces;
+            watchedFaces = currentlyWatchedFaces;
+            currentlyWatchedFaces = 0;
+
+            collectData(isSummary ? ALL_FACES : watchedFaces, newlyWatchedFaces, isSummary);
+        }
+
+        /**
+         * Queue the collected data for the specified player.
+         *
+         * @param player the player to queue the data for.
+         * @param queue  the queue of the player.
+         */
+        private void queueServerData(final PlayerEntity player, final PlayerSendQueue queue) {
+            final long position = getCasing().getPosition().asLong();
+            final int watchedFaces = CasingInterests.getWatchedFaces(player, getWorld(), getCasing().getPosition());
+            final int detailFaces = isSummary ? ALL_FACES : watchedFaces;
+            for (int i = 0; i < moduleQueues.length; i++) {
+                final Face face = Face.VALUES[i];
+                final boolean isWatched = (watchedFaces & (1 << i)) != 0;
+                queueEntries(position, face, moduleData[i], isWatched, queue);
+                if ((detailFaces & (1 << i)) != 0) {
+                    queueEntries(position, face, moduleDetailData[i], isWatched, queue);
                 }
             }
         }
 
-        private void collectData(final ByteBuf data) {
+        private void collectData(final int detailFaces, final int newlyWatchedFaces, final boolean isSummary) {
+            for (int i = 0; i < moduleQueues.length; i++) {
+                final int faceMask = 1 << i;
+                moduleQueues[i].collectData(moduleData[i], moduleDetailData[i], scratch, (detailFaces & faceMask) != 0, (newlyWatchedFaces & faceMask) != 0, isSummary);
+            }
+        }
+
+        private void clearData() {
+
+            data.clear();
+            for (int i = 0; i < moduleQueues.length; i++) {
+                moduleData[i].clear();
+                moduleDetailData[i].clear();
+            }
+        }
+
+        /**
+         * Write the collected data into the packet data buffer.
+         */
+        private void writeData() {
             for (int i = 0; i < moduleQueues.length; i++) {
-                final ByteBuf moduleData = moduleQueues[i].collectData();
-                if (moduleData.readableBytes() > 0) {
+                final ByteBuf faceData = moduleData[i];
+                final ByteBuf faceDetailData = moduleDetailData[i];
+                final int length = faceData.readableBytes() + faceDetailData.readableBytes();
+                if (length > 0) {
                     data.writeByte(i);
-                    data.writeShort(moduleData.readableBytes());
-                    data.writeBytes(moduleData);
+                    data.writeVarInt(length);
+                    data.writeBytes(faceData);
+                    data.writeBytes(faceDetailData);
                 }
             }
         }
+
+        private static void queueEntries(final long position, final Face face, final PacketByteBuf entries, final boolean isWatched, final PlayerSendQueue queue) {
+            // Don't consume, data may be queued for multiple players.
+            final PacketByteBuf reader = new PacketByteBuf(entries.slice());
+            while (reader.readableBytes() > 0) {
+                final int header = reader.readVarInt();
+                final ByteBuf payload = reader.readSlice(reader.readVarInt());
+                queue.queue(position, face, ModuleDataFormat.getKind(header), ModuleDataFormat.getType(header), payload, isWatched);
+            }
+        }
     }
 
     /**
@@ -486,6 +670,11 @@ public final class Network {
         private final List<QueueEntry> sendQueue = new ArrayList<>();
         private final BitSet sentTypes = new BitSet(0xFF);
 
+        /**
+         * Writers whose data has not been sent to all players yet.
+         */
+        private final List<QueueEntryWriter> pendingWriters = new ArrayList<>();
+
         /**
          * Enqueue the specified data packet.
          *
@@ -497,21 +686,48 @@ public final class Network {
         }
 
         /**
-         * Enqueue the specified data packet.
+         * Enqueue the specified data packet. Takes ownership of the data if
+         * it was allocated via {@link ModuleDataBuffers}.
          *
          * @param data the data to enqueue.
          * @param type the type of the data.
          */
         private void queueData(final ByteBuf data, final byte type) {
+            ModuleDataBuffers.onQueued(data);
             sendQueue.add(new QueueEntryByteBuf(type, data));
         }
 
         /**
-         * Collect all data in a tag list and clear the queue.
+         * Enqueue the specified data writer.
+         *
+         * @param writer the writer producing the data to enqueue.
+         * @param type   the type of the data.
+         */
+        private void queueData(final Consumer<ByteBuf> writer, final byte type) {
+            sendQueue.add(new QueueEntryWriter(type, writer));
+        }
+
+        private boolean hasPendingWriters() {
+            return !pendingWriters.isEmpty();
+        }
+
+        /**
+         * Collect all data into the specified buffers and clear the queue,
+         * releasing the buffers of all entries written or replaced.
          *
-         * @return the collected data for the module.
+         * @param data            the buffer to write the collected data for the module to.
+         * @param detailData      the buffer to write data produced by writers to.
+         * @param scratch         a buffer to serialize entries in before writing them.
+         * @param isWatched       whether any player watches the module.
+         * @param isNewlyWatched  whether any player started watching the module.
+         * @param isSummary       whether the data is sent to all players.
          */
-        private ByteBuf collectData() {
+        private void collectData(final PacketByteBuf data, final PacketByteBuf detailData, final PacketByteBuf scratch, final boolean isWatched, final boolean isNewlyWatched, final boolean isSummary) {
+            // Writers still pending from previous flushes go first, so
+            // that newer data of the same type replaces them.
+            sendQueue.addAll(0, pendingWriters);
+            pendingWriters.clear();
+
             // Building the list backwards to easily use the last data of
             // any type without having to remove from the queue. However,
             // that could lead to sending different types in the reverse
@@ -519,12 +735,12 @@ public final class Network {
             // actually send (by appending to the queue), and then sending
             // those selected packets -- in reverse again, to restore the
             // original order they were queued in.
-            final ByteBuf data = Unpooled.buffer();
             final int firstToWrite = sendQueue.size();
             for (int i = sendQueue.size() - 1; i >= 0; i--) {
                 final byte type = sendQueue.get(i).type;
                 if (type >= 0) {
                     if (sentTypes.get(type)) {
+                        sendQueue.get(i).release();
                         continue;
                     }
                     sentTypes.set(type);
@@ -533,13 +749,26 @@ public final class Network {
                 sendQueue.add(sendQueue.get(i));
             }
             for (int i = sendQueue.size() - 1; i >= firstToWrite; i--) {
-                sendQueue.get(i).write(data);
+                final QueueEntry entry = sendQueue.get(i);
+                if (entry instanceof QueueEntryWriter) {
+                    // Only run writers if someone receives their data, and
+                    // only again if someone did not receive it yet.
+                    final QueueEntryWriter writerEntry = (QueueEntryWriter)entry;
+                    if (isSummary || (isWatched && (!writerEntry.isWritten || isNewlyWatched))) {
+                        writerEntry.write(detailData, scratch);
+                        writerEntry.isWritten = true;
+                    }
+                    if (!isSummary) {
+                        pendingWriters.add(writerEntry);
+                    }
+                } else {
+                    entry.write(data, scratch);
+                    entry.release();
+                }
             }
 
             sendQueue.clear();
             sentTypes.clear();
-
-            return data;
         }
 
         /**
@@ -555,9 +784,17 @@ public final class Network {
             /**
              * Serialize the queue entry into the specified byte buffer.
              *
-             * @param buffer the buffer to write into.
+             * @param buffer  the buffer to write into.
+             * @param scratch a buffer to serialize the data in, cleared afterwards.
+             */
+            public abstract void write(final PacketByteBuf buffer, final PacketByteBuf scratch);
+
+            /**
+             * Release any resources held by the entry, after it was written
+             * or replaced.
              */
-            public abstract void write(final ByteBuf buffer);
+            public void release() {
+            }
         }
 
         /**
@@ -572,18 +809,14 @@ public final class Network {
             }
 
             @Override
-            public void write(final ByteBuf buffer) {
-                final ByteBuf data = Unpooled.buffer();
-                final ByteBufOutputStream bos = new ByteBufOutputStream(data);
+            public void write(final PacketByteBuf buffer, final PacketByteBuf scratch) {
                 try {
-                    NbtIo.writeCompressed(this.data, bos);
-                    if (data.readableBytes() > 0) {
-                        buffer.writeBoolean(true);
-                        buffer.writeShort(data.readableBytes());
-                        buffer.writeBytes(data);
-                    }
-                } catch (final IOException e) {
+                    scratch.writeCompoundTag(data);
+                    ModuleDataFormat.writeEntry(buffer, ModuleDataFormat.KIND_NBT, type, scratch);
+                } catch (final RuntimeException e) {
                     TIS3D.getLog().warn("Failed sending packet.", e);
+                } finally {
+                    scratch.clear();
                 }
             }
         }
@@ -600,12 +833,43 @@ public final class Network {
             }
 
             @Override
-            public void write(final ByteBuf buffer) {
+            public void write(final PacketByteBuf buffer, final PacketByteBuf scratch) {
                 if (data.readableBytes() > 0) {
-                    buffer.writeBoolean(false);
-                    buffer.writeShort(data.readableBytes());
-                    buffer.writeBytes(data);
+                    ModuleDataFormat.writeEntry(buffer, ModuleDataFormat.KIND_DATA, type, data);
+                }
+            }
+
+            @Override
+            public void release() {
+                ModuleDataBuffers.release(data);
+            }
+        }
+
+        /**
+         * Queue entry for data serialized only when written.
+         */
+        private static final class QueueEntryWriter extends QueueEntry {
+            public final Consumer<ByteBuf> writer;
+
+            /**
+             * Whether the writer was run since it was queued.
+             */
+            public boolean isWritten;
+
+            private QueueEntryWriter(final byte type, final Consumer<ByteBuf> writer) {
+                super(type);
+                this.writer = writer;
+            }
+
+            @Override
+            public void write(final PacketByteBuf buffer, final PacketByteBuf scratch) {
+                // The length is written as varint before the data, so the
+                // writer writes into the scratch buffer first.
+                writer.accept(scratch);
+                if (scratch.readableBytes() > 0) {
+                    ModuleDataFormat.writeEntry(buffer, ModuleDataFormat.KIND_DATA, type, scratch);
                 }
+                scratch.clear();
             }
         }
     }
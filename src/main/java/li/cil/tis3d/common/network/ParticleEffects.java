@@ -0,0 +1,211 @@
+package li.cil.tis3d.common.network;
+
+import io.netty.buffer.Unpooled;
+import it.unimi.dsi.fastutil.ints.IntIterator;
+import it.unimi.dsi.fastutil.ints.IntLinkedOpenHashSet;
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongIterator;
+import it.unimi.dsi.fastutil.objects.ReferenceOpenHashSet;
+import li.cil.tis3d.common.Settings;
+import li.cil.tis3d.common.network.message.ParticleEffectBatchMessage;
+import net.minecraft.entity.player.PlayerEntity;
+import net.minecraft.server.network.ServerPlayerEntity;
+import net.minecraft.util.PacketByteBuf;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.MathHelper;
+import net.minecraft.util.math.Vec3d;
+import net.minecraft.world.World;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Collects the particle effects emitted by data transfer each tick, and sends
+ * them to each player near them in a single packet, see {@link ParticleEffectBatchMessage}.
+ * <p>
+ * Effects are collected per chunk section, with positions quantized to a
+ * sixteenth of a block relative to the section, which also merges effects
+ * emitted at the same position. Each player receives the effects of all
+ * sections within {@link #VIEW_DISTANCE}, unless their client opted out of
+ * receiving them. Only accessed on the server thread.
+ */
+public final class ParticleEffects {
+    /**
+     * Distance up to which clients render particles, farther effects are
+     * not sent.
+     */
+    private static final int VIEW_DISTANCE = Network.RANGE_MEDIUM;
+
+    /**
+     * Distance from the center of a chunk section to its corners, rounded up.
+     */
+    private static final int SECTION_RADIUS = 14;
+
+    /**
+     * Queued effects per world, by chunk section, see {@link BlockPos#asLong(int, int, int)}.
+     */
+    private static final Map<World, Long2ObjectMap<IntLinkedOpenHashSet>> QUEUES = new HashMap<>();
+
+    /**
+     * Players whose clients opted out of receiving particle effects. By id,
+     * so that this persists when players respawn.
+     */
+    private static final Set<UUID> DISABLED_PLAYERS = new HashSet<>();
+
+    /**
+     * Buffer messages are built in, reused for each flush. Messages are
+     * serialized when sent, so this may be cleared right after sending.
+     */
+    private static final PacketByteBuf data = new PacketByteBuf(Unpooled.buffer());
+
+    /**
+     * Players near any section with queued effects, reused for each flush.
+     */
+    private static final List<ServerPlayerEntity> nearbyPlayers = new ArrayList<>();
+    private static final Set<ServerPlayerEntity> recipients = new ReferenceOpenHashSet<>();
+
+    // --------------------------------------------------------------------- //
+
+    /**
+     * Queue an effect at the specified position, dropped if the section the
+     * position is in already holds {@link Settings#maxParticlesPerTick}
+     * effects this tick.
+     *
+     * @param world the world to emit the effect in.
+     * @param x     the x coordinate of the effect.
+     * @param y     the y coordinate of the effect.
+     * @param z     the z coordinate of the effect.
+     */
+    static void queue(final World world, final double x, final double y, final double z) {
+        final int blockX = MathHelper.floor(x);
+        final int blockY = MathHelper.floor(y);
+        final int blockZ = MathHelper.floor(z);
+        final long key = BlockPos.asLong(blockX >> 4, blockY >> 4, blockZ >> 4);
+
+        Long2ObjectMap<IntLinkedOpenHashSet> sections = QUEUES.get(world);
+        if (sections == null) {
+            sections = new Long2ObjectOpenHashMap<>();
+            QUEUES.put(world, sections);
+        }
+        IntLinkedOpenHashSet positions = sections.get(key);
+        if (positions == null) {
+            positions = new IntLinkedOpenHashSet();
+            sections.put(key, positions);
+        }
+
+        if (positions.size() < Settings.maxParticlesPerTick) {
+            positions.add(pack(quantize(x, blockX), quantize(y, blockY), quantize(z, blockZ)));
+        }
+    }
+
+    /**
+     * Send the effects queued this tick to all players near them. Called at
+     * the end of each server tick.
+     */
+    static void flush() {
+        for (final Map.Entry<World, Long2ObjectMap<IntLinkedOpenHashSet>> entry : QUEUES.entrySet()) {
+            final World world = entry.getKey();
+            final Long2ObjectMap<IntLinkedOpenHashSet> sections = entry.getValue();
+            final PlayerIndex index = PlayerIndex.get(world);
+            if (index.isEmpty()) {
+                continue;
+            }
+
+            final LongIterator keys = sections.keySet().iterator();
+            while (keys.hasNext()) {
+                final BlockPos section = BlockPos.fromLong(keys.nextLong());
+                index.collectPlayersNear((section.getX() << 4) + 8, (section.getY() << 4) + 8, (section.getZ() << 4) + 8,
+                    VIEW_DISTANCE + SECTION_RADIUS, nearbyPlayers);
+            }
+
+            for (final ServerPlayerEntity player : nearbyPlayers) {
+                if (recipients.add(player) && !DISABLED_PLAYERS.contains(player.getUuid())) {
+                    send(player, sections);
+                }
+            }
+            nearbyPlayers.clear();
+            recipients.clear();
+        }
+        QUEUES.clear();
+    }
+
+    /**
+     * Set whether the client of the specified player wants to receive
+     * particle effects.
+     *
+     * @param player  the player to set the preference for.
+     * @param enabled whether to send particle effects to the player.
+     */
+    public static void setEnabled(final PlayerEntity player, final boolean enabled) {
+        if (enabled) {
+            DISABLED_PLAYERS.remove(player.getUuid());
+        } else {
+            DISABLED_PLAYERS.add(player.getUuid());
+        }
+    }
+
+    // --------------------------------------------------------------------- //
+
+    private static void send(final ServerPlayerEntity player, final Long2ObjectMap<IntLinkedOpenHashSet> sections) {
+        for (final Long2ObjectMap.Entry<IntLinkedOpenHashSet> section : sections.long2ObjectEntrySet()) {
+            final long key = section.getLongKey();
+            if (!isInRange(player.getPos(), BlockPos.fromLong(key))) {
+                continue;
+            }
+
+            final IntLinkedOpenHashSet positions = section.getValue();
+            data.writeLong(key);
+            data.writeVarInt(positions.size());
+            final IntIterator iterator = positions.iterator();
+            while (iterator.hasNext()) {
+                final int position = iterator.nextInt();
+                data.writeByte(position);
+                data.writeByte(position >>> 8);
+                data.writeByte(position >>> 16);
+            }
+        }
+
+        if (data.readableBytes() > 0) {
+            Network.INSTANCE.sendToClient(new ParticleEffectBatchMessage(player.world, data), player);
+            data.clear();
+        }
+    }
+
+    private static boolean isInRange(final Vec3d position, final BlockPos section) {
+        // Distance to the closest point of the section.
+        final double dx = distanceToRange(position.x, section.getX() << 4);
+        final double dy = distanceToRange(position.y, section.getY() << 4);
+        final double dz = distanceToRange(position.z, section.getZ() << 4);
+        return dx * dx + dy * dy + dz * dz < VIEW_DISTANCE * VIEW_DISTANCE;
+    }
+
+    private static double distanceToRange(final double value, final int min) {
+        if (value < min) {
+            return min - value;
+        }
+        if (value > min + 16) {
+            return value - (min + 16);
+        }
+        return 0;
+    }
+
+    private static int quantize(final double value, final int block) {
+        // Offset into the section in sixteenths of a block, 0-255.
+        return ((block & 15) << 4) | MathHelper.clamp((int)((value - block) * 16), 0, 15);
+    }
+
+    private static int pack(final int x, final int y, final int z) {
+        return x | (y << 8) | (z << 16);
+    }
+
+    // --------------------------------------------------------------------- //
+
+    private ParticleEffects() {
+    }
+}
@@ -0,0 +1,188 @@
+package li.cil.tis3d.common.network;
+
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import net.minecraft.entity.player.PlayerEntity;
+import net.minecraft.server.network.ServerPlayerEntity;
+import net.minecraft.util.math.ChunkPos;
+import net.minecraft.util.math.MathHelper;
+import net.minecraft.world.World;
+import net.minecraft.world.dimension.DimensionType;
+
+import javax.annotation.Nullable;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * Spatial index of the players in a world, by the chunk they are in, for
+ * finding the players near a position without checking every player in
+ * the world.
+ * <p>
+ * The index of a world is built when it is first queried in a tick, and
+ * dropped at the end of the tick via {@link #clearAll()}, so that it holds
+ * no references to players between ticks. All containers are reused, so
+ * neither building nor querying the index allocates once it has warmed up.
+ * Only accessed on the server thread.
+ */
+final class PlayerIndex {
+    /**
+     * The indices of all worlds queried so far. Weak, so that unloaded
+     * worlds are dropped.
+     */
+    private static final Map<World, PlayerIndex> INDICES = new WeakHashMap<>();
+
+    /**
+     * The players in the world by chunk, see {@link ChunkPos#toLong(int, int)}.
+     */
+    private final Long2ObjectMap<List<ServerPlayerEntity>> playersByChunk = new Long2ObjectOpenHashMap<>();
+
+    /**
+     * All players in the world, for queries spanning more chunks than there
+     * are players.
+     */
+    private final List<ServerPlayerEntity> players = new ArrayList<>();
+
+    /**
+     * Lists no longer used by {@link #playersByChunk}, reused when rebuilding.
+     */
+    private final Deque<List<ServerPlayerEntity>> listPool = new ArrayDeque<>();
+
+    /**
+     * The dimension of the world the index is for, to skip players that
+     * left the world since the index was built.
+     */
+    @Nullable
+    private DimensionType dimension;
+
+    /**
+     * Whether the index was built in the current tick.
+     */
+    private boolean isBuilt;
+
+    // --------------------------------------------------------------------- //
+
+    /**
+     * Get the up-to-date index of the specified world.
+     *
+     * @param world the world to get the index for.
+     * @return the index of the world.
+     */
+    static PlayerIndex get(final World world) {
+        PlayerIndex index = INDICES.get(world);
+        if (index == null) {
+            index = new PlayerIndex();
+            INDICES.put(world, index);
+        }
+        if (!index.isBuilt) {
+            index.build(world);
+        }
+        return index;
+    }
+
+    /**
+     * Drop the indices built in this tick. Called at the end of each server tick.
+     */
+    static void clearAll() {
+        for (final PlayerIndex index : INDICES.values()) {
+            index.clear();
+        }
+    }
+
+    // --------------------------------------------------------------------- //
+
+    /**
+     * Whether there are no players in the world.
+     *
+     * @return <tt>true</tt> if the world has no players; <tt>false</tt> otherwise.
+     */
+    boolean isEmpty() {
+        return players.isEmpty();
+    }
+
+    /**
+     * Collect all players within the specified range of the specified position.
+     *
+     * @param x      the x coordinate of the position.
+     * @param y      the y coordinate of the position.
+     * @param z      the z coordinate of the position.
+     * @param range  the range to collect players in.
+     * @param result the list to add the players in range to.
+     */
+    void collectPlayersNear(final double x, final double y, final double z, final double range, final List<ServerPlayerEntity> result) {
+        final int minX = MathHelper.floor(x - range) >> 4;
+        final int minZ = MathHelper.floor(z - range) >> 4;
+        final int maxX = MathHelper.floor(x + range) >> 4;
+        final int maxZ = MathHelper.floor(z + range) >> 4;
+
+        // Looking up each chunk only pays off if there are more players
+        // than chunks in range, otherwise just check all players.
+        if ((maxX - minX + 1) * (maxZ - minZ + 1) > players.size()) {
+            collectPlayersNear(players, x, y, z, range, result);
+        } else {
+            for (int chunkX = minX; chunkX <= maxX; chunkX++) {
+                for (int chunkZ = minZ; chunkZ <= maxZ; chunkZ++) {
+                    final List<ServerPlayerEntity> chunkPlayers = playersByChunk.get(ChunkPos.toLong(chunkX, chunkZ));
+                    if (chunkPlayers != null) {
+                        collectPlayersNear(chunkPlayers, x, y, z, range, result);
+                    }
+                }
+            }
+        }
+    }
+
+    // --------------------------------------------------------------------- //
+
+    private void build(final World world) {
+        isBuilt = true;
+        dimension = world.getDimension().getType();
+
+        for (final PlayerEntity player : world.getPlayers()) {
+            if (!(player instanceof ServerPlayerEntity)) {
+                continue;
+            }
+
+            final ServerPlayerEntity serverPlayer = (ServerPlayerEntity)player;
+            players.add(serverPlayer);
+
+            final long key = ChunkPos.toLong(MathHelper.floor(player.getPos().x) >> 4, MathHelper.floor(player.getPos().z) >> 4);
+            List<ServerPlayerEntity> chunkPlayers = playersByChunk.get(key);
+            if (chunkPlayers == null) {
+                chunkPlayers = listPool.isEmpty() ? new ArrayList<>() : listPool.pop();
+                playersByChunk.put(key, chunkPlayers);
+            }
+            chunkPlayers.add(serverPlayer);
+        }
+    }
+
+    private void clear() {
+        if (!isBuilt) {
+            return;
+        }
+        isBuilt = false;
+
+        for (final List<ServerPlayerEntity> list : playersByChunk.values()) {
+            list.clear();
+            listPool.push(list);
+        }
+        playersByChunk.clear();
+        players.clear();
+    }
+
+    private void collectPlayersNear(final List<ServerPlayerEntity> candidates, final double x, final double y, final double z, final double range, final List<ServerPlayerEntity> result) {
+        final double rangeSq = range * range;
+        for (int i = 0; i < candidates.size(); i++) {
+            final ServerPlayerEntity player = candidates.get(i);
+            // Players may have left the world since the index was built.
+            if (!player.removed && player.world.getDimension().getType() == dimension && player.squaredDistanceTo(x, y, z) < rangeSq) {
+                result.add(player);
+            }
+        }
+    }
+
+    private PlayerIndex() {
+    }
+}
@@ -0,0 +1,357 @@
+package li.cil.tis3d.common.network;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import it.unimi.dsi.fastutil.longs.Long2ObjectLinkedOpenHashMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.objects.ObjectIterator;
+import li.cil.tis3d.api.machine.Face;
+import li.cil.tis3d.common.Settings;
+import li.cil.tis3d.common.network.message.CasingDataBatchMessage;
+import net.minecraft.entity.player.PlayerEntity;
+import net.minecraft.server.network.ServerPlayerEntity;
+import net.minecraft.util.PacketByteBuf;
+import net.minecraft.world.dimension.DimensionType;
+
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * Collects the module data to send to a single player, and sends it within
+ * the bandwidth budget of that player's connection.
+ * <p>
+ * The budget is a bucket of bytes, refilled by {@link Settings#maxBytesPerPlayerTick}
+ * each tick, and holding up to {@link #BURST_TICKS} ticks worth of bytes.
+ * Data exceeding the budget stays queued, where it is replaced by newer data
+ * of the same type for the same module, so only the newest state of each
+ * module is kept until there is budget to send it.
+ * <p>
+ * Queued data is sent by priority: full state of modules first, then data
+ * of modules the player watches, see {@link CasingInterests}, and cosmetic
+ * updates of all other modules last. Modules that did not fit the budget
+ * keep their place in line, so they are sent first within their priority
+ * in the next tick. Only accessed on the server thread.
+ */
+final class PlayerSendQueue {
+    /**
+     * Data holding the full state of a module, i.e. NBT data.
+     */
+    private static final int PRIORITY_FULL_STATE = 0;
+
+    /**
+     * Data of a module the player watches.
+     */
+    private static final int PRIORITY_WATCHED = 1;
+
+    /**
+     * Any other data, only affecting how modules look from afar.
+     */
+    private static final int PRIORITY_COSMETIC = 2;
+
+    private static final int PRIORITY_COUNT = 3;
+
+    /**
+     * Number of ticks worth of bytes the budget of a player can hold.
+     */
+    private static final int BURST_TICKS = 4;
+
+    /**
+     * Maximum size of the data of a single message, well below the size
+     * limit of custom payload packets. Further data is sent in another message.
+     */
+    private static final int MAX_BATCH_SIZE = 256 * 1024;
+
+    /**
+     * Maximum number of queued untyped entries per module, which cannot be
+     * replaced by newer data. When exceeded, the oldest entries are dropped.
+     */
+    private static final int MAX_UNTYPED_ENTRIES = 256;
+
+    /**
+     * The queues of all players that were sent any data. Weak, so that players
+     * leaving the server, or being replaced when respawning, are dropped.
+     */
+    private static final Map<PlayerEntity, PlayerSendQueue> QUEUES = new WeakHashMap<>();
+
+    /**
+     * Buffers messages are built in, reused for each flush. Messages are
+     * serialized when sent, so these may be cleared right after sending.
+     */
+    private static final PacketByteBuf batch = new PacketByteBuf(Unpooled.buffer());
+    private static final PacketByteBuf casingData = new PacketByteBuf(Unpooled.buffer());
+    private static final PacketByteBuf faceData = new PacketByteBuf(Unpooled.buffer());
+    private static final PacketByteBuf scratch = new PacketByteBuf(Unpooled.buffer());
+
+    /**
+     * Queued data by casing position, in the order it was first queued in.
+     */
+    private final Long2ObjectLinkedOpenHashMap<QueuedCasing> casings = new Long2ObjectLinkedOpenHashMap<>();
+
+    /**
+     * The dimension the queued data was collected in.
+     */
+    @Nullable
+    private DimensionType dimension;
+
+    /**
+     * The number of bytes that may currently be sent to the player. May be
+     * negative after sending a large module, in which case sending resumes
+     * once it has been refilled.
+     */
+    private long budget;
+
+    // --------------------------------------------------------------------- //
+
+    /**
+     * Get the queue for data sent to the specified player.
+     *
+     * @param player the player to get the queue for.
+     * @return the queue of the player.
+     */
+    static PlayerSendQueue get(final ServerPlayerEntity player) {
+        final PlayerSendQueue queue = QUEUES.computeIfAbsent(player, p -> new PlayerSendQueue());
+        queue.validateDimension(player);
+        return queue;
+    }
+
+    /**
+     * Send queued data to all players, within their budgets. Called at the
+     * end of each server tick.
+     */
+    static void flushAll() {
+        final Iterator<Map.Entry<PlayerEntity, PlayerSendQueue>> iterator = QUEUES.entrySet().iterator();
+        while (iterator.hasNext()) {
+            final Map.Entry<PlayerEntity, PlayerSendQueue> entry = iterator.next();
+            final PlayerEntity player = entry.getKey();
+            if (player == null || player.removed) {
+                entry.getValue().clear();
+                iterator.remove();
+                continue;
+            }
+
+            entry.getValue().flush((ServerPlayerEntity)player);
+        }
+    }
+
+    // --------------------------------------------------------------------- //
+
+    /**
+     * Queue an entry for the module on the specified face of the casing at
+     * the specified position.
+     *
+     * @param position  the position of the casing.
+     * @param face      the face of the module.
+     * @param kind      the kind of the entry, see {@link ModuleDataFormat}.
+     * @param type      the type of the data.
+     * @param data      the payload of the entry, not consumed.
+     * @param isWatched whether the player watches the module.
+     */
+    void queue(final long position, final Face face, final int kind, final byte type, final ByteBuf data, final boolean isWatched) {
+        QueuedCasing casing = casings.get(position);
+        if (casing == null) {
+            casing = new QueuedCasing();
+            casings.put(position, casing);
+        }
+
+        QueuedModule module = casing.modules[face.ordinal()];
+        if (module == null) {
+            module = new QueuedModule();
+            casing.modules[face.ordinal()] = module;
+        }
+
+        final int priority;
+        if (kind == ModuleDataFormat.KIND_NBT) {
+            priority = PRIORITY_FULL_STATE;
+        } else if (isWatched) {
+            priority = PRIORITY_WATCHED;
+        } else {
+            priority = PRIORITY_COSMETIC;
+        }
+        module.queue(kind, type, data, priority);
+    }
+
+    // --------------------------------------------------------------------- //
+
+    private void validateDimension(final PlayerEntity player) {
+        // Drop data queued for casings in the dimension the player left, and
+        // the baselines of the data sent for them. Checked each tick, so this
+        // also catches players returning to a dimension within a few ticks.
+        final DimensionType dimension = player.world.getDimension().getType();
+        if (this.dimension != dimension) {
+            this.dimension = dimension;
+            clear();
+            ModuleDataBaselines.resetServerBaselines(player);
+        }
+    }
+
+    private void clear() {
+        for (final QueuedCasing casing : casings.values()) {
+            casing.release();
+        }
+        casings.clear();
+    }
+
+    private void flush(final ServerPlayerEntity player) {
+        validateDimension(player);
+
+        final long limit = Settings.maxBytesPerPlayerTick;
+        budget = Math.min(budget + limit, limit * BURST_TICKS);
+        if (casings.isEmpty()) {
+            return;
+        }
+
+        // Don't limit what the host of an integrated server receives.
+        final boolean isLimited = !player.networkHandler.connection.isLocal();
+        final ModuleDataBaselines baselines = ModuleDataBaselines.getServerBaselines(player);
+
+        for (int priority = 0; priority < PRIORITY_COUNT; priority++) {
+            final ObjectIterator<Long2ObjectMap.Entry<QueuedCasing>> iterator = casings.long2ObjectEntrySet().fastIterator();
+            while (iterator.hasNext() && (!isLimited || budget > 0)) {
+                final Long2ObjectMap.Entry<QueuedCasing> entry = iterator.next();
+                final long position = entry.getLongKey();
+                final QueuedCasing casing = entry.getValue();
+
+                for (int i = 0; i < casing.modules.length; i++) {
+                    final QueuedModule module = casing.modules[i];
+                    if (module == null || module.priority != priority) {
+                        continue;
+                    }
+                    if (isLimited && budget <= 0) {
+                        break;
+                    }
+
+                    final int start = casingData.writerIndex();
+                    module.write(faceData, position, Face.VALUES[i], baselines);
+                    module.release();
+                    casingData.writeByte(i);
+                    casingData.writeVarInt(faceData.readableBytes());
+                    casingData.writeBytes(faceData);
+                    faceData.clear();
+                    budget -= casingData.writerIndex() - start;
+                    casing.modules[i] = null;
+                }
+
+                if (casingData.readableBytes() > 0) {
+                    batch.writeLong(position);
+                    batch.writeVarInt(casingData.readableBytes());
+                    batch.writeBytes(casingData);
+                    casingData.clear();
+                }
+                if (casing.isEmpty()) {
+                    iterator.remove();
+                }
+                if (batch.readableBytes() >= MAX_BATCH_SIZE) {
+                    send(player, baselines);
+                }
+            }
+        }
+
+        if (batch.readableBytes() > 0) {
+            send(player, baselines);
+        }
+    }
+
+    private static void send(final ServerPlayerEntity player, final ModuleDataBaselines baselines) {
+        Network.INSTANCE.sendToClient(new CasingDataBatchMessage(player.world, baselines.consumeReset(), batch), player);
+        batch.clear();
+    }
+
+    // --------------------------------------------------------------------- //
+
+    /**
+     * The data queued for the modules of a single casing.
+     */
+    private static final class QueuedCasing {
+        private final QueuedModule[] modules = new QueuedModule[Face.VALUES.length];
+
+        private boolean isEmpty() {
+            for (final QueuedModule module : modules) {
+                if (module != null) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private void release() {
+            for (final QueuedModule module : modules) {
+                if (module != null) {
+                    module.release();
+                }
+            }
+        }
+    }
+
+    /**
+     * The data queued for a single module, sent all at once to keep the
+     * order of entries.
+     */
+    private static final class QueuedModule {
+        private final List<QueuedEntry> entries = new ArrayList<>();
+        private int priority = PRIORITY_COUNT;
+        private int untypedCount;
+
+        private void queue(final int kind, final byte type, final ByteBuf data, final int priority) {
+            // Newer data of a type replaces older data of that type, like
+            // when collecting the data queued by a module.
+            if (type >= 0) {
+                removeFirst(type);
+            } else if (untypedCount >= MAX_UNTYPED_ENTRIES) {
+                removeFirst(type);
+                untypedCount--;
+            }
+
+            entries.add(new QueuedEntry(kind, type, ModuleDataBuffers.copy(data)));
+            if (type < 0) {
+                untypedCount++;
+            }
+            this.priority = Math.min(this.priority, priority);
+        }
+
+        private void removeFirst(final byte type) {
+            for (int i = 0; i < entries.size(); i++) {
+                if (entries.get(i).type == type) {
+                    entries.remove(i).data.release();
+                    return;
+                }
+            }
+        }
+
+        private void write(final PacketByteBuf buffer, final long position, final Face face, final ModuleDataBaselines baselines) {
+            for (final QueuedEntry entry : entries) {
+                ModuleDataFormat.writeEntry(buffer, entry.kind, entry.type, entry.data, position, face, baselines, scratch);
+            }
+        }
+
+        private void release() {
+            for (final QueuedEntry entry : entries) {
+                entry.data.release();
+            }
+            entries.clear();
+        }
+    }
+
+    /**
+     * A single queued entry, holding a pooled copy of its data, see {@link ModuleDataBuffers}.
+     */
+    private static final class QueuedEntry {
+        private final int kind;
+        private final byte type;
+        private final ByteBuf data;
+
+        private QueuedEntry(final int kind, final byte type, final ByteBuf data) {
+            this.kind = kind;
+            this.type = type;
+            this.data = data;
+        }
+    }
+
+    // --------------------------------------------------------------------- //
+
+    private PlayerSendQueue() {
+    }
+}
@@ -1,18 +1,20 @@
 package li.cil.tis3d.common.network.handler;
 
 import io.netty.buffer.ByteBuf;
-import io.netty.buffer.ByteBufInputStream;
+import io.netty.buffer.Unpooled;
 import li.cil.tis3d.api.machine.Face;
 import li.cil.tis3d.api.module.Module;
 import li.cil.tis3d.common.TIS3D;
 import li.cil.tis3d.common.block.entity.CasingBlockEntity;
+import li.cil.tis3d.common.network.ModuleDataBaselines;
+import li.cil.tis3d.common.network.ModuleDataFormat;
 import li.cil.tis3d.common.network.message.CasingDataMessage;
 import net.fabricmc.fabric.api.network.PacketContext;
 import net.minecraft.block.entity.BlockEntity;
 import net.minecraft.nbt.CompoundTag;
-import net.minecraft.nbt.NbtIo;
+import net.minecraft.util.PacketByteBuf;
 
-import java.io.IOException;
+import javax.annotation.Nullable;
 
 public final class CasingDataMessageHandler extends AbstractMessageHandlerWithLocation<CasingDataMessage> {
     @Override
@@ -23,28 +25,71 @@ public final class CasingDataMessageHandler extends AbstractMessageHandlerWithLo
         }
 
         final CasingBlockEntity casing = (CasingBlockEntity)blockEntity;
-        final ByteBuf data = message.getData();
+        readCasingData(casing, message.getPosition().asLong(), new PacketByteBuf(message.getData()), null);
+    }
+
+    /**
+     * Read the module data of a casing, in the format of {@link ModuleDataFormat},
+     * and pass it to the modules of the casing.
+     * <p>
+     * Baselines are updated even if the casing is not loaded, to stay in
+     * sync with the baselines of the sender.
+     *
+     * @param casing    the casing the data is for, if it is loaded.
+     * @param position  the position of the casing.
+     * @param data      the data to read.
+     * @param baselines the baselines to resolve deltas against, if any.
+     */
+    public static void readCasingData(@Nullable final CasingBlockEntity casing, final long position, final PacketByteBuf data, @Nullable final ModuleDataBaselines baselines) {
         while (data.readableBytes() > 0) {
-            final Module module = casing.getModule(Face.VALUES[data.readByte()]);
-            final ByteBuf moduleData = data.readBytes(data.readShort());
+            final Face face = Face.VALUES[data.readByte()];
+            final Module module = casing != null ? casing.getModule(face) : null;
+            final PacketByteBuf moduleData = new PacketByteBuf(data.readSlice(data.readVarInt()));
             while (moduleData.readableBytes() > 0) {
-                final boolean isNbt = moduleData.readBoolean();
-                final int size = moduleData.readShort();
-                final ByteBuf packet = moduleData.readBytes(size);
-                if (module != null) {
-                    if (isNbt) {
-                        try {
-                            final ByteBufInputStream bis = new ByteBufInputStream(packet);
-                            final CompoundTag nbt = NbtIo.readCompressed(bis);
+                final int header = moduleData.readVarInt();
+                final PacketByteBuf packet = new PacketByteBuf(moduleData.readSlice(moduleData.readVarInt()));
+                final byte type = ModuleDataFormat.getType(header);
+                switch (ModuleDataFormat.getKind(header)) {
+                    case ModuleDataFormat.KIND_DATA:
+                        if (baselines != null && type >= 0) {
+                            baselines.update(position, face, type, packet);
+                        }
+                        if (module != null) {
+                            module.onData(packet);
+                        }
+                        break;
+                    case ModuleDataFormat.KIND_NBT:
+                        final CompoundTag nbt = packet.readCompoundTag();
+                        if (module != null && nbt != null) {
                             module.onData(nbt);
-                        } catch (final IOException e) {
-                            TIS3D.getLog().warn("Invalid packet received.", e);
                         }
-                    } else {
-                        module.onData(packet);
-                    }
+                        break;
+                    case ModuleDataFormat.KIND_DELTA:
+                        final ByteBuf decoded = readDelta(baselines, position, face, type, packet);
+                        if (module != null && decoded != null) {
+                            module.onData(decoded);
+                        }
+                        break;
+                    default:
+                        TIS3D.getLog().warn("Invalid packet received.");
+                        break;
                 }
             }
         }
     }
+
+    // --------------------------------------------------------------------- //
+
+    @Nullable
+    private static ByteBuf readDelta(@Nullable final ModuleDataBaselines baselines, final long position, final Face face, final byte type, final PacketByteBuf packet) {
+        final byte[] baseline = baselines != null ? baselines.get(position, face, type) : null;
+        if (baseline == null) {
+            TIS3D.getLog().warn("Invalid packet received, missing baseline for delta.");
+            return null;
+        }
+
+        final byte[] data = ModuleDataFormat.readDelta(baseline, packet);
+        baselines.update(position, face, type, data);
+        return Unpooled.wrappedBuffer(data);
+    }
 }
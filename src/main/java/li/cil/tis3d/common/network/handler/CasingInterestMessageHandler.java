@@ -0,0 +1,16 @@
+package li.cil.tis3d.common.network.handler;
+
+import li.cil.tis3d.common.network.CasingInterests;
+import li.cil.tis3d.common.network.message.CasingInterestMessage;
+import net.fabricmc.fabric.api.network.PacketContext;
+import net.minecraft.entity.player.PlayerEntity;
+
+public final class CasingInterestMessageHandler extends AbstractMessageHandler<CasingInterestMessage> {
+    @Override
+    protected void onMessageSynchronized(final CasingInterestMessage message, final PacketContext context) {
+        final PlayerEntity player = context.getPlayer();
+        if (player != null) {
+            CasingInterests.setInterests(player, message.getPositions(), message.getFaceMasks());
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package li.cil.tis3d.common.network.handler;
+
+import li.cil.tis3d.common.network.ParticleEffects;
+import li.cil.tis3d.common.network.message.ClientSettingsMessage;
+import net.fabricmc.fabric.api.network.PacketContext;
+import net.minecraft.entity.player.PlayerEntity;
+
+public final class ClientSettingsMessageHandler extends AbstractMessageHandler<ClientSettingsMessage> {
+    @Override
+    protected void onMessageSynchronized(final ClientSettingsMessage message, final PacketContext context) {
+        final PlayerEntity player = context.getPlayer();
+        if (player != null) {
+            ParticleEffects.setEnabled(player, message.showsParticles());
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package li.cil.tis3d.common.network.message;
+
+import io.netty.buffer.ByteBuf;
+import net.minecraft.util.PacketByteBuf;
+import net.minecraft.world.World;
+
+/**
+ * Sent by the server once per tick to each player, holding the module data
+ * of all casings near the player in a single packet.
+ * <p>
+ * The data holds <tt>long position, varint length</tt> per casing, see
+ * {@link net.minecraft.util.math.BlockPos#asLong()}, followed by the data of
+ * the casing in the format of {@link li.cil.tis3d.common.network.ModuleDataFormat}.
+ * <p>
+ * When the server dropped its baselines for the player, the next message
+ * tells the client to drop its baselines before applying the data, see
+ * {@link li.cil.tis3d.common.network.ModuleDataBaselines}.
+ */
+public final class CasingDataBatchMessage extends AbstractMessageWithDimension {
+    private boolean isResettingBaselines;
+    private ByteBuf data;
+
+    public CasingDataBatchMessage(final World world, final boolean isResettingBaselines, final ByteBuf data) {
+        super(world);
+        this.isResettingBaselines = isResettingBaselines;
+        this.data = data;
+    }
+
+    @SuppressWarnings("unused") // For deserialization.
+    public CasingDataBatchMessage() {
+    }
+
+    // --------------------------------------------------------------------- //
+
+    public boolean isResettingBaselines() {
+        return isResettingBaselines;
+    }
+
+    public ByteBuf getData() {
+        return data;
+    }
+
+    // --------------------------------------------------------------------- //
+    // AbstractMessage
+
+    @Override
+    public void fromBytes(final ByteBuf buf) {
+        super.fromBytes(buf);
+
+        isResettingBaselines = buf.readBoolean();
+        final PacketByteBuf buffer = new PacketByteBuf(buf);
+        data = buffer.readBytes(buffer.readVarInt());
+    }
+
+    @Override
+    public void toBytes(final ByteBuf buf) {
+        super.toBytes(buf);
+
+        buf.writeBoolean(isResettingBaselines);
+        final PacketByteBuf buffer = new PacketByteBuf(buf);
+        buffer.writeVarInt(data.readableBytes());
+        buffer.writeBytes(data);
+    }
+}
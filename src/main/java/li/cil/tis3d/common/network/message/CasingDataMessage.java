@@ -2,6 +2,7 @@ package li.cil.tis3d.common.network.message;
 
 import io.netty.buffer.ByteBuf;
 import li.cil.tis3d.api.machine.Casing;
+import net.minecraft.util.PacketByteBuf;
 
 public final class CasingDataMessage extends AbstractMessageWithLocation {
     private ByteBuf data;
@@ -28,15 +29,16 @@ public final class CasingDataMessage extends AbstractMessageWithLocation {
     public void fromBytes(final ByteBuf buf) {
         super.fromBytes(buf);
 
-        final int count = buf.readInt();
-        data = buf.readBytes(count);
+        final PacketByteBuf buffer = new PacketByteBuf(buf);
+        data = buffer.readBytes(buffer.readVarInt());
     }
 
     @Override
     public void toBytes(final ByteBuf buf) {
         super.toBytes(buf);
 
-        buf.writeInt(data.readableBytes());
-        buf.writeBytes(data);
+        final PacketByteBuf buffer = new PacketByteBuf(buf);
+        buffer.writeVarInt(data.readableBytes());
+        buffer.writeBytes(data);
     }
 }
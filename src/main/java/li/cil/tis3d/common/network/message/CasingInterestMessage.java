@@ -0,0 +1,65 @@
+package li.cil.tis3d.common.network.message;
+
+import io.netty.buffer.ByteBuf;
+
+/**
+ * Sent by clients to report the casing faces they currently render in
+ * detail, see {@link li.cil.tis3d.common.network.CasingInterests}.
+ */
+public final class CasingInterestMessage extends AbstractMessage {
+    /**
+     * The maximum number of casings accepted in a single message.
+     */
+    public static final int MAX_CASINGS = 512;
+
+    private long[] positions;
+    private byte[] faceMasks;
+
+    /**
+     * Create a new message.
+     *
+     * @param positions the positions of the watched casings, see {@link net.minecraft.util.math.BlockPos#asLong()}.
+     * @param faceMasks the watched faces of each casing, as bit masks indexed by face ordinal.
+     */
+    public CasingInterestMessage(final long[] positions, final byte[] faceMasks) {
+        this.positions = positions;
+        this.faceMasks = faceMasks;
+    }
+
+    @SuppressWarnings("unused") // For deserialization.
+    public CasingInterestMessage() {
+    }
+
+    // --------------------------------------------------------------------- //
+
+    public long[] getPositions() {
+        return positions;
+    }
+
+    public byte[] getFaceMasks() {
+        return faceMasks;
+    }
+
+    // --------------------------------------------------------------------- //
+    // AbstractMessage
+
+    @Override
+    public void fromBytes(final ByteBuf buf) {
+        final int count = Math.min(buf.readUnsignedShort(), MAX_CASINGS);
+        positions = new long[count];
+        faceMasks = new byte[count];
+        for (int i = 0; i < count; i++) {
+            positions[i] = buf.readLong();
+            faceMasks[i] = buf.readByte();
+        }
+    }
+
+    @Override
+    public void toBytes(final ByteBuf buf) {
+        buf.writeShort(positions.length);
+        for (int i = 0; i < positions.length; i++) {
+            buf.writeLong(positions[i]);
+            buf.writeByte(faceMasks[i]);
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package li.cil.tis3d.common.network.message;
+
+import io.netty.buffer.ByteBuf;
+
+/**
+ * Sent by clients when connecting to a server, to report settings the
+ * server respects when sending data to them.
+ */
+public final class ClientSettingsMessage extends AbstractMessage {
+    private boolean showParticles;
+
+    /**
+     * Create a new message.
+     *
+     * @param showParticles whether the client wants to receive particle
+     *                      effects of data transfers.
+     */
+    public ClientSettingsMessage(final boolean showParticles) {
+        this.showParticles = showParticles;
+    }
+
+    @SuppressWarnings("unused") // For deserialization.
+    public ClientSettingsMessage() {
+    }
+
+    // --------------------------------------------------------------------- //
+
+    public boolean showsParticles() {
+        return showParticles;
+    }
+
+    // --------------------------------------------------------------------- //
+    // AbstractMessage
+
+    @Override
+    public void fromBytes(final ByteBuf buf) {
+        showParticles = buf.readBoolean();
+    }
+
+    @Override
+    public void toBytes(final ByteBuf buf) {
+        buf.writeBoolean(showParticles);
+    }
+}
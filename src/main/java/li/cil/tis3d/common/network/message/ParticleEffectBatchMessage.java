@@ -0,0 +1,54 @@
+package li.cil.tis3d.common.network.message;
+
+import io.netty.buffer.ByteBuf;
+import net.minecraft.util.PacketByteBuf;
+import net.minecraft.world.World;
+
+/**
+ * Sent by the server once per tick to each player near data transfers,
+ * holding the particle effects emitted by these transfers, see
+ * {@link li.cil.tis3d.common.network.ParticleEffects}.
+ * <p>
+ * The data holds <tt>long section, varint count</tt> per chunk section, see
+ * {@link net.minecraft.util.math.BlockPos#asLong(int, int, int)}, followed by
+ * <tt>count</tt> positions of three bytes each, holding the x, y and z offset
+ * of the effect into the section in sixteenths of a block.
+ */
+public final class ParticleEffectBatchMessage extends AbstractMessageWithDimension {
+    private ByteBuf data;
+
+    public ParticleEffectBatchMessage(final World world, final ByteBuf data) {
+        super(world);
+        this.data = data;
+    }
+
+    @SuppressWarnings("unused") // For deserialization.
+    public ParticleEffectBatchMessage() {
+    }
+
+    // --------------------------------------------------------------------- //
+
+    public ByteBuf getData() {
+        return data;
+    }
+
+    // --------------------------------------------------------------------- //
+    // AbstractMessage
+
+    @Override
+    public void fromBytes(final ByteBuf buf) {
+        super.fromBytes(buf);
+
+        final PacketByteBuf buffer = new PacketByteBuf(buf);
+        data = buffer.readBytes(buffer.readVarInt());
+    }
+
+    @Override
+    public void toBytes(final ByteBuf buf) {
+        super.toBytes(buf);
+
+        final PacketByteBuf buffer = new PacketByteBuf(buf);
+        buffer.writeVarInt(data.readableBytes());
+        buffer.writeBytes(data);
+    }
+}